@@ -0,0 +1,84 @@
+package uk.co.omegaprime.mdbi.nativetest;
+
+import uk.co.omegaprime.mdbi.Context;
+import uk.co.omegaprime.mdbi.MDBI;
+import uk.co.omegaprime.mdbi.MdbiBean;
+import uk.co.omegaprime.mdbi.MdbiTuple;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static uk.co.omegaprime.mdbi.MDBI.$;
+import static uk.co.omegaprime.mdbi.MDBI.sql;
+
+// Run as a native image by the nativeSmokeTest task. Exits abnormally if anything doesn't work.
+public class NativeSmokeTest {
+    @MdbiTuple
+    public static class Person {
+        public final int id;
+        public final String name;
+        public final double score;
+
+        public Person(int id, String name, double score) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return id + "/" + name + "/" + score;
+        }
+    }
+
+    @MdbiBean
+    public static class Pet {
+        private long owner;
+        private String name;
+
+        public long getOwner() { return owner; }
+        public void setOwner(long owner) { this.owner = owner; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        @Override
+        public String toString() {
+            return owner + "/" + name;
+        }
+    }
+
+    private static void check(Object expected, Object actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError("Expected " + expected + " but got " + actual);
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        // Person goes via the entirely reflection-free route, Pet via the reflect-config.json written by the processor
+        final Context context = NativeSmokeTest_Person_Mdbi.register(Context.Builder.createDefault())
+                .registerGenerated(Pet.class)
+                .build();
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            final MDBI m = MDBI.of(context, connection);
+            m.execute(sql("create table person (id int, name text, score double)"));
+            m.execute(sql("create table pet (owner int, name text)"));
+
+            m.execute(sql("insert into person values (", $(new Person(1, "Max", 2.5)), ")"));
+            final Pet pet = new Pet();
+            pet.setOwner(1);
+            pet.setName("Rex");
+            m.execute(sql("insert into pet values (", $(pet), ")"));
+
+            final List<String> people = m.queryList(sql("select * from person"), Person.class).stream().map(Object::toString).collect(Collectors.toList());
+            check(Arrays.asList("1/Max/2.5"), people);
+            check("1/Rex", m.queryFirst(sql("select * from pet"), Pet.class).toString());
+        }
+
+        System.out.println("Native smoke test passed");
+    }
+}
@@ -0,0 +1,261 @@
+package uk.co.omegaprime.mdbi.processor;
+
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import java.util.List;
+
+// Renders the Java source for the class generated for one Mapping. Everything outside java.lang is referred to by
+// its fully qualified name so the generated code can't be confused by whatever else is declared in the user's package.
+class MapperSource {
+    private static final String MDBI = "uk.co.omegaprime.mdbi.";
+
+    private final Types types;
+    private final MdbiProcessor.Mapping mapping;
+    private final String packageName;
+    private final String simpleName;
+    private final String typeName;
+    private final StringBuilder out = new StringBuilder();
+
+    public MapperSource(Types types, MdbiProcessor.Mapping mapping, String packageName, String simpleName) {
+        this.types = types;
+        this.mapping = mapping;
+        this.packageName = packageName;
+        this.simpleName = simpleName;
+        this.typeName = mapping.element.getQualifiedName().toString();
+    }
+
+    private void line(String format, Object... args) {
+        out.append(String.format(format, args)).append('\n');
+    }
+
+    // Components we read and write directly via the ResultSet/PreparedStatement rather than via the Context
+    private enum Kind {
+        BOOLEAN("boolean", "Boolean", "Boolean", null),
+        BYTE("byte", "Byte", "Byte", null),
+        SHORT("short", "Short", "Short", null),
+        INT("int", "Int", "Integer", null),
+        LONG("long", "Long", "Long", null),
+        FLOAT("float", "Float", "Float", "FLOAT"),
+        DOUBLE("double", "Double", "Double", "DOUBLE"),
+        STRING("String", "String", "String", null),
+        CONTEXT(null, null, null, null);
+
+        public final String javaType, jdbcSuffix, wrapper, nanSqlType;
+
+        Kind(String javaType, String jdbcSuffix, String wrapper, String nanSqlType) {
+            this.javaType = javaType;
+            this.jdbcSuffix = jdbcSuffix;
+            this.wrapper = wrapper;
+            this.nanSqlType = nanSqlType;
+        }
+    }
+
+    private static Kind kind(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN: return Kind.BOOLEAN;
+            case BYTE:    return Kind.BYTE;
+            case SHORT:   return Kind.SHORT;
+            case INT:     return Kind.INT;
+            case LONG:    return Kind.LONG;
+            case FLOAT:   return Kind.FLOAT;
+            case DOUBLE:  return Kind.DOUBLE;
+            case DECLARED:
+                return type.toString().equals("java.lang.String") ? Kind.STRING : Kind.CONTEXT;
+            default:
+                return Kind.CONTEXT;
+        }
+    }
+
+    // The type of values that the Context will give us for this class: boxed if necessary, and erased since we can only look up classes
+    private String referenceType(TypeMirror type) {
+        return type.getKind().isPrimitive() ? types.boxedClass((PrimitiveType)type).getQualifiedName().toString() : types.erasure(type).toString();
+    }
+
+    private String classLiteral(TypeMirror type) {
+        return (type.getKind() == TypeKind.DECLARED || type.getKind() == TypeKind.ARRAY ? types.erasure(type) : type) + ".class";
+    }
+
+    @Override
+    public String toString() {
+        if (out.length() == 0) render();
+        return out.toString();
+    }
+
+    private void render() {
+        if (!packageName.isEmpty()) {
+            line("package %s;", packageName);
+            line("");
+        }
+
+        line("// Generated by the MDBI annotation processor from %s: do not edit", typeName);
+        line("public final class %s {", simpleName);
+        line("    private %s() {}", simpleName);
+        line("");
+        renderRead();
+        if (mapping.write) {
+            line("");
+            renderWrite();
+        }
+        line("");
+        line("    /** Registers the generated mappers for {@code %s} with the builder */", mapping.element.getSimpleName());
+        line("    public static %sContext.Builder register(%sContext.Builder builder) {", MDBI, MDBI);
+        if (mapping.write) {
+            line("        return builder.register(%s.class, WRITE, READ);", typeName);
+        } else {
+            line("        return builder.registerRead(%s.class, READ);", typeName);
+        }
+        line("    }");
+        line("}");
+    }
+
+    private void renderRead() {
+        final List<MdbiProcessor.Property> properties = mapping.properties;
+        line("    public static final %sRead<%s> READ = new %sRead<%s>() {", MDBI, typeName, MDBI, typeName);
+        line("        @Override");
+        line("        public Class<? extends %s> getElementClass() {", typeName);
+        line("            return %s.class;", typeName);
+        line("        }");
+        line("");
+        line("        @Override");
+        line("        @SuppressWarnings(\"rawtypes\")");
+        line("        public %sBoundRead<%s> bind(%sRead.Context ctxt) {", MDBI, typeName, MDBI);
+        final StringBuilder arity = new StringBuilder();
+        int directArity = 0;
+        for (int i = 0; i < properties.size(); i++) {
+            final TypeMirror type = properties.get(i).type;
+            if (kind(type) == Kind.CONTEXT) {
+                line("            final %sBoundRead<? extends %s> read%d = ctxt.get(%s).bind(ctxt);", MDBI, referenceType(type), i, classLiteral(type));
+                arity.append(" + read").append(i).append(".arity()");
+            } else {
+                directArity++;
+            }
+        }
+        line("            return new %sBoundRead<%s>() {", MDBI, typeName);
+        line("                @Override");
+        line("                public int arity() {");
+        line("                    return %d%s;", directArity, arity);
+        line("                }");
+        line("");
+        line("                @Override");
+        line("                @SuppressWarnings(\"unchecked\")");
+        line("                public %s get(java.sql.ResultSet rs, %sIndexRef ix) throws java.sql.SQLException {", typeName, MDBI);
+        for (int i = 0; i < properties.size(); i++) {
+            final TypeMirror type = properties.get(i).type;
+            final Kind kind = kind(type);
+            switch (kind) {
+                case FLOAT:
+                case DOUBLE:
+                    line("                    %s a%d = rs.get%s(ix.take());", kind.javaType, i, kind.jdbcSuffix);
+                    line("                    if (rs.wasNull()) a%d = %s.NaN;", i, kind.wrapper);
+                    break;
+                case STRING:
+                    line("                    final String a%d = rs.getString(ix.take());", i);
+                    break;
+                case CONTEXT:
+                    line("                    final %s a%d = (%s)read%d.get(rs, ix);", type, i, type, i);
+                    break;
+                default:
+                    line("                    final %s a%d = rs.get%s(ix.take());", kind.javaType, i, kind.jdbcSuffix);
+                    line("                    if (rs.wasNull()) throw new NullPointerException(\"Found null in result\");");
+                    break;
+            }
+        }
+
+        if (mapping.bean) {
+            line("                    final %s x = new %s();", typeName, typeName);
+            for (int i = 0; i < properties.size(); i++) {
+                line("                    x.%s(a%d);", properties.get(i).setter, i);
+            }
+            line("                    return x;");
+        } else {
+            final StringBuilder arguments = new StringBuilder();
+            for (int i = 0; i < properties.size(); i++) {
+                arguments.append(i == 0 ? "" : ", ").append('a').append(i);
+            }
+            line("                    return new %s(%s);", typeName, arguments);
+        }
+        line("                }");
+        line("            };");
+        line("        }");
+        line("    };");
+    }
+
+    private void renderWrite() {
+        final List<MdbiProcessor.Property> properties = mapping.properties;
+        line("    public static final %sWrite<%s> WRITE = new %sWrite<%s>() {", MDBI, typeName, MDBI, typeName);
+        line("        @Override");
+        line("        @SuppressWarnings(\"rawtypes\")");
+        line("        public %sBoundWrite<%s> bind(%sWrite.Context ctxt) {", MDBI, typeName, MDBI);
+        final StringBuilder arity = new StringBuilder();
+        int directArity = 0;
+        for (int i = 0; i < properties.size(); i++) {
+            final TypeMirror type = properties.get(i).type;
+            if (kind(type) == Kind.CONTEXT) {
+                line("            final %sBoundWrite<? super %s> write%d = ctxt.get(%s).bind(ctxt);", MDBI, referenceType(type), i, classLiteral(type));
+                arity.append(" + write").append(i).append(".arity()");
+            } else {
+                directArity++;
+            }
+        }
+        line("            return new %sBoundWrite<%s>() {", MDBI, typeName);
+        line("                @Override");
+        line("                public int arity() {");
+        line("                    return %d%s;", directArity, arity);
+        line("                }");
+        line("");
+        line("                @Override");
+        line("                @SuppressWarnings(\"unchecked\")");
+        line("                public void set(java.sql.PreparedStatement s, %sIndexRef ix, %s x) throws java.sql.SQLException {", MDBI, typeName);
+        for (int i = 0; i < properties.size(); i++) {
+            final MdbiProcessor.Property property = properties.get(i);
+            final Kind kind = kind(property.type);
+            switch (kind) {
+                case FLOAT:
+                case DOUBLE:
+                    line("                    final %s v%d = x.%s;", kind.javaType, i, property.getter);
+                    line("                    if (%s.isNaN(v%d)) s.setNull(ix.take(), java.sql.Types.%s); else s.set%s(ix.take(), v%d);", kind.wrapper, i, kind.nanSqlType, kind.jdbcSuffix, i);
+                    break;
+                case CONTEXT:
+                    line("                    write%d.set(s, ix, x.%s);", i, property.getter);
+                    break;
+                default:
+                    line("                    s.set%s(ix.take(), x.%s);", kind.jdbcSuffix, property.getter);
+                    break;
+            }
+        }
+        line("                }");
+        line("");
+        line("                @Override");
+        line("                @SuppressWarnings(\"unchecked\")");
+        line("                public java.util.List<String> asSQL(%s x) {", typeName);
+        line("                    final java.util.List<String> result = new java.util.ArrayList<>();");
+        for (int i = 0; i < properties.size(); i++) {
+            final MdbiProcessor.Property property = properties.get(i);
+            final Kind kind = kind(property.type);
+            switch (kind) {
+                case FLOAT:
+                case DOUBLE:
+                    line("                    final %s v%d = x.%s;", kind.javaType, i, property.getter);
+                    line("                    result.add(%s.isNaN(v%d) ? \"null\" : %s.toString(v%d));", kind.wrapper, i, kind.wrapper, i);
+                    break;
+                case STRING:
+                    line("                    final String v%d = x.%s;", i, property.getter);
+                    line("                    result.add(v%d == null ? \"null\" : \"'\" + v%d.replace(\"'\", \"''\") + \"'\");", i, i);
+                    break;
+                case CONTEXT:
+                    line("                    result.addAll(write%d.asSQL(x.%s));", i, property.getter);
+                    break;
+                default:
+                    line("                    result.add(%s.toString(x.%s));", kind.wrapper, property.getter);
+                    break;
+            }
+        }
+        line("                    return result;");
+        line("                }");
+        line("            };");
+        line("        }");
+        line("    };");
+    }
+}
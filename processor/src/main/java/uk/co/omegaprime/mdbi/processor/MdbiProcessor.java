@@ -0,0 +1,301 @@
+package uk.co.omegaprime.mdbi.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates reflection-free {@code Read} and {@code Write} implementations for classes annotated with
+ * {@code @MdbiTuple} or {@code @MdbiBean}.
+ * <p>
+ * To use it, just put this module on the annotation processor path of the compiler. For each annotated class
+ * {@code Outer.Inner} we generate a class {@code Outer_Inner_Mdbi} in the same package.
+ * <p>
+ * We also write {@value #NATIVE_IMAGE_CONFIG}, which tells GraalVM {@code native-image} about the reflection that
+ * {@code Context.Builder.registerGenerated} (and the reflective {@code Reads}/{@code Writes}) will do on these classes.
+ */
+@SupportedAnnotationTypes({MdbiProcessor.TUPLE, MdbiProcessor.BEAN})
+public class MdbiProcessor extends AbstractProcessor {
+    static final String TUPLE = "uk.co.omegaprime.mdbi.MdbiTuple";
+    static final String BEAN  = "uk.co.omegaprime.mdbi.MdbiBean";
+    static final String NATIVE_IMAGE_CONFIG = "META-INF/native-image/mdbi-generated/reflect-config.json";
+
+    // Binary names of the annotated classes, and of the classes we generated for them, in the order we saw them
+    private final Map<String, String> generatedClasses = new LinkedHashMap<>();
+
+    // Thrown to report a problem with a particular element to the user as a compile error
+    private static class InvalidElementException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public final transient Element element;
+
+        public InvalidElementException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            final boolean bean = annotation.getQualifiedName().contentEquals(BEAN);
+            for (TypeElement element : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                try {
+                    final AnnotationMirror mirror = findAnnotation(element, annotation);
+                    final Mapping mapping = bean ? beanMapping(element, mirror) : tupleMapping(element, mirror);
+                    write(mapping);
+                } catch (InvalidElementException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write MDBI mapper: " + e, element);
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !generatedClasses.isEmpty()) {
+            try {
+                writeNativeImageConfig();
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + NATIVE_IMAGE_CONFIG + ": " + e);
+            }
+        }
+
+        return true;
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, TypeElement annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().equals(annotation)) {
+                return mirror;
+            }
+        }
+
+        throw new IllegalStateException("Element " + element + " is not annotated with " + annotation);
+    }
+
+    private Object annotationValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals(name)) {
+                return e.getValue().getValue();
+            }
+        }
+
+        throw new IllegalStateException("Annotation " + mirror + " has no element " + name);
+    }
+
+    // One column-group of the mapped class: read into a constructor argument or setter, and written from a field or getter
+    static class Property {
+        public final TypeMirror type;
+        public final String setter;    // Null for tuples, which pass the values to the constructor instead
+        public final String getter;    // Expression relative to "x". Null if we aren't generating a Write
+
+        public Property(TypeMirror type, String setter, String getter) {
+            this.type = type;
+            this.setter = setter;
+            this.getter = getter;
+        }
+    }
+
+    static class Mapping {
+        public final TypeElement element;
+        public final boolean bean;
+        public final boolean write;
+        public final List<Property> properties;
+
+        public Mapping(TypeElement element, boolean bean, boolean write, List<Property> properties) {
+            this.element = element;
+            this.bean = bean;
+            this.write = write;
+            this.properties = properties;
+        }
+    }
+
+    private void checkAccessible(TypeElement element) {
+        if (!element.getTypeParameters().isEmpty()) {
+            throw new InvalidElementException("MDBI cannot generate mappers for generic classes", element);
+        }
+
+        for (Element e = element; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new InvalidElementException("MDBI cannot generate mappers for private classes: " + e, element);
+            }
+            if (e.getEnclosingElement() instanceof TypeElement && !e.getModifiers().contains(Modifier.STATIC)) {
+                throw new InvalidElementException("MDBI cannot generate mappers for inner classes: make " + e + " static", element);
+            }
+        }
+
+        if (element.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new InvalidElementException("MDBI cannot generate mappers for abstract classes", element);
+        }
+    }
+
+    private Mapping tupleMapping(TypeElement element, AnnotationMirror mirror) {
+        checkAccessible(element);
+        final boolean write = (Boolean)annotationValue(mirror, "write");
+
+        // Like Reflection.getUniqueConstructor, except that since our generated code lives in the same package
+        // we can fall back on a package-private constructor if there is no public one
+        final List<ExecutableElement> constructors = new ArrayList<>();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)) constructors.add(constructor);
+        }
+        if (constructors.isEmpty()) {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+                if (!constructor.getModifiers().contains(Modifier.PRIVATE)) constructors.add(constructor);
+            }
+        }
+
+        if (constructors.size() != 1) {
+            throw new InvalidElementException((constructors.isEmpty() ? "No" : "Ambiguous") + " accessible constructor for @MdbiTuple class", element);
+        }
+
+        final List<Property> properties = new ArrayList<>();
+        for (VariableElement parameter : constructors.get(0).getParameters()) {
+            final String getter = write ? findTupleGetter(element, parameter) : null;
+            properties.add(new Property(parameter.asType(), null, getter));
+        }
+
+        return new Mapping(element, false, write, properties);
+    }
+
+    private String findTupleGetter(TypeElement element, VariableElement parameter) {
+        final String name = parameter.getSimpleName().toString();
+        final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Element member : processingEnv.getElementUtils().getAllMembers(element)) {
+            final Set<Modifier> modifiers = member.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) continue;
+
+            if (member.getKind() == ElementKind.FIELD && member.getSimpleName().contentEquals(name) &&
+                    processingEnv.getTypeUtils().isSameType(member.asType(), parameter.asType())) {
+                return name;
+            } else if (member.getKind() == ElementKind.METHOD) {
+                final ExecutableElement method = (ExecutableElement)member;
+                final String methodName = method.getSimpleName().toString();
+                if (method.getParameters().isEmpty() &&
+                        (methodName.equals(name) || methodName.equals("get" + capitalized) || methodName.equals("is" + capitalized)) &&
+                        processingEnv.getTypeUtils().isSameType(method.getReturnType(), parameter.asType())) {
+                    return methodName + "()";
+                }
+            }
+        }
+
+        throw new InvalidElementException("Constructor parameter " + name + " has no matching field or getter, " +
+                                          "so we can't generate a Write: add one, or use @MdbiTuple(write = false)", element);
+    }
+
+    private Mapping beanMapping(TypeElement element, AnnotationMirror mirror) {
+        checkAccessible(element);
+
+        boolean hasConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+            hasConstructor |= constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE);
+        }
+        if (!hasConstructor) {
+            throw new InvalidElementException("@MdbiBean class must have an accessible no-args constructor", element);
+        }
+
+        // Same naming rules as Reflection.lookupBeanSetters/lookupBeanGetters
+        final Map<String, ExecutableElement> setters = new HashMap<>(), getters = new HashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(element))) {
+            final Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)) continue;
+
+            final String name = method.getSimpleName().toString();
+            if (name.startsWith("set") && method.getParameters().size() == 1) {
+                if (setters.put(name.substring(3), method) != null) {
+                    throw new InvalidElementException("Class has multiple 1-arg methods called " + name, element);
+                }
+            } else if (method.getParameters().isEmpty() && (name.startsWith("get") || name.startsWith("is"))) {
+                final String property = name.substring(name.startsWith("is") ? 2 : 3);
+                if (getters.put(property, method) != null) {
+                    throw new InvalidElementException("Class has multiple getters for property " + property, element);
+                }
+            }
+        }
+
+        final List<String> names = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        final List<? extends AnnotationValue> values = (List<? extends AnnotationValue>)annotationValue(mirror, "value");
+        for (AnnotationValue value : values) {
+            names.add((String)value.getValue());
+        }
+        if (names.isEmpty()) {
+            for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+                final String property = method.getSimpleName().toString().substring(Math.min(3, method.getSimpleName().length()));
+                if (setters.get(property) == method && getters.containsKey(property)) {
+                    names.add(property);
+                }
+            }
+        }
+
+        final List<Property> properties = new ArrayList<>();
+        for (String name : names) {
+            final ExecutableElement setter = setters.get(name), getter = getters.get(name);
+            if (setter == null) throw new InvalidElementException("Class doesn't have a setter for " + name, element);
+            if (getter == null) throw new InvalidElementException("Class doesn't have a getter for " + name, element);
+
+            final TypeMirror type = setter.getParameters().get(0).asType();
+            if (!processingEnv.getTypeUtils().isSameType(type, getter.getReturnType())) {
+                throw new InvalidElementException("Getter and setter for " + name + " disagree about its type", element);
+            }
+
+            properties.add(new Property(type, setter.getSimpleName().toString(), getter.getSimpleName() + "()"));
+        }
+
+        return new Mapping(element, true, true, properties);
+    }
+
+    static String generatedSimpleName(TypeElement element) {
+        String name = element.getSimpleName().toString();
+        for (Element e = element.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+            name = e.getSimpleName() + "_" + name;
+        }
+        return name + "_Mdbi";
+    }
+
+    private void write(Mapping mapping) throws IOException {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(mapping.element).getQualifiedName().toString();
+        final String simpleName = generatedSimpleName(mapping.element);
+        final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, mapping.element);
+        try (Writer writer = file.openWriter()) {
+            writer.write(new MapperSource(processingEnv.getTypeUtils(), mapping, packageName, simpleName).toString());
+        }
+
+        generatedClasses.put(processingEnv.getElementUtils().getBinaryName(mapping.element).toString(), qualifiedName);
+    }
+
+    // The generated classes need their register method to be visible to Class.forName/getMethod, and we expose the
+    // public members of the annotated classes too so that they can still be used with e.g. Reads.tuple
+    private void writeNativeImageConfig() throws IOException {
+        final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", NATIVE_IMAGE_CONFIG);
+        try (Writer writer = file.openWriter()) {
+            writer.write("[\n");
+            boolean first = true;
+            for (Map.Entry<String, String> e : generatedClasses.entrySet()) {
+                writer.write(first ? "" : ",\n");
+                writer.write("  {\"name\": \"" + e.getValue() + "\", \"methods\": [{\"name\": \"register\", \"parameterTypes\": [\"uk.co.omegaprime.mdbi.Context$Builder\"]}]},\n");
+                writer.write("  {\"name\": \"" + e.getKey() + "\", \"allPublicConstructors\": true, \"allPublicMethods\": true, \"allPublicFields\": true}");
+                first = false;
+            }
+            writer.write("\n]\n");
+        }
+    }
+}
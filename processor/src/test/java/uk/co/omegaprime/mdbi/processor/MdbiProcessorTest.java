@@ -0,0 +1,190 @@
+package uk.co.omegaprime.mdbi.processor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.co.omegaprime.mdbi.Context;
+import uk.co.omegaprime.mdbi.MDBI;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static uk.co.omegaprime.mdbi.MDBI.$;
+import static uk.co.omegaprime.mdbi.MDBI.sql;
+
+public class MdbiProcessorTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Connection conn;
+
+    @Before
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    private static final String PERSON =
+            "package gen;\n" +
+            "import java.time.LocalDate;\n" +
+            "@uk.co.omegaprime.mdbi.MdbiTuple\n" +
+            "public class Person {\n" +
+            "    public final int id;\n" +
+            "    private final String name;\n" +
+            "    private final double score;\n" +
+            "    private final LocalDate born;\n" +
+            "    public Person(int id, String name, double score, LocalDate born) { this.id = id; this.name = name; this.score = score; this.born = born; }\n" +
+            "    public String getName() { return name; }\n" +
+            "    public double score() { return score; }\n" +
+            "    public LocalDate getBorn() { return born; }\n" +
+            "    @Override public String toString() { return id + \"/\" + name + \"/\" + score + \"/\" + born; }\n" +
+            "}\n";
+
+    private static final String OUTER =
+            "package gen;\n" +
+            "public class Outer {\n" +
+            "    @uk.co.omegaprime.mdbi.MdbiBean({\"Id\", \"Name\"})\n" +
+            "    public static class Bean {\n" +
+            "        private long id;\n" +
+            "        private String name;\n" +
+            "        public long getId() { return id; }\n" +
+            "        public void setId(long id) { this.id = id; }\n" +
+            "        public String getName() { return name; }\n" +
+            "        public void setName(String name) { this.name = name; }\n" +
+            "        @Override public String toString() { return id + \"/\" + name; }\n" +
+            "    }\n" +
+            "}\n";
+
+    private static class Compilation {
+        public final boolean success;
+        public final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+        public final File output;
+
+        public Compilation(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics, File output) {
+            this.success = success;
+            this.diagnostics = diagnostics;
+            this.output = output;
+        }
+
+        public ClassLoader classLoader() throws IOException {
+            return new URLClassLoader(new URL[] { output.toURI().toURL() }, MdbiProcessorTest.class.getClassLoader());
+        }
+    }
+
+    private Compilation compile(String... sources) throws IOException {
+        final File sourceDir = temporaryFolder.newFolder(), outputDir = temporaryFolder.newFolder();
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            final List<File> files = new java.util.ArrayList<>();
+            for (String source : sources) {
+                final String className = source.substring(source.indexOf("public class ") + "public class ".length()).split("[ {]")[0];
+                final Path path = sourceDir.toPath().resolve("gen").resolve(className + ".java");
+                Files.createDirectories(path.getParent());
+                Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+                files.add(path.toFile());
+            }
+
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", outputDir.toString(), "-s", outputDir.toString()),
+                    null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new MdbiProcessor()));
+            return new Compilation(task.call(), diagnostics.getDiagnostics(), outputDir);
+        }
+    }
+
+    private static String errors(Compilation compilation) {
+        return compilation.diagnostics.stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR).map(d -> d.getMessage(null)).collect(Collectors.joining("\n"));
+    }
+
+    @Test
+    public void generatedTupleAndBeanMappersRoundTrip() throws Exception {
+        final Compilation compilation = compile(PERSON, OUTER);
+        assertTrue(errors(compilation), compilation.success);
+
+        final ClassLoader loader = compilation.classLoader();
+        final Class<?> person = loader.loadClass("gen.Person"), bean = loader.loadClass("gen.Outer$Bean");
+
+        // One via the generated register method directly, one by name
+        final Context.Builder builder = Context.Builder.createDefault();
+        loader.loadClass("gen.Person_Mdbi").getMethod("register", Context.Builder.class).invoke(null, builder);
+        builder.registerGenerated(bean);
+        final MDBI m = MDBI.of(builder.build(), conn);
+
+        m.execute(sql("create table person (id int, name text, score double, born date)"));
+        final Object max = person.getConstructor(int.class, String.class, double.class, java.time.LocalDate.class)
+                                 .newInstance(1, "Max", Double.NaN, java.time.LocalDate.of(2001, 2, 3));
+        m.execute(sql("insert into person values (", $(max), ")"));
+        assertEquals(Collections.singletonList("1/Max/NaN/2001-02-03"),
+                     m.queryList(sql("select * from person"), person).stream().map(Object::toString).collect(Collectors.toList()));
+
+        final Object b = bean.newInstance();
+        bean.getMethod("setId", long.class).invoke(b, 10000000000L);
+        bean.getMethod("setName", String.class).invoke(b, "O'Brien");
+        m.execute(sql("create table bean (id int, name text)"));
+        m.execute(sql("insert into bean values (", $(b), ")"));
+        m.withPrepared(false).execute(sql("insert into bean values (", $(b), ")"));
+        assertEquals(Arrays.asList("10000000000/O'Brien", "10000000000/O'Brien"),
+                     m.queryList(sql("select * from bean"), bean).stream().map(Object::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void writesNativeImageConfig() throws IOException {
+        final Compilation compilation = compile(PERSON, OUTER);
+        assertTrue(errors(compilation), compilation.success);
+
+        final String config = new String(Files.readAllBytes(compilation.output.toPath().resolve(MdbiProcessor.NATIVE_IMAGE_CONFIG)), StandardCharsets.UTF_8);
+        assertTrue(config, config.contains("{\"name\": \"gen.Person_Mdbi\", \"methods\": [{\"name\": \"register\""));
+        assertTrue(config, config.contains("{\"name\": \"gen.Outer$Bean\", \"allPublicConstructors\": true"));
+        assertTrue(config, config.contains("gen.Outer_Bean_Mdbi"));
+    }
+
+    @Test
+    public void reportsMissingGetter() throws IOException {
+        final Compilation compilation = compile(
+                "package gen;\n" +
+                "@uk.co.omegaprime.mdbi.MdbiTuple\n" +
+                "public class NoGetter {\n" +
+                "    public NoGetter(int hidden) {}\n" +
+                "}\n");
+        assertFalse(compilation.success);
+        assertTrue(errors(compilation), errors(compilation).contains("hidden has no matching field or getter"));
+    }
+
+    @Test
+    public void readOnlyTuple() throws Exception {
+        final Compilation compilation = compile(
+                "package gen;\n" +
+                "@uk.co.omegaprime.mdbi.MdbiTuple(write = false)\n" +
+                "public class ReadOnly {\n" +
+                "    private final String s;\n" +
+                "    public ReadOnly(int hidden, String s) { this.s = hidden + s; }\n" +
+                "    @Override public String toString() { return s; }\n" +
+                "}\n");
+        assertTrue(errors(compilation), compilation.success);
+
+        final ClassLoader loader = compilation.classLoader();
+        final MDBI m = MDBI.of(Context.Builder.createDefault().registerGenerated(loader.loadClass("gen.ReadOnly")).build(), conn);
+        assertEquals("1x", m.queryFirst(sql("select 1, 'x'"), loader.loadClass("gen.ReadOnly")).toString());
+    }
+}
@@ -1,8 +1,17 @@
 package uk.co.omegaprime.mdbi;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSetMetaData;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /** Functions for creating useful instances of {@link BatchRead}. */
 public class BatchReads {
@@ -34,20 +43,119 @@ public class BatchReads {
         return (ctxt, rs) -> rs.next() ? read.bind(ctxt).get(rs, IndexRef.create()) : null;
     }
 
+    /**
+     * Return the {@code ResultSet} as a mutable list. The list is presized to (a capped running average of) the number of rows
+     * that this {@code BatchRead} returned the previous times it was used, so it pays to reuse instances for queries that you run
+     * repeatedly. Methods like {@link MDBI#queryList(SQL, Class)} create a new instance each time, so never learn anything.
+     */
     public static <T> BatchRead<List<T>> asList(Class<T> klass) {
         return asList(new ContextRead<>(klass));
     }
 
+    /** As {@link #asList(Class)} */
     public static <T> BatchRead<List<T>> asList(Read<T> read) {
-        return new CollectionBatchRead<>(ArrayList::new, read);
+        return asList(read, 0);
     }
 
+    /** As {@link #asList(Class)}, but presizing the list for {@code expectedSize} rows (or learning the size if it is 0) */
+    public static <T> BatchRead<List<T>> asList(Read<T> read, int expectedSize) {
+        return new CollectionBatchRead<>(ArrayList::new, Function.identity(), read, expectedSize);
+    }
+
+    /** Return the {@code ResultSet} as a mutable set, presized as described in {@link #asList(Class)} */
     public static <T> BatchRead<Set<T>> asSet(Class<T> klass) {
         return asSet(new ContextRead<>(klass));
     }
 
+    /** As {@link #asSet(Class)} */
     public static <T> BatchRead<Set<T>> asSet(Read<T> read) {
-        return new CollectionBatchRead<>(LinkedHashSet::new, read);
+        return asSet(read, 0);
+    }
+
+    /** As {@link #asSet(Class)}, but presizing the set for {@code expectedSize} rows (or learning the size if it is 0) */
+    public static <T> BatchRead<Set<T>> asSet(Read<T> read, int expectedSize) {
+        return new CollectionBatchRead<>(n -> new LinkedHashSet<>(CollectionBatchRead.hashCapacity(n)), Function.identity(), read, expectedSize);
+    }
+
+    /** Return the {@code ResultSet} as an immutable list backed by an array of exactly the right size */
+    public static <T> BatchRead<List<T>> asImmutableList(Class<T> klass) {
+        return asImmutableList(new ContextRead<>(klass));
+    }
+
+    /** As {@link #asImmutableList(Class)} */
+    public static <T> BatchRead<List<T>> asImmutableList(Read<T> read) {
+        return asImmutableList(read, 0);
+    }
+
+    /** As {@link #asImmutableList(Class)}, but presizing the intermediate buffer for {@code expectedSize} rows (or learning the size if it is 0) */
+    @SuppressWarnings("unchecked")
+    public static <T> BatchRead<List<T>> asImmutableList(Read<T> read, int expectedSize) {
+        return new CollectionBatchRead<>(ArrayList::new, (ArrayList<T> xs) -> Collections.unmodifiableList(Arrays.asList((T[])xs.toArray())), read, expectedSize);
+    }
+
+    /**
+     * Return the {@code ResultSet} as an immutable set that iterates in the order that the rows arrived. This is stored in
+     * a couple of arrays rather than a {@code LinkedHashSet}, and so uses a fraction of the memory.
+     */
+    public static <T> BatchRead<Set<T>> asImmutableSet(Class<T> klass) {
+        return asImmutableSet(new ContextRead<>(klass));
+    }
+
+    /** As {@link #asImmutableSet(Class)} */
+    public static <T> BatchRead<Set<T>> asImmutableSet(Read<T> read) {
+        return asImmutableSet(read, 0);
+    }
+
+    /** As {@link #asImmutableSet(Class)}, but presizing the intermediate buffer for {@code expectedSize} rows (or learning the size if it is 0) */
+    public static <T> BatchRead<Set<T>> asImmutableSet(Read<T> read, int expectedSize) {
+        return new CollectionBatchRead<>(ArrayList::new, CompactHashSet::copyOf, read, expectedSize);
+    }
+
+    /**
+     * As {@link #asList(Class)}, but decoding the rows on the common {@code ForkJoinPool} while this thread carries on pulling rows
+     * from the database. Worthwhile when the {@code Read} is expensive (e.g. it parses JSON or builds a complex object) and the
+     * result is large.
+     * <p>
+     * The rows are first copied out of the {@code ResultSet} with {@code getObject}, so the {@code Read} sees only the standard
+     * JDBC conversions between the types that returns, rather than anything driver-specific. LOBs and arrays are copied into
+     * memory at the same time, since the driver's handles on them usually stop working once the cursor moves on, but
+     * {@code getNClob} and {@code getSQLXML} are unavailable to the {@code Read}.
+     */
+    public static <T> BatchRead<List<T>> asListParallel(Class<T> klass) {
+        return asListParallel(new ContextRead<>(klass));
+    }
+
+    /** As {@link #asListParallel(Class)} */
+    public static <T> BatchRead<List<T>> asListParallel(Read<T> read) {
+        return new ParallelListBatchRead<>(read, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_BATCH_SIZE, 2 * ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /** As {@link #asListParallel(Class)}, but decoding batches of {@code batchSize} rows on the given {@code Executor} */
+    public static <T> BatchRead<List<T>> asListParallel(Read<T> read, Executor executor, int batchSize) {
+        return new ParallelListBatchRead<>(read, executor, batchSize, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    private static final int DEFAULT_PARALLEL_BATCH_SIZE = 1024;
+
+    /**
+     * Return the {@code ResultSet} as a {@code Stream} that decodes the rows lazily. The rows are copied out of the
+     * {@code ResultSet} before it is closed, as in {@link #asListParallel(Class)}, and the stream splits efficiently,
+     * so calling {@link Stream#parallel()} on it decodes the rows on several threads.
+     * <p>
+     * Any {@code SQLException} thrown while decoding is wrapped in an {@code UndeclaredThrowableException}.
+     */
+    public static <T> BatchRead<Stream<T>> asStream(Class<T> klass) {
+        return asStream(new ContextRead<>(klass));
+    }
+
+    /** As {@link #asStream(Class)} */
+    public static <T> BatchRead<Stream<T>> asStream(Read<T> read) {
+        return (ctxt, rs) -> {
+            final ResultSetMetaData metaData = new CopiedResultSetMetaData(rs.getMetaData());
+            final List<Object[]> rows = new ArrayList<>();
+            DecodingSpliterator.buffer(rs, metaData.getColumnCount(), rows, Integer.MAX_VALUE);
+            return StreamSupport.stream(new DecodingSpliterator<>(ctxt, read, rs, metaData, rows), false);
+        };
     }
 
     /** Return the {@code ResultSet} as a map, failing if any key occurs more than once */
@@ -64,6 +172,106 @@ public class BatchReads {
         throw new IllegalArgumentException("Key " + key + " occurs more than once in result, associated with both " + oldValue + " and " + newValue);
     }
 
+    /** Return the {@code ResultSet} as a map keyed by the {@code long} in the first column, failing if any key occurs more than once */
+    public static <V> BatchRead<LongObjectMap<V>> asLongMap(Class<V> valueClass) {
+        return asLongMap(Reads.useContext(long.class), new ContextRead<>(valueClass));
+    }
+
+    /** Return the {@code ResultSet} as a map with unboxed {@code long} keys, failing if any key occurs more than once */
+    public static <V> BatchRead<LongObjectMap<V>> asLongMap(Read<Long> readKey, Read<V> readValue) {
+        return (ctxt, rs) -> {
+            final PrimitiveBoundRead.OfLong boundReadKey = PrimitiveBoundRead.ofLong(readKey.bind(ctxt));
+            final BoundRead<? extends V> boundReadValue = readValue.bind(ctxt);
+            final LongObjectMap<V> result = LongObjectMap.create();
+            final IndexRef ix = IndexRef.create();
+            while (rs.next()) {
+                final long key = boundReadKey.getLong(rs, ix.reset());
+                result.merge(key, boundReadValue.get(rs, ix), BatchReads::appendFail);
+            }
+            return result;
+        };
+    }
+
+    /** Return the {@code ResultSet} as a map keyed by the {@code int} in the first column, failing if any key occurs more than once */
+    public static <V> BatchRead<IntObjectMap<V>> asIntMap(Class<V> valueClass) {
+        return asIntMap(Reads.useContext(int.class), new ContextRead<>(valueClass));
+    }
+
+    /** Return the {@code ResultSet} as a map with unboxed {@code int} keys, failing if any key occurs more than once */
+    public static <V> BatchRead<IntObjectMap<V>> asIntMap(Read<Integer> readKey, Read<V> readValue) {
+        return (ctxt, rs) -> {
+            final PrimitiveBoundRead.OfInt boundReadKey = PrimitiveBoundRead.ofInt(readKey.bind(ctxt));
+            final BoundRead<? extends V> boundReadValue = readValue.bind(ctxt);
+            final IntObjectMap<V> result = IntObjectMap.create();
+            final IndexRef ix = IndexRef.create();
+            while (rs.next()) {
+                final int key = boundReadKey.getInt(rs, ix.reset());
+                result.merge(key, boundReadValue.get(rs, ix), BatchReads::appendFail);
+            }
+            return result;
+        };
+    }
+
+    /** Return the {@code ResultSet} as a map keyed by the {@code long} in the first column, allowing multiple values for any given key */
+    public static <V> BatchRead<LongObjectMap<List<V>>> asLongMultiMap(Class<V> valueClass) {
+        return asLongMultiMap(Reads.useContext(long.class), new ContextRead<>(valueClass));
+    }
+
+    /** Return the {@code ResultSet} as a map with unboxed {@code long} keys, allowing multiple values for any given key */
+    public static <V> BatchRead<LongObjectMap<List<V>>> asLongMultiMap(Read<Long> readKey, Read<V> readValue) {
+        return (ctxt, rs) -> {
+            final PrimitiveBoundRead.OfLong boundReadKey = PrimitiveBoundRead.ofLong(readKey.bind(ctxt));
+            final BoundRead<? extends V> boundReadValue = readValue.bind(ctxt);
+            final LongObjectMap<List<V>> result = LongObjectMap.create();
+            final IndexRef ix = IndexRef.create();
+            while (rs.next()) {
+                final long key = boundReadKey.getLong(rs, ix.reset());
+                result.computeIfAbsent(key, _key -> new ArrayList<>()).add(boundReadValue.get(rs, ix));
+            }
+            return result;
+        };
+    }
+
+    /** Return the two-column {@code ResultSet} as a map from {@code long} to {@code double}, failing if any key occurs more than once */
+    public static BatchRead<LongDoubleMap> asLongDoubleMap() {
+        return asLongDoubleMap(Reads.useContext(long.class), Reads.useContext(double.class));
+    }
+
+    /** Return the {@code ResultSet} as a map from {@code long} to {@code double}, failing if any key occurs more than once */
+    public static BatchRead<LongDoubleMap> asLongDoubleMap(Read<Long> readKey, Read<Double> readValue) {
+        return (ctxt, rs) -> {
+            final PrimitiveBoundRead.OfLong boundReadKey = PrimitiveBoundRead.ofLong(readKey.bind(ctxt));
+            final PrimitiveBoundRead.OfDouble boundReadValue = PrimitiveBoundRead.ofDouble(readValue.bind(ctxt));
+            final LongDoubleMap result = LongDoubleMap.create();
+            final IndexRef ix = IndexRef.create();
+            while (rs.next()) {
+                final long key = boundReadKey.getLong(rs, ix.reset());
+                result.merge(key, boundReadValue.getDouble(rs, ix), BatchReads::appendFail);
+            }
+            return result;
+        };
+    }
+
+    /** Return the two-column {@code ResultSet} as a map from {@code long} to {@code long}, failing if any key occurs more than once */
+    public static BatchRead<LongLongMap> asLongLongMap() {
+        return asLongLongMap(Reads.useContext(long.class), Reads.useContext(long.class));
+    }
+
+    /** Return the {@code ResultSet} as a map from {@code long} to {@code long}, failing if any key occurs more than once */
+    public static BatchRead<LongLongMap> asLongLongMap(Read<Long> readKey, Read<Long> readValue) {
+        return (ctxt, rs) -> {
+            final PrimitiveBoundRead.OfLong boundReadKey = PrimitiveBoundRead.ofLong(readKey.bind(ctxt));
+            final PrimitiveBoundRead.OfLong boundReadValue = PrimitiveBoundRead.ofLong(readValue.bind(ctxt));
+            final LongLongMap result = LongLongMap.create();
+            final IndexRef ix = IndexRef.create();
+            while (rs.next()) {
+                final long key = boundReadKey.getLong(rs, ix.reset());
+                result.merge(key, boundReadValue.getLong(rs, ix), BatchReads::appendFail);
+            }
+            return result;
+        };
+    }
+
     /** Return the {@code ResultSet} as a map, using the first value encountered for any given key */
     public static <K, V> BatchRead<Map<K, V>> asMapFirst(Class<K> keyClass, Class<V> valueClass) {
         return asMapFirst(new ContextRead<>(keyClass), new ContextRead<>(valueClass));
@@ -107,6 +315,71 @@ public class BatchReads {
         return new MapBatchRead<>(TreeMap::new, BatchReads::appendListHack, readKey, (Read<List<V>>)(Read)Reads.map(List.class, readValue, (V v) -> new ArrayList<V>(Collections.singletonList(v))));
     }
 
+    /**
+     * Return the {@code ResultSet} as an immutable {@code NavigableMap} in natural key order, failing if the keys do not arrive in strictly
+     * ascending order. Use this rather than {@link #asMap(Read, Read)} when your query already has an {@code ORDER BY} on the key:
+     * the result is built in a single pass over parallel sorted arrays, and is much more compact than a {@code TreeMap}.
+     * <p>
+     * Beware that the database's idea of ordering (e.g. string collation) must agree with the Java one.
+     */
+    public static <K, V> BatchRead<NavigableMap<K, V>> asSortedMap(Class<K> keyClass, Class<V> valueClass) {
+        return asSortedMap(new ContextRead<>(keyClass), new ContextRead<>(valueClass));
+    }
+
+    /** As {@link #asSortedMap(Class, Class)} */
+    public static <K, V> BatchRead<NavigableMap<K, V>> asSortedMap(Read<K> readKey, Read<V> readValue) {
+        return asSortedMap(readKey, readValue, null);
+    }
+
+    /** As {@link #asSortedMap(Class, Class)}, but with keys ordered by the given {@code Comparator}, or naturally if it is null */
+    public static <K, V> BatchRead<NavigableMap<K, V>> asSortedMap(Read<K> readKey, Read<V> readValue, @Nullable Comparator<? super K> comparator) {
+        return (ctxt, rs) -> {
+            final BoundRead<? extends K> boundReadKey = readKey.bind(ctxt);
+            final BoundRead<? extends V> boundReadValue = readValue.bind(ctxt);
+            final SortedArrayMap.Builder<K, V> result = new SortedArrayMap.Builder<>(comparator);
+            final IndexRef ix = IndexRef.create();
+            while (rs.next()) {
+                final K key = boundReadKey.get(rs, ix.reset());
+                final V value = boundReadValue.get(rs, ix);
+                if (result.isLastKey(key)) appendFail(key, result.lastValue(), value);
+                result.add(key, value);
+            }
+            return result.build();
+        };
+    }
+
+    /** As {@link #asSortedMap(Class, Class)}, but allowing multiple values for any given key. Keys must arrive in ascending order. */
+    public static <K, V> BatchRead<NavigableMap<K, List<V>>> asSortedMultiMap(Class<K> keyClass, Class<V> valueClass) {
+        return asSortedMultiMap(new ContextRead<>(keyClass), new ContextRead<>(valueClass));
+    }
+
+    /** As {@link #asSortedMultiMap(Class, Class)} */
+    public static <K, V> BatchRead<NavigableMap<K, List<V>>> asSortedMultiMap(Read<K> readKey, Read<V> readValue) {
+        return asSortedMultiMap(readKey, readValue, null);
+    }
+
+    /** As {@link #asSortedMultiMap(Class, Class)}, but with keys ordered by the given {@code Comparator}, or naturally if it is null */
+    public static <K, V> BatchRead<NavigableMap<K, List<V>>> asSortedMultiMap(Read<K> readKey, Read<V> readValue, @Nullable Comparator<? super K> comparator) {
+        return (ctxt, rs) -> {
+            final BoundRead<? extends K> boundReadKey = readKey.bind(ctxt);
+            final BoundRead<? extends V> boundReadValue = readValue.bind(ctxt);
+            final SortedArrayMap.Builder<K, List<V>> result = new SortedArrayMap.Builder<>(comparator);
+            final IndexRef ix = IndexRef.create();
+            while (rs.next()) {
+                final K key = boundReadKey.get(rs, ix.reset());
+                final V value = boundReadValue.get(rs, ix);
+                if (result.isLastKey(key)) {
+                    result.lastValue().add(value);
+                } else {
+                    final List<V> values = new ArrayList<>();
+                    values.add(value);
+                    result.add(key, values);
+                }
+            }
+            return result.build();
+        };
+    }
+
     // Bit dodgy because correctness depends crucially on how we are called
     private static <K, V> List<V> appendListHack(K key, List<V> od, List<V> nw) {
         if (nw.size() != 1) throw new IllegalStateException("This really shouldn't happen..");
@@ -127,6 +400,8 @@ public class BatchReads {
      * is equivalent to {@code segmented(key, asList(value)} in the case where the {@code ResultSet} is sorted by the key columns.
      * <p>
      * If a key occurs non-contiguously then {@code IllegalArgumentException} will be thrown.
+     * <p>
+     * The {@code ResultSet} given to {@code readValue} is forward-only.
      */
     public static <K, V> BatchRead<Map<K, V>> asMap(Read<K> readKey, BatchRead<V> readValue) {
         return new SegmentedMapBatchRead<>(LinkedHashMap::new, BatchReads::appendFail, readKey, readValue);
@@ -163,6 +438,95 @@ public class BatchReads {
         return new SegmentedMapBatchRead<>(LinkedHashMap::new, BatchReads::appendListHack, readKey, (BatchRead<List<V>>)(BatchRead)BatchReads.map(readValue, (V v) -> new ArrayList<V>(Collections.singletonList(v))));
     }
 
+    /** As {@link #forEachGroup(Read, BatchRead, BiConsumer)} but simply reads the key using the {@code Context}-default read instance for the class */
+    public static <K, V> BatchRead<Long> forEachGroup(Class<K> readKey, BatchRead<V> readValue, BiConsumer<? super K, ? super V> action) {
+        return forEachGroup(Reads.useContext(readKey), readValue, action);
+    }
+
+    /**
+     * Splits the {@code ResultSet} into contiguous runs with the same key, just like {@link #asMap(Read, BatchRead)}, but
+     * hands each key and value to the action as soon as the run has been read rather than accumulating a {@code Map}.
+     * Returns the number of runs.
+     * <p>
+     * If a key occurs non-contiguously, the action will be called once for each run.
+     */
+    public static <K, V> BatchRead<Long> forEachGroup(Read<K> readKey, BatchRead<V> readValue, BiConsumer<? super K, ? super V> action) {
+        return new ForEachGroupBatchRead<>(readKey, readValue, action, null, 1);
+    }
+
+    /**
+     * As {@link #forEachGroup(Read, BatchRead, BiConsumer)}, but runs the action on the supplied {@code Executor}, which
+     * lets you process groups in parallel while the rest of the result is still being read. At most {@code maxInFlight}
+     * groups may be waiting for or undergoing processing at once: after that, reading pauses until one completes.
+     * <p>
+     * Returns once every action has completed. If any action fails we stop reading, and rethrow the first failure once
+     * the remaining actions have completed.
+     */
+    public static <K, V> BatchRead<Long> forEachGroup(Read<K> readKey, BatchRead<V> readValue, BiConsumer<? super K, ? super V> action,
+                                                      Executor executor, int maxInFlight) {
+        return new ForEachGroupBatchRead<>(readKey, readValue, action, Objects.requireNonNull(executor), maxInFlight);
+    }
+
+    /** The default limit on the memory used by {@link #asMapUnordered(Read, BatchRead)} before it spills rows to disk */
+    public static final long DEFAULT_UNORDERED_MAX_BUFFERED_BYTES = 64L * 1024 * 1024;
+
+    /** As {@link #asMapUnordered(Read, BatchRead)} but simply reads the key using the {@code Context}-default read instance for the class */
+    public static <K, V> BatchRead<Map<K, V>> asMapUnordered(Class<K> readKey, BatchRead<V> readValue) {
+        return asMapUnordered(Reads.useContext(readKey), readValue);
+    }
+
+    /** As {@link #asMapUnordered(Read, BatchRead, long)}, buffering at most {@link #DEFAULT_UNORDERED_MAX_BUFFERED_BYTES} */
+    public static <K, V> BatchRead<Map<K, V>> asMapUnordered(Read<K> readKey, BatchRead<V> readValue) {
+        return asMapUnordered(readKey, readValue, DEFAULT_UNORDERED_MAX_BUFFERED_BYTES);
+    }
+
+    /**
+     * As {@link #asMap(Read, BatchRead)}, but the rows for a key needn't be contiguous, so you don't need to {@code ORDER BY}
+     * the key. Each key's rows are buffered and then read with {@code readValue} once the whole {@code ResultSet} has been seen.
+     * <p>
+     * Rows are buffered using {@code ResultSet.getObject}, so {@code readValue} only sees the standard JDBC conversions
+     * between the buffered values, not any conversions specific to your driver. LOBs and arrays are copied into memory as
+     * they are buffered, since the driver's handles on them usually stop working once the cursor moves on: {@code getBlob},
+     * {@code getClob} and {@code getArray} return those copies, but {@code getNClob} and {@code getSQLXML} are unavailable
+     * ({@code SQLXML} values are buffered as strings). If the buffered rows are estimated to
+     * take more than {@code maxBufferedBytes}, they are spilled to temporary files (so the values must be {@code Serializable})
+     * and each key's rows are read back in turn. All of the rows for a single key are always held in memory together, so
+     * the memory used is bounded by the larger of {@code maxBufferedBytes} and the size of the biggest group. {@code IOException}s
+     * are rethrown as {@code UncheckedIOException}s.
+     * <p>
+     * The iteration order of the returned map is unspecified.
+     */
+    public static <K, V> BatchRead<Map<K, V>> asMapUnordered(Read<K> readKey, BatchRead<V> readValue, long maxBufferedBytes) {
+        return new UnorderedMapBatchRead<>(readKey, readValue, maxBufferedBytes);
+    }
+
+    /**
+     * Hands each row to the action as soon as it has been read, returning the number of rows. Nothing is accumulated,
+     * so this is the way to consume huge results, or to use reads like {@link Reads#BINARY_STREAM} whose values are
+     * only valid while the cursor is on their row. {@code IOException}s are rethrown as {@code UncheckedIOException}s.
+     */
+    public static <T> BatchRead<Long> forEach(Class<T> klass, SQLConsumer<? super T> action) {
+        return forEach(new ContextRead<>(klass), action);
+    }
+
+    /** As {@link #forEach(Class, SQLConsumer)}, but for the case where you want to be explicit about how rows are read */
+    public static <T> BatchRead<Long> forEach(Read<T> read, SQLConsumer<? super T> action) {
+        return (ctxt, rs) -> {
+            final BoundRead<? extends T> boundRead = read.bind(ctxt);
+            final IndexRef ix = IndexRef.create();
+            long rows = 0;
+            try {
+                while (rs.next()) {
+                    action.accept(boundRead.get(rs, ix.reset()));
+                    rows++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        };
+    }
+
     public static <U, V> BatchRead<V> map(BatchRead<U> read, Function<U, V> f) {
         return (ctxt, rs) -> f.apply(read.get(ctxt, rs));
     }
@@ -1,6 +1,7 @@
 package uk.co.omegaprime.mdbi;
 
 import javax.annotation.Nonnull;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.sql.ResultSet;
@@ -21,6 +22,8 @@ class BeanRead<T> implements Read<T> {
         this.constructor = Reflection.getBeanConstructor(klass);
         this.setters = Reflection.lookupBeanSetters(klass, Arrays.asList(fields));
         this.reads = Arrays.asList(this.setters).stream().map(m -> new ContextRead<>(m.getParameterTypes()[0])).collect(Collectors.toList());
+
+        makeAccessible();
     }
 
     public BeanRead(Class<? extends T> klass, Collection<String> fields, Collection<Read<?>> reads) {
@@ -30,6 +33,15 @@ class BeanRead<T> implements Read<T> {
         this.reads = reads;
 
         Reflection.checkReadsConformance("Fields " + fields, Arrays.asList(setters).stream().map(m -> m.getParameterTypes()[0]).collect(Collectors.toList()), reads);
+        makeAccessible();
+    }
+
+    // Public members of a non-public class (e.g. a private nested bean) are still inaccessible to us without this
+    private void makeAccessible() {
+        constructor.setAccessible(true);
+        for (Method setter : setters) {
+            setter.setAccessible(true);
+        }
     }
 
     @Override
@@ -39,7 +51,8 @@ class BeanRead<T> implements Read<T> {
 
     @Override
     public BoundRead<T> bind(Read.Context ctxt) {
-        final List<BoundRead> boundReads = reads.stream().map(r -> r.bind(ctxt)).collect(Collectors.toList());
+        final List<BoundRead<?>> boundReads = reads.stream().map(r -> r.bind(ctxt)).collect(Collectors.toList());
+        final MethodHandle handle = CompiledReads.bean(constructor, setters, boundReads);
         return new BoundRead<T>() {
             @Override
             public int arity() {
@@ -48,11 +61,7 @@ class BeanRead<T> implements Read<T> {
 
             @Override
             public T get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
-                final T x = Reflection.constructUnchecked(constructor, new Object[0]);
-                for (int i = 0; i < setters.length; i++) {
-                    Reflection.invokeUnchecked(setters[i], x, new Object[]{boundReads.get(i).get(rs, ix)});
-                }
-                return x;
+                return klass.cast(CompiledReads.invoke(handle, rs, ix));
             }
         };
     }
@@ -1,6 +1,7 @@
 package uk.co.omegaprime.mdbi;
 
 import javax.annotation.Nonnull;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
@@ -11,30 +12,44 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 class BeanWrite<T> implements Write<T> {
+    private final Class<T> klass;
     private final Method[] getters;
     private final Collection<Write<?>> writes;
 
     public BeanWrite(Class<T> klass, String... fields) {
+        this.klass = klass;
         this.getters = Reflection.lookupBeanGetters(klass, Arrays.asList(fields));
         this.writes = Arrays.asList(getters).stream().map(r -> new ContextWrite<>(r.getReturnType())).collect(Collectors.toList());
+
+        makeAccessible();
     }
 
     public BeanWrite(Class<T> klass, Collection<String> fields, Collection<Write<?>> writes) {
-        this.getters = Reflection.lookupBeanSetters(klass, fields);
+        this.klass = klass;
+        this.getters = Reflection.lookupBeanGetters(klass, new ArrayList<>(fields));
         this.writes = writes;
         Reflection.checkWritesConformance("Fields " + fields, Arrays.asList(getters).stream().map(Method::getReturnType).collect(Collectors.toList()), writes);
+
+        makeAccessible();
+    }
+
+    // Public members of a non-public class (e.g. a private nested bean) are still inaccessible to us without this
+    private void makeAccessible() {
+        for (Method getter : getters) {
+            getter.setAccessible(true);
+        }
     }
 
     @Override
     public BoundWrite<T> bind(Context ctxt) {
         final List<BoundWrite<?>> boundWrites = writes.stream().map(w -> w.bind(ctxt)).collect(Collectors.toList());
+        final MethodHandle set = CompiledWrites.bean(klass, getters, boundWrites);
+        final MethodHandle[] gets = Arrays.stream(getters).map(CompiledWrites::getter).toArray(MethodHandle[]::new);
+        final int arity = boundWrites.stream().mapToInt(BoundWrite::arity).sum();
         return new BoundWrite<T>() {
             @Override
-            @SuppressWarnings("unchecked")
             public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, T x) throws SQLException {
-                for (int i = 0; i < getters.length; i++) {
-                    ((BoundWrite<Object>)boundWrites.get(i)).set(s, ix, Reflection.invokeUnchecked(getters[i], x, new Object[0]));
-                }
+                CompiledWrites.invokeSet(set, s, ix, x);
             }
 
             @Nonnull
@@ -42,21 +57,15 @@ class BeanWrite<T> implements Write<T> {
             @SuppressWarnings("unchecked")
             public List<String> asSQL(T x) {
                 final List<String> result = new ArrayList<>();
-                for (int i = 0; i < getters.length; i++) {
-                    final Object o;
-                    try {
-                        o = Reflection.invokeUnchecked(getters[i], x, new Object[0]);
-                    } catch (SQLException e) {
-                        throw new RuntimeException(e);
-                    }
-                    result.addAll(((BoundWrite<Object>) boundWrites.get(i)).asSQL(o));
+                for (int i = 0; i < gets.length; i++) {
+                    result.addAll(((BoundWrite<Object>) boundWrites.get(i)).asSQL(CompiledWrites.invokeGet(gets[i], x)));
                 }
                 return result;
             }
 
             @Override
             public int arity() {
-                return boundWrites.stream().mapToInt(BoundWrite::arity).sum();
+                return arity;
             }
         };
     }
@@ -0,0 +1,416 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.sql.rowset.serial.SerialArray;
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// A scrollable ResultSet over rows that were buffered in memory with getObject, optionally hiding some leading columns.
+// Because the values have already left the driver, the getters can only do the standard JDBC conversions between
+// them: e.g. getTimestamp works on a column that getObject returned as a Timestamp, a number of milliseconds or an
+// ISO-ish string, but not on anything more exotic that only the driver knows how to interpret.
+//
+// Rows should be buffered with copyRow, which copies the contents of LOBs and arrays out of the driver: the driver's
+// own handles usually stop working once the cursor moves on. So getBlob, getClob and getArray return serializable
+// in-memory copies, SQLXML values are buffered as their String form (so getSQLXML isn't available), getNClob isn't
+// available either, and getObject(int, Class) only knows about the java.time types corresponding to JDBC's own.
+//
+// Calls that aren't about reading the current row go to the ResultSet the rows were originally read from.
+class BufferedResultSet extends DelegatingResultSet {
+    private final ResultSetMetaData metaData;
+    private final int offset;
+    private final int width;
+
+    private List<Object[]> rows = Collections.emptyList();
+    private int row = -1;
+    private boolean wasNull;
+    // Lazy-initialized
+    private Map<String, Integer> columnIndexes;
+
+    public BufferedResultSet(ResultSet rs, ResultSetMetaData metaData, int offset, int width) {
+        super(rs);
+        this.metaData = metaData;
+        this.offset = offset;
+        this.width = width;
+    }
+
+    /** Replaces the rows we are a view of, and moves before the first of them. Returns this instance. */
+    public BufferedResultSet reset(List<Object[]> rows) {
+        this.rows = rows;
+        this.row = -1;
+        return this;
+    }
+
+    private Object value(int columnIndex) throws SQLException {
+        if (row < 0 || row >= rows.size()) throw new SQLException("ResultSet is not on a row");
+        if (columnIndex < 1 || columnIndex > width) throw new SQLException("Invalid column index " + columnIndex);
+
+        final Object result = rows.get(row)[offset + columnIndex - 1];
+        wasNull = result == null;
+        return result;
+    }
+
+    /** Copies the current row of the {@code ResultSet} with {@code getObject}, detaching any values that refer back into the driver */
+    static Object[] copyRow(ResultSet rs, int columns) throws SQLException {
+        final Object[] row = new Object[columns];
+        for (int i = 0; i < columns; i++) {
+            row[i] = detach(rs.getObject(i + 1));
+        }
+        return row;
+    }
+
+    private static Object detach(Object x) throws SQLException {
+        if (x instanceof Blob) {
+            final Blob blob = (Blob)x;
+            try {
+                // Not SerialBlob(Blob), which would keep a reference to the driver's Blob and so couldn't be serialized
+                return new SerialBlob(blob.getBytes(1, (int)blob.length()));
+            } finally {
+                free(blob::free);
+            }
+        } else if (x instanceof Clob) {
+            final Clob clob = (Clob)x;
+            try {
+                return new SerialClob(clob.getSubString(1, (int)clob.length()).toCharArray());
+            } finally {
+                free(clob::free);
+            }
+        } else if (x instanceof Array) {
+            final Array array = (Array)x;
+            try {
+                return new SerialArray(array);
+            } finally {
+                free(array::free);
+            }
+        } else if (x instanceof SQLXML) {
+            final SQLXML xml = (SQLXML)x;
+            try {
+                return xml.getString();
+            } finally {
+                free(xml::free);
+            }
+        } else {
+            return x;
+        }
+    }
+
+    private interface Free {
+        void free() throws SQLException;
+    }
+
+    private static void free(Free free) throws SQLException {
+        try {
+            free.free();
+        } catch (SQLFeatureNotSupportedException | AbstractMethodError ignored) {}
+    }
+
+    private static SQLException cannotConvert(Object x, String to) {
+        return new SQLException("Can't convert " + x.getClass().getName() + " value " + x + " to " + to);
+    }
+
+    private Number number(int columnIndex) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x == null) {
+            return 0;
+        } else if (x instanceof Number) {
+            return (Number)x;
+        } else if (x instanceof Boolean) {
+            return (Boolean)x ? 1 : 0;
+        } else if (x instanceof String) {
+            try {
+                return new BigDecimal(((String)x).trim());
+            } catch (NumberFormatException e) {
+                throw cannotConvert(x, "a number");
+            }
+        } else {
+            throw cannotConvert(x, "a number");
+        }
+    }
+
+    private <T> T cast(int columnIndex, Class<T> klass) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x == null || klass.isInstance(x)) return klass.cast(x);
+        throw cannotConvert(x, klass.getName());
+    }
+
+    private Timestamp timestamp(int columnIndex, Calendar cal) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x == null) {
+            return null;
+        } else if (x instanceof java.util.Date) {
+            final Timestamp result = new Timestamp(((java.util.Date)x).getTime());
+            if (x instanceof Timestamp) result.setNanos(((Timestamp)x).getNanos());
+            return result;
+        } else if (x instanceof Number) {
+            return new Timestamp(((Number)x).longValue());
+        } else if (x instanceof String) {
+            final String s = ((String)x).trim();
+            final ZoneId zone = cal == null ? ZoneId.systemDefault() : cal.getTimeZone().toZoneId();
+            try {
+                final LocalDateTime local = s.length() <= 10 ? LocalDate.parse(s).atStartOfDay() : LocalDateTime.parse(s.replace(' ', 'T'));
+                return Timestamp.from(local.atZone(zone).toInstant());
+            } catch (DateTimeParseException e) {
+                throw cannotConvert(x, "a timestamp");
+            }
+        } else if (x instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime)x);
+        } else if (x instanceof LocalDate) {
+            return Timestamp.valueOf(((LocalDate)x).atStartOfDay());
+        } else {
+            throw cannotConvert(x, "a timestamp");
+        }
+    }
+
+    private byte[] bytes(int columnIndex) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x == null || x instanceof byte[]) return (byte[])x;
+        if (x instanceof String) return ((String)x).getBytes(StandardCharsets.UTF_8);
+        if (x instanceof Blob) return ((Blob)x).getBytes(1, (int)((Blob)x).length());
+        throw cannotConvert(x, "bytes");
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        if (row < rows.size()) row++;
+        return row < rows.size();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        // The rows belong to whoever is replaying them, and they will close the underlying ResultSet themselves
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return wasNull;
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return metaData;
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        if (columnIndexes == null) {
+            columnIndexes = new HashMap<>();
+            for (int i = width; i >= 1; i--) {
+                columnIndexes.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        final Integer result = columnIndexes.get(columnLabel.toLowerCase(Locale.ROOT));
+        if (result == null) throw new SQLException("Invalid column label " + columnLabel);
+        return result;
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x == null) return null;
+        if (x instanceof byte[] || x instanceof Blob) return new String(bytes(columnIndex), StandardCharsets.UTF_8);
+        if (x instanceof Clob) return ((Clob)x).getSubString(1, (int)((Clob)x).length());
+        return x.toString();
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x == null) return false;
+        if (x instanceof Boolean) return (Boolean)x;
+        if (x instanceof String && (((String)x).equalsIgnoreCase("true") || ((String)x).equalsIgnoreCase("false"))) {
+            return Boolean.parseBoolean((String)x);
+        }
+        return number(columnIndex).doubleValue() != 0;
+    }
+
+    @Override public byte getByte(int columnIndex) throws SQLException { return number(columnIndex).byteValue(); }
+    @Override public short getShort(int columnIndex) throws SQLException { return number(columnIndex).shortValue(); }
+    @Override public int getInt(int columnIndex) throws SQLException { return number(columnIndex).intValue(); }
+    @Override public long getLong(int columnIndex) throws SQLException { return number(columnIndex).longValue(); }
+    @Override public float getFloat(int columnIndex) throws SQLException { return number(columnIndex).floatValue(); }
+    @Override public double getDouble(int columnIndex) throws SQLException { return number(columnIndex).doubleValue(); }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x == null) return null;
+
+        final Number n = number(columnIndex);
+        if (n instanceof BigDecimal) return (BigDecimal)n;
+        if (n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte) return BigDecimal.valueOf(n.longValue());
+        return new BigDecimal(n.toString());
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+        final BigDecimal result = getBigDecimal(columnIndex);
+        return result == null ? null : result.setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    @Override public byte[] getBytes(int columnIndex) throws SQLException { return bytes(columnIndex); }
+
+    @Override public Timestamp getTimestamp(int columnIndex) throws SQLException { return timestamp(columnIndex, null); }
+    @Override public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException { return timestamp(columnIndex, cal); }
+
+    @Override
+    public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+        final Timestamp ts = timestamp(columnIndex, cal);
+        return ts == null ? null : new Date(ts.getTime());
+    }
+
+    @Override
+    public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x instanceof String && ((String)x).indexOf(':') == 2) {
+            final ZoneId zone = cal == null ? ZoneId.systemDefault() : cal.getTimeZone().toZoneId();
+            try {
+                return new Time(LocalTime.parse(((String)x).trim()).atDate(LocalDate.of(1970, 1, 1)).atZone(zone).toInstant().toEpochMilli());
+            } catch (DateTimeParseException e) {
+                throw cannotConvert(x, "a time");
+            }
+        }
+
+        final Timestamp ts = timestamp(columnIndex, cal);
+        return ts == null ? null : new Time(ts.getTime());
+    }
+
+    @Override public Date getDate(int columnIndex) throws SQLException { return getDate(columnIndex, null); }
+    @Override public Time getTime(int columnIndex) throws SQLException { return getTime(columnIndex, null); }
+
+    @Override
+    public InputStream getBinaryStream(int columnIndex) throws SQLException {
+        final byte[] bytes = bytes(columnIndex);
+        return bytes == null ? null : new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public InputStream getAsciiStream(int columnIndex) throws SQLException {
+        final String s = getString(columnIndex);
+        return s == null ? null : new ByteArrayInputStream(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+        final String s = getString(columnIndex);
+        return s == null ? null : new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_16BE));
+    }
+
+    @Override
+    public Reader getCharacterStream(int columnIndex) throws SQLException {
+        final String s = getString(columnIndex);
+        return s == null ? null : new StringReader(s);
+    }
+
+    @Override public String getNString(int columnIndex) throws SQLException { return getString(columnIndex); }
+    @Override public Reader getNCharacterStream(int columnIndex) throws SQLException { return getCharacterStream(columnIndex); }
+
+    @Override public Object getObject(int columnIndex) throws SQLException { return value(columnIndex); }
+    @Override public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException { return value(columnIndex); }
+
+    @Override
+    public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        final Object x = value(columnIndex);
+        if (x == null || type.isInstance(x)) {
+            return type.cast(x);
+        } else if (type == LocalDate.class && x instanceof Date) {
+            return type.cast(((Date)x).toLocalDate());
+        } else if (type == LocalTime.class && x instanceof Time) {
+            return type.cast(((Time)x).toLocalTime());
+        } else if (type == LocalDateTime.class && x instanceof Timestamp) {
+            return type.cast(((Timestamp)x).toLocalDateTime());
+        } else {
+            throw cannotConvert(x, type.getName());
+        }
+    }
+
+    @Override public Ref getRef(int columnIndex) throws SQLException { return cast(columnIndex, Ref.class); }
+    @Override public Blob getBlob(int columnIndex) throws SQLException { return cast(columnIndex, Blob.class); }
+    @Override public Clob getClob(int columnIndex) throws SQLException { return cast(columnIndex, Clob.class); }
+    @Override public NClob getNClob(int columnIndex) throws SQLException { return cast(columnIndex, NClob.class); }
+    @Override public Array getArray(int columnIndex) throws SQLException { return cast(columnIndex, Array.class); }
+    @Override public URL getURL(int columnIndex) throws SQLException { return cast(columnIndex, URL.class); }
+    @Override public RowId getRowId(int columnIndex) throws SQLException { return cast(columnIndex, RowId.class); }
+    @Override public SQLXML getSQLXML(int columnIndex) throws SQLException { return cast(columnIndex, SQLXML.class); }
+
+    // *** Label-based getters, all of which just go via findColumn
+
+    @Override public String getString(String columnLabel) throws SQLException { return getString(findColumn(columnLabel)); }
+    @Override public boolean getBoolean(String columnLabel) throws SQLException { return getBoolean(findColumn(columnLabel)); }
+    @Override public byte getByte(String columnLabel) throws SQLException { return getByte(findColumn(columnLabel)); }
+    @Override public short getShort(String columnLabel) throws SQLException { return getShort(findColumn(columnLabel)); }
+    @Override public int getInt(String columnLabel) throws SQLException { return getInt(findColumn(columnLabel)); }
+    @Override public long getLong(String columnLabel) throws SQLException { return getLong(findColumn(columnLabel)); }
+    @Override public float getFloat(String columnLabel) throws SQLException { return getFloat(findColumn(columnLabel)); }
+    @Override public double getDouble(String columnLabel) throws SQLException { return getDouble(findColumn(columnLabel)); }
+    @Override public BigDecimal getBigDecimal(String columnLabel) throws SQLException { return getBigDecimal(findColumn(columnLabel)); }
+    @Override @SuppressWarnings("deprecation") public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException { return getBigDecimal(findColumn(columnLabel), scale); }
+    @Override public byte[] getBytes(String columnLabel) throws SQLException { return getBytes(findColumn(columnLabel)); }
+    @Override public Date getDate(String columnLabel) throws SQLException { return getDate(findColumn(columnLabel)); }
+    @Override public Date getDate(String columnLabel, Calendar cal) throws SQLException { return getDate(findColumn(columnLabel), cal); }
+    @Override public Time getTime(String columnLabel) throws SQLException { return getTime(findColumn(columnLabel)); }
+    @Override public Time getTime(String columnLabel, Calendar cal) throws SQLException { return getTime(findColumn(columnLabel), cal); }
+    @Override public Timestamp getTimestamp(String columnLabel) throws SQLException { return getTimestamp(findColumn(columnLabel)); }
+    @Override public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException { return getTimestamp(findColumn(columnLabel), cal); }
+    @Override public InputStream getAsciiStream(String columnLabel) throws SQLException { return getAsciiStream(findColumn(columnLabel)); }
+    @Override @SuppressWarnings("deprecation") public InputStream getUnicodeStream(String columnLabel) throws SQLException { return getUnicodeStream(findColumn(columnLabel)); }
+    @Override public InputStream getBinaryStream(String columnLabel) throws SQLException { return getBinaryStream(findColumn(columnLabel)); }
+    @Override public Reader getCharacterStream(String columnLabel) throws SQLException { return getCharacterStream(findColumn(columnLabel)); }
+    @Override public String getNString(String columnLabel) throws SQLException { return getNString(findColumn(columnLabel)); }
+    @Override public Reader getNCharacterStream(String columnLabel) throws SQLException { return getNCharacterStream(findColumn(columnLabel)); }
+    @Override public Object getObject(String columnLabel) throws SQLException { return getObject(findColumn(columnLabel)); }
+    @Override public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException { return getObject(findColumn(columnLabel), map); }
+    @Override public <T> T getObject(String columnLabel, Class<T> type) throws SQLException { return getObject(findColumn(columnLabel), type); }
+    @Override public Ref getRef(String columnLabel) throws SQLException { return getRef(findColumn(columnLabel)); }
+    @Override public Blob getBlob(String columnLabel) throws SQLException { return getBlob(findColumn(columnLabel)); }
+    @Override public Clob getClob(String columnLabel) throws SQLException { return getClob(findColumn(columnLabel)); }
+    @Override public NClob getNClob(String columnLabel) throws SQLException { return getNClob(findColumn(columnLabel)); }
+    @Override public Array getArray(String columnLabel) throws SQLException { return getArray(findColumn(columnLabel)); }
+    @Override public URL getURL(String columnLabel) throws SQLException { return getURL(findColumn(columnLabel)); }
+    @Override public RowId getRowId(String columnLabel) throws SQLException { return getRowId(findColumn(columnLabel)); }
+    @Override public SQLXML getSQLXML(String columnLabel) throws SQLException { return getSQLXML(findColumn(columnLabel)); }
+
+    // *** Navigation, which is easy since everything is in memory
+
+    @Override public boolean isBeforeFirst() throws SQLException { return row < 0 && !rows.isEmpty(); }
+    @Override public boolean isAfterLast() throws SQLException { return row >= rows.size() && !rows.isEmpty(); }
+    @Override public boolean isFirst() throws SQLException { return row == 0 && !rows.isEmpty(); }
+    @Override public boolean isLast() throws SQLException { return row == rows.size() - 1 && !rows.isEmpty(); }
+    @Override public void beforeFirst() throws SQLException { row = -1; }
+    @Override public void afterLast() throws SQLException { row = rows.size(); }
+    @Override public boolean first() throws SQLException { return absolute(1); }
+    @Override public boolean last() throws SQLException { return absolute(-1); }
+    @Override public int getRow() throws SQLException { return row >= 0 && row < rows.size() ? row + 1 : 0; }
+    @Override public boolean relative(int rows) throws SQLException { return move(row + rows); }
+    @Override public boolean previous() throws SQLException { return move(row - 1); }
+    @Override public int getType() throws SQLException { return ResultSet.TYPE_SCROLL_INSENSITIVE; }
+    @Override public int getConcurrency() throws SQLException { return ResultSet.CONCUR_READ_ONLY; }
+
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        return move(row >= 0 ? row - 1 : rows.size() + row);
+    }
+
+    private boolean move(int row) {
+        this.row = Math.max(-1, Math.min(rows.size(), row));
+        return this.row >= 0 && this.row < rows.size();
+    }
+}
@@ -0,0 +1,91 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// A reusable CharSequence view onto one field of a memory-mapped CSV file. As long as the field is pure ASCII and
+// contains no escaped quotes we can answer charAt() straight from the mapped bytes, which means that parsers for
+// numbers and dates never need to allocate a String. Anything more exotic is decoded (as UTF-8) on demand.
+final class CSVField implements CharSequence {
+    private ByteBuffer buffer;
+    private int start, end;
+    private boolean quoted, escaped;
+
+    // 0: not yet known, 1: pure ASCII, 2: needs decoding
+    private byte simplicity;
+    private String decoded;
+
+    void set(ByteBuffer buffer, int start, int end, boolean quoted, boolean escaped) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+        this.quoted = quoted;
+        this.escaped = escaped;
+        this.simplicity = 0;
+        this.decoded = null;
+    }
+
+    /** An unquoted empty field is how a CSV file represents SQL NULL. A quoted empty field is the empty string. */
+    boolean isNull() {
+        return !quoted && start == end;
+    }
+
+    private boolean isSimple() {
+        if (simplicity == 0) {
+            simplicity = 1;
+            if (escaped) {
+                simplicity = 2;
+            } else {
+                for (int i = start; i < end; i++) {
+                    if (buffer.get(i) < 0) {
+                        simplicity = 2;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return simplicity == 1;
+    }
+
+    @Override
+    public int length() {
+        return isSimple() ? end - start : toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (isSimple()) {
+            if (index < 0 || index >= end - start) throw new IndexOutOfBoundsException("Index " + index + " out of range for field of length " + (end - start));
+            return (char)buffer.get(start + index);
+        } else {
+            return toString().charAt(index);
+        }
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        if (decoded == null) {
+            final byte[] bytes = new byte[end - start];
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                final byte b = buffer.get(i);
+                bytes[n++] = b;
+                // A doubled quote inside a quoted field stands for a single quote character
+                if (escaped && b == '"') i++;
+            }
+
+            decoded = isSimple() ? new String(bytes, 0, n, StandardCharsets.ISO_8859_1)
+                                 : new String(bytes, 0, n, StandardCharsets.UTF_8);
+        }
+
+        return decoded;
+    }
+}
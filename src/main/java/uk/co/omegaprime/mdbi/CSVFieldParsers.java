@@ -0,0 +1,170 @@
+package uk.co.omegaprime.mdbi;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.HashMap;
+import java.util.Map;
+
+// The parsers that CSVLoadBuilder uses by default for each of the types that have built-in Write instances.
+// Those for the numeric types work directly on the CharSequence so that no String is ever allocated.
+class CSVFieldParsers {
+    private CSVFieldParsers() {}
+
+    private static final DateTimeFormatter LOCAL_DATE_TIME = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart().appendLiteral('T').optionalEnd()
+            .optionalStart().appendLiteral(' ').optionalEnd()
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .toFormatter();
+
+    private static final Map<Class<?>, CSVLoadBuilder.FieldParser<?>> PARSERS = new HashMap<>();
+
+    private static <T> void register(Class<T> klass, CSVLoadBuilder.FieldParser<T> parser) {
+        PARSERS.put(klass, parser);
+    }
+
+    static {
+        register(boolean.class,       CSVFieldParsers::parseBoolean);
+        register(Boolean.class,       CSVFieldParsers::parseBoolean);
+        register(byte.class,          cs -> checkedNarrow(cs, parseLong(cs), Byte.MIN_VALUE, Byte.MAX_VALUE).byteValue());
+        register(Byte.class,          cs -> checkedNarrow(cs, parseLong(cs), Byte.MIN_VALUE, Byte.MAX_VALUE).byteValue());
+        register(char.class,          CSVFieldParsers::parseChar);
+        register(Character.class,     CSVFieldParsers::parseChar);
+        register(short.class,         cs -> checkedNarrow(cs, parseLong(cs), Short.MIN_VALUE, Short.MAX_VALUE).shortValue());
+        register(Short.class,         cs -> checkedNarrow(cs, parseLong(cs), Short.MIN_VALUE, Short.MAX_VALUE).shortValue());
+        register(int.class,           CSVFieldParsers::parseInt);
+        register(Integer.class,       CSVFieldParsers::parseInt);
+        register(long.class,          CSVFieldParsers::parseLong);
+        register(Long.class,          CSVFieldParsers::parseLong);
+        register(float.class,         cs -> Float.parseFloat(cs.toString()));
+        register(Float.class,         cs -> Float.parseFloat(cs.toString()));
+        register(double.class,        CSVFieldParsers::parseDouble);
+        register(Double.class,        CSVFieldParsers::parseDouble);
+        register(String.class,        CharSequence::toString);
+        register(LocalDate.class,     LocalDate::parse);
+        register(LocalTime.class,     LocalTime::parse);
+        register(LocalDateTime.class, cs -> LocalDateTime.parse(cs, LOCAL_DATE_TIME));
+        register(BigDecimal.class,    cs -> new BigDecimal(cs.toString()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> CSVLoadBuilder.FieldParser<T> forClass(Class<T> klass) {
+        final CSVLoadBuilder.FieldParser<T> result = (CSVLoadBuilder.FieldParser<T>)PARSERS.get(klass);
+        if (result == null) {
+            throw new IllegalArgumentException("Don't know how to parse " + klass + " objects from CSV: please supply a FieldParser");
+        }
+
+        return result;
+    }
+
+    private static Boolean parseBoolean(CharSequence cs) {
+        if (contentEquals(cs, "true") || contentEquals(cs, "1")) {
+            return true;
+        } else if (contentEquals(cs, "false") || contentEquals(cs, "0")) {
+            return false;
+        } else {
+            throw new IllegalArgumentException("Field " + cs + " is not a boolean");
+        }
+    }
+
+    private static boolean contentEquals(CharSequence cs, String x) {
+        if (cs.length() != x.length()) return false;
+        for (int i = 0; i < x.length(); i++) {
+            if (Character.toLowerCase(cs.charAt(i)) != x.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static Character parseChar(CharSequence cs) {
+        if (cs.length() != 1) throw new IllegalArgumentException("Found field " + cs + " but was expecting single char");
+        return cs.charAt(0);
+    }
+
+    private static Long checkedNarrow(CharSequence cs, long x, long min, long max) {
+        if (x < min || x > max) throw new NumberFormatException("Field " + cs + " is out of range");
+        return x;
+    }
+
+    static int parseInt(CharSequence cs) {
+        final long x = parseLong(cs);
+        if (x < Integer.MIN_VALUE || x > Integer.MAX_VALUE) throw new NumberFormatException("Field " + cs + " is out of range for an int");
+        return (int)x;
+    }
+
+    static long parseLong(CharSequence cs) {
+        final int n = cs.length();
+        int i = 0;
+        boolean negative = false;
+        if (n > 0 && (cs.charAt(0) == '-' || cs.charAt(0) == '+')) {
+            negative = cs.charAt(0) == '-';
+            i++;
+        }
+
+        if (i == n) throw new NumberFormatException("Field " + cs + " is not an integer");
+
+        // Accumulate negatively so that we can represent Long.MIN_VALUE
+        long result = 0;
+        for (; i < n; i++) {
+            final int digit = cs.charAt(i) - '0';
+            if (digit < 0 || digit > 9) throw new NumberFormatException("Field " + cs + " is not an integer");
+            if (result < Long.MIN_VALUE / 10 || (result == Long.MIN_VALUE / 10 && digit > 8)) {
+                throw new NumberFormatException("Field " + cs + " is out of range for a long");
+            }
+            result = result * 10 - digit;
+        }
+
+        if (!negative) {
+            if (result == Long.MIN_VALUE) throw new NumberFormatException("Field " + cs + " is out of range for a long");
+            result = -result;
+        }
+
+        return result;
+    }
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    static double parseDouble(CharSequence cs) {
+        // Fast path for plain decimals with at most 15 significant digits: both the digits and the power of ten
+        // are then exactly representable as doubles, so a single division is correctly rounded.
+        final int n = cs.length();
+        int i = 0;
+        boolean negative = false;
+        if (n > 0 && (cs.charAt(0) == '-' || cs.charAt(0) == '+')) {
+            negative = cs.charAt(0) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0, fractionDigits = 0;
+        boolean seenPoint = false, seenDigit = false, ok = i < n;
+        for (; i < n && ok; i++) {
+            final char c = cs.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || c != '0') digits++;
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenPoint) fractionDigits++;
+                ok = digits <= 15;
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                ok = false;
+            }
+        }
+
+        if (ok && seenDigit && fractionDigits < POWERS_OF_TEN.length) {
+            final double result = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -result : result;
+        } else {
+            return Double.parseDouble(cs.toString());
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package uk.co.omegaprime.mdbi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Loads a (potentially huge) CSV file into the database without ever holding more than one batch of rows in memory.
+ * <p>
+ * The file is memory-mapped and parsed in place: fields are handed to the {@link FieldParser}s as
+ * {@code CharSequence} views onto the mapped bytes, and the built-in parsers for numbers and dates never allocate
+ * a {@code String}. Parsed values are then bound into a {@code PreparedStatement} using the {@link Write} instances
+ * you configured (or those registered in the {@link Context}), and sent to the database in chunked batches.
+ * <pre>
+ * CSVLoadProgress progress = CSVLoadBuilder.create()
+ *         .withHeader(true)
+ *         .add(int.class)
+ *         .add(String.class)
+ *         .load(mdbi, path, values -&gt; sql("insert into people (id, name) values (", values, ")"));
+ * </pre>
+ * <p>
+ * The file is assumed to be RFC 4180 style CSV encoded as UTF-8. An unquoted empty field is read as SQL {@code NULL},
+ * while a quoted empty field is the empty string.
+ */
+public class CSVLoadBuilder {
+    /** Turns the text of a CSV field into a Java object. The {@code CharSequence} is only valid for the duration of the call. */
+    @FunctionalInterface
+    public interface FieldParser<T> {
+        T parse(CharSequence field);
+    }
+
+    static final int DEFAULT_MAX_WINDOW_BYTES = 1 << 30;
+
+    private static class Column<T> {
+        public final Write<T> write;
+        public final FieldParser<T> parser;
+        public final Class<?> klass; // null if not known
+
+        public Column(Write<T> write, FieldParser<T> parser, Class<?> klass) {
+            this.write = write;
+            this.parser = parser;
+            this.klass = klass;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T parse(CSVField field) {
+            if (!field.isNull()) {
+                return parser.parse(field);
+            } else if (klass == double.class) {
+                return (T)(Object)Double.NaN;
+            } else if (klass == float.class) {
+                return (T)(Object)Float.NaN;
+            } else if (klass != null && klass.isPrimitive()) {
+                throw new NullPointerException("Found null in CSV field destined for primitive " + klass);
+            } else {
+                return null;
+            }
+        }
+    }
+
+    // The holes in the SQL statement that we prepare refer to these, and we just update their contents for each row
+    private static class Cell<T> {
+        public T value;
+    }
+
+    private final List<Column<?>> columns = new ArrayList<>(); // Null elements represent skipped fields
+    private char separator = ',';
+    private boolean header = false;
+    private int batchSize = 10000;
+    private int parallelism = 1;
+    private int maxWindowBytes = DEFAULT_MAX_WINDOW_BYTES;
+
+    private CSVLoadBuilder() {}
+
+    public static CSVLoadBuilder create() { return new CSVLoadBuilder(); }
+
+    /** Reads the next field of the CSV using the built-in parser for the class, and writes it to SQL using the {@code Write} registered in the {@link Context}. */
+    public <T> CSVLoadBuilder add(Class<T> klass) {
+        return add(klass, CSVFieldParsers.forClass(klass));
+    }
+
+    /** Reads the next field of the CSV using the supplied parser, and writes it to SQL using the {@code Write} registered in the {@link Context}. */
+    public <T> CSVLoadBuilder add(Class<T> klass, FieldParser<T> parser) {
+        columns.add(new Column<>(new ContextWrite<>(klass), parser, klass));
+        return this;
+    }
+
+    /** Reads the next field of the CSV using the supplied parser, and writes it to SQL using the supplied {@code Write}. */
+    public <T> CSVLoadBuilder add(Write<T> write, FieldParser<T> parser) {
+        columns.add(new Column<>(write, parser, null));
+        return this;
+    }
+
+    /** Ignores the next field of the CSV */
+    public CSVLoadBuilder skip() {
+        columns.add(null);
+        return this;
+    }
+
+    /** The character separating fields within a row. Defaults to a comma. */
+    public CSVLoadBuilder withSeparator(char separator) {
+        this.separator = separator;
+        return this;
+    }
+
+    /** Should the first row of the file be ignored? Defaults to false. */
+    public CSVLoadBuilder withHeader(boolean header) {
+        this.header = header;
+        return this;
+    }
+
+    /** How many rows should be sent to the database in each {@code executeBatch} call? Defaults to 10000. */
+    public CSVLoadBuilder withBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive, not " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Splits the file into this many segments and loads them concurrently, each on its own connection. Defaults to 1.
+     * <p>
+     * Parallelism is only possible if the {@code MDBI} was constructed from a {@code DataSource}: if it wraps a single
+     * {@code Connection} then the segments are loaded one after another. Because segment boundaries are found by
+     * looking for line breaks, a file loaded in parallel must not contain line breaks within quoted fields.
+     */
+    public CSVLoadBuilder withParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive, not " + parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    // Exposed for testing: the file is mapped in windows of at most this size, and no row may be longer
+    CSVLoadBuilder withMaxWindowBytes(int maxWindowBytes) {
+        this.maxWindowBytes = maxWindowBytes;
+        return this;
+    }
+
+    /**
+     * Loads the file. The function you supply is given a comma separated list of the values for one row of the
+     * file, and should return the SQL statement (typically an {@code INSERT}) that you want to execute for each row.
+     */
+    public CSVLoadProgress load(MDBI mdbi, Path path, Function<SQL, SQL> mkStatement) throws SQLException, IOException {
+        final CSVLoadProgress progress = CSVLoadProgress.create();
+        load(mdbi, path, mkStatement, progress);
+        return progress;
+    }
+
+    /** As {@link #load(MDBI, Path, Function)}, but reports statistics to a {@code CSVLoadProgress} that you can poll while the load runs. */
+    public void load(MDBI mdbi, Path path, Function<SQL, SQL> mkStatement, CSVLoadProgress progress) throws SQLException, IOException {
+        if (columns.isEmpty()) throw new IllegalStateException("You must add at least one column");
+
+        final List<Column<?>> columns = new ArrayList<>(this.columns);
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            final long dataStart;
+            if (header) {
+                final CSVReader reader = new CSVReader(channel, 0, size, separator, maxWindowBytes);
+                reader.nextRow();
+                dataStart = reader.position();
+            } else {
+                dataStart = 0;
+            }
+
+            final List<long[]> segments = new ArrayList<>();
+            final int segmentCount = mdbi.hasIndependentConnections() ? parallelism : 1;
+            long segmentStart = dataStart;
+            for (int i = 1; i <= segmentCount && segmentStart < size; i++) {
+                final long segmentEnd = i == segmentCount ? size : nextRowBoundary(channel, dataStart + (size - dataStart) * i / segmentCount, size);
+                if (segmentEnd > segmentStart) {
+                    segments.add(new long[] { segmentStart, segmentEnd });
+                    segmentStart = segmentEnd;
+                }
+            }
+
+            progress.start(size - dataStart);
+            try {
+                if (segments.size() <= 1) {
+                    for (long[] segment : segments) {
+                        loadSegment(mdbi, channel, segment[0], segment[1], columns, mkStatement, progress);
+                    }
+                } else {
+                    loadSegmentsConcurrently(mdbi, channel, segments, columns, mkStatement, progress);
+                }
+            } finally {
+                progress.finish();
+            }
+        }
+    }
+
+    private void loadSegmentsConcurrently(MDBI mdbi, FileChannel channel, List<long[]> segments, List<Column<?>> columns,
+                                          Function<SQL, SQL> mkStatement, CSVLoadProgress progress) throws SQLException, IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(segments.size(), runnable -> {
+            final Thread thread = new Thread(runnable, "MDBI CSV loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (long[] segment : segments) {
+                futures.add(executor.submit(() -> {
+                    loadSegment(mdbi, channel, segment[0], segment[1], columns, mkStatement, progress);
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for CSV load to complete", e);
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof SQLException) {
+                        throw (SQLException)cause;
+                    } else if (cause instanceof IOException) {
+                        throw (IOException)cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error)cause;
+                    } else {
+                        throw new IllegalStateException(cause);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Returns the position just after the first newline at or after "from", or the end of the file if there is none
+    private static long nextRowBoundary(FileChannel channel, long from, long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = Math.max(0, from - 1);
+        while (position < size) {
+            buffer.clear();
+            final int n = channel.read(buffer, position);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += n;
+        }
+
+        return size;
+    }
+
+    private void loadSegment(MDBI mdbi, FileChannel channel, long start, long end, List<Column<?>> columns,
+                             Function<SQL, SQL> mkStatement, CSVLoadProgress progress) throws SQLException, IOException {
+        final CSVReader reader = new CSVReader(channel, start, end, separator, maxWindowBytes);
+
+        final Cell<?>[] cells = new Cell<?>[columns.size()];
+        final List<SQL> values = new ArrayList<>();
+        for (int i = 0; i < cells.length; i++) {
+            final Column<?> column = columns.get(i);
+            if (column != null) {
+                cells[i] = new Cell<>();
+                values.add(hole(column, cells[i]));
+            }
+        }
+
+        final SQL sql = mkStatement.apply(SQL.commaSeparate(values.iterator()));
+        try {
+            mdbi.withConnection(c -> {
+                final BespokePreparedSQLBuilder.Prepared prepared = BespokePreparedSQLBuilder.prepare(sql, mdbi.getContext().writeContext(), c);
+                try (final PreparedStatement ps = prepared.statement) {
+                    while (true) {
+                        final long batchStart = reader.position();
+                        final int rows = addBatch(reader, columns, cells, prepared);
+                        if (rows == 0) break;
+                        // Counted once per batch, not once per attempt, so that retries don't inflate the total
+                        progress.rowsParsed(rows);
+
+                        final long batchEnd = reader.position();
+                        final boolean[] firstAttempt = new boolean[] { true };
+                        mdbi.retry(c, () -> {
+                            if (!firstAttempt[0]) {
+                                // The failed attempt will have consumed the batch, so we need to parse it all over again
+                                ps.clearBatch();
+                                reader.seek(batchStart);
+                                addBatch(reader, columns, cells, prepared);
+                            }
+                            firstAttempt[0] = false;
+
+                            return MDBI.executeBatch(ps);
+                        });
+                        progress.batchLoaded(batchEnd - batchStart, rows);
+                    }
+                }
+
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> SQL hole(Column<T> column, Cell<?> cell) {
+        return MDBI.$(Writes.map(column.write, (Cell<T> c) -> c.value), (Cell<T>)cell);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int addBatch(CSVReader reader, List<Column<?>> columns, Cell<?>[] cells, BespokePreparedSQLBuilder.Prepared prepared) throws SQLException {
+        int rows = 0;
+        try {
+            while (rows < batchSize && reader.nextRow()) {
+                if (reader.fieldCount() != cells.length) {
+                    throw new IllegalArgumentException("Row ending at byte " + reader.position() + " has " + reader.fieldCount() + " fields, but we were expecting " + cells.length);
+                }
+
+                for (int i = 0; i < cells.length; i++) {
+                    final Column<?> column = columns.get(i);
+                    if (column != null) {
+                        ((Cell<Object>)cells[i]).value = column.parse(reader.field(i));
+                    }
+                }
+
+                prepared.bind();
+                prepared.statement.addBatch();
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,90 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live statistics about a load being performed by a {@link CSVLoadBuilder}.
+ * <p>
+ * All methods are safe to call from any thread while the load is still in progress, so you can e.g. poll
+ * an instance of this class from a timer in order to report the progress of a long-running load.
+ */
+public final class CSVLoadProgress {
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong bytesLoaded = new AtomicLong();
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsLoaded = new AtomicLong();
+    private final AtomicLong batchesExecuted = new AtomicLong();
+    private volatile long startNanos, endNanos;
+    private volatile boolean started, done;
+
+    private CSVLoadProgress() {}
+
+    public static CSVLoadProgress create() { return new CSVLoadProgress(); }
+
+    void start(long totalBytes) {
+        if (started) throw new IllegalStateException("A CSVLoadProgress can only be used to track one load");
+        this.totalBytes.set(totalBytes);
+        this.startNanos = System.nanoTime();
+        this.started = true;
+    }
+
+    void batchLoaded(long bytes, long rows) {
+        bytesLoaded.addAndGet(bytes);
+        rowsLoaded.addAndGet(rows);
+        batchesExecuted.incrementAndGet();
+    }
+
+    void rowsParsed(long rows) {
+        rowsParsed.addAndGet(rows);
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+        done = true;
+    }
+
+    /** The size of the data (excluding any header) in the file being loaded */
+    public long getTotalBytes() { return totalBytes.get(); }
+    /** The number of bytes of the file whose rows have been sent to the database */
+    public long getBytesLoaded() { return bytesLoaded.get(); }
+    /**
+     * The number of rows that have been parsed, some of which may not yet have been sent to the database. Each row is
+     * only counted once, even if retrying a failed batch means that it has to be parsed again.
+     */
+    public long getRowsParsed() { return rowsParsed.get(); }
+    /** The number of rows that have been successfully sent to the database */
+    public long getRowsLoaded() { return rowsLoaded.get(); }
+    /** The number of batches that have been successfully executed */
+    public long getBatchesExecuted() { return batchesExecuted.get(); }
+    /** Whether the load has completed (successfully or otherwise) */
+    public boolean isDone() { return done; }
+
+    /** Time since the load started, or the total time it took if it has finished */
+    public long getElapsedNanos() {
+        if (!started) return 0;
+        return (done ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    /** Fraction of the file that has been loaded so far, between 0 and 1 */
+    public double getFractionLoaded() {
+        final long total = getTotalBytes();
+        return total == 0 ? (done ? 1 : 0) : (double)getBytesLoaded() / total;
+    }
+
+    public double getRowsPerSecond() {
+        final long elapsed = getElapsedNanos();
+        return elapsed == 0 ? 0 : getRowsLoaded() / (elapsed / 1e9);
+    }
+
+    public double getBytesPerSecond() {
+        final long elapsed = getElapsedNanos();
+        return elapsed == 0 ? 0 : getBytesLoaded() / (elapsed / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows (%.1f%%) loaded in %.1fs: %.0f rows/s, %.1f MB/s",
+                             getRowsLoaded(), getFractionLoaded() * 100, getElapsedNanos() / 1e9,
+                             getRowsPerSecond(), getBytesPerSecond() / (1024 * 1024));
+    }
+}
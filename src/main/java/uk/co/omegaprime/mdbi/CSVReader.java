@@ -0,0 +1,162 @@
+package uk.co.omegaprime.mdbi;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Parses the rows of one segment of a memory-mapped CSV file. The file is mapped a window at a time (so we can deal
+// with files bigger than 2GB, and don't need address space for the whole file at once) and the fields of the current
+// row are exposed as CSVField views onto the mapped bytes, which are only valid until the next call to nextRow().
+//
+// The segment [start, end) is assumed to begin at the start of a row and finish at the end of one.
+class CSVReader {
+    private final FileChannel channel;
+    private final long segmentStart, segmentEnd;
+    private final byte separator;
+    private final int maxWindowBytes;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLimit;
+
+    private long position;
+
+    private int fieldCount;
+    private CSVField[] fields = new CSVField[0];
+
+    public CSVReader(FileChannel channel, long segmentStart, long segmentEnd, char separator, int maxWindowBytes) {
+        if (separator == '"' || separator == '\r' || separator == '\n' || separator > 0x7F) {
+            throw new IllegalArgumentException("Unsupported CSV separator " + separator);
+        }
+
+        this.channel = channel;
+        this.segmentStart = segmentStart;
+        this.segmentEnd = segmentEnd;
+        this.separator = (byte)separator;
+        this.maxWindowBytes = maxWindowBytes;
+        this.position = segmentStart;
+    }
+
+    /** The absolute file offset of the start of the next row that {@link #nextRow()} will parse */
+    public long position() {
+        return position;
+    }
+
+    /** Moves back (or forward) to a row boundary previously returned by {@link #position()} */
+    public void seek(long position) {
+        if (position < segmentStart || position > segmentEnd) {
+            throw new IllegalArgumentException("Position " + position + " lies outside the segment [" + segmentStart + ", " + segmentEnd + ")");
+        }
+        this.position = position;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public CSVField field(int i) {
+        if (i >= fieldCount) throw new IndexOutOfBoundsException("Row only has " + fieldCount + " fields, not " + (i + 1));
+        return fields[i];
+    }
+
+    /** Parses the next non-blank row, returning false if the segment has been exhausted. */
+    public boolean nextRow() throws IOException {
+        while (position < segmentEnd) {
+            if (window == null || position < windowStart || position >= windowStart + windowLimit) {
+                remap();
+            }
+
+            final int rowEnd = scanRow((int)(position - windowStart), windowStart + windowLimit == segmentEnd);
+            if (rowEnd < 0) {
+                if (position == windowStart) {
+                    throw new IllegalArgumentException("Row starting at byte " + position + " is longer than the maximum window size of " + maxWindowBytes + " bytes");
+                }
+
+                // The row straddles the end of the window: map a new window that begins at the start of the row
+                remap();
+                continue;
+            }
+
+            position = windowStart + rowEnd;
+            if (fieldCount > 0) return true;
+        }
+
+        return false;
+    }
+
+    private void remap() throws IOException {
+        windowStart = position;
+        windowLimit = (int)Math.min(maxWindowBytes, segmentEnd - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLimit);
+    }
+
+    private void addField(int start, int end, boolean quoted, boolean escaped) {
+        if (fieldCount == fields.length) {
+            fields = Arrays.copyOf(fields, Math.max(8, fields.length * 2));
+            for (int i = fieldCount; i < fields.length; i++) {
+                fields[i] = new CSVField();
+            }
+        }
+
+        fields[fieldCount++].set(window, start, end, quoted, escaped);
+    }
+
+    // Returns the window-relative offset just after the end of the row beginning at p, or -1 if the row does not end
+    // within the window. A blank line results in a row of zero fields.
+    private int scanRow(int p, boolean atEnd) {
+        final MappedByteBuffer b = window;
+        final int limit = windowLimit;
+
+        fieldCount = 0;
+        if (b.get(p) == '\n') return p + 1;
+        if (b.get(p) == '\r' && p + 1 < limit && b.get(p + 1) == '\n') return p + 2;
+        if (b.get(p) == '\r' && p + 1 == limit && atEnd) return limit;
+
+        while (true) {
+            if (p < limit && b.get(p) == '"') {
+                final int contentStart = p + 1;
+                boolean escaped = false;
+                int q = contentStart;
+                while (true) {
+                    while (q < limit && b.get(q) != '"') q++;
+                    if (q >= limit) {
+                        if (atEnd) throw new IllegalArgumentException("Unterminated quoted field starting at byte " + (windowStart + p));
+                        return -1;
+                    } else if (q + 1 < limit && b.get(q + 1) == '"') {
+                        escaped = true;
+                        q += 2;
+                    } else if (q + 1 >= limit && !atEnd) {
+                        // Can't tell whether this is a closing quote or the first half of an escaped one
+                        return -1;
+                    } else {
+                        break;
+                    }
+                }
+
+                addField(contentStart, q, true, escaped);
+                p = q + 1;
+                if (p < limit && b.get(p) == '\r') p++;
+                if (p < limit && b.get(p) != separator && b.get(p) != '\n') {
+                    throw new IllegalArgumentException("Unexpected character after closing quote at byte " + (windowStart + p));
+                }
+            } else {
+                final int contentStart = p;
+                while (p < limit && b.get(p) != separator && b.get(p) != '\n') p++;
+
+                int contentEnd = p;
+                if (contentEnd > contentStart && b.get(contentEnd - 1) == '\r' && (p == limit || b.get(p) == '\n')) contentEnd--;
+                addField(contentStart, contentEnd, false, false);
+            }
+
+            if (p >= limit) {
+                return atEnd ? limit : -1;
+            } else if (b.get(p) == separator) {
+                p++;
+            } else {
+                // Must be a newline
+                return p + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package uk.co.omegaprime.mdbi;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Lets one thread cancel the query that another is running, e.g. because a sibling query failed and so nobody wants
+// the result any more. The query registers its Statement while it executes, and cancelling calls Statement.cancel
+// on it. A query that hasn't started yet fails as soon as it does.
+final class Cancellation {
+    private Statement statement;
+    private boolean cancelled;
+
+    synchronized void enter(Statement statement) throws SQLException {
+        if (cancelled) throw new SQLException("Query was cancelled before it started");
+        this.statement = statement;
+    }
+
+    synchronized void exit() {
+        this.statement = null;
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException | RuntimeException ignored) {
+                // Not all drivers support this: the query will just have to run to completion
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded dictionary used to make equal values share a single instance, so that e.g. the thousands of copies of
+ * "GBP" in a long-lived cache built from a query only cost you one {@code String}.
+ * <p>
+ * Instances are thread safe, so one can be shared between many queries: see {@link Reads#canonicalizing(Read, Canonicalizer)}.
+ * Once the dictionary is full, values that aren't already in it are returned as-is.
+ */
+public class Canonicalizer<T> {
+    private final ConcurrentHashMap<T, T> map = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    private Canonicalizer(int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("Maximum size must be non-negative, but was " + maxSize);
+        this.maxSize = maxSize;
+    }
+
+    public static <T> Canonicalizer<T> create(int maxSize) {
+        return new Canonicalizer<>(maxSize);
+    }
+
+    /** Returns a value equal to the argument, which will be the first such value we saw if there was room to remember it */
+    public T canonicalize(T x) {
+        if (x == null) return null;
+
+        final T existing = map.get(x);
+        if (existing != null) return existing;
+        if (map.size() >= maxSize) return x;
+
+        final T raced = map.putIfAbsent(x, x);
+        return raced == null ? x : raced;
+    }
+
+    /** The number of distinct values in the dictionary */
+    public int size() {
+        return map.size();
+    }
+}
@@ -0,0 +1,69 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nonnull;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+
+class CanonicalizingRead<T> implements Read<T> {
+    private final Read<T> read;
+    private final int maxSize;
+    private final Canonicalizer<T> canonicalizer; // If null, we use a fresh dictionary of at most maxSize for each query
+
+    public CanonicalizingRead(Read<T> read, int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("Maximum size must be non-negative, but was " + maxSize);
+        this.read = read;
+        this.maxSize = maxSize;
+        this.canonicalizer = null;
+    }
+
+    public CanonicalizingRead(Read<T> read, Canonicalizer<T> canonicalizer) {
+        this.read = read;
+        this.maxSize = 0;
+        this.canonicalizer = canonicalizer;
+    }
+
+    @Override
+    public Class<? extends T> getElementClass() {
+        return read.getElementClass();
+    }
+
+    @Override
+    public BoundRead<T> bind(Context ctxt) {
+        final BoundRead<? extends T> boundRead = read.bind(ctxt);
+        if (canonicalizer != null) {
+            return new BoundRead<T>() {
+                @Override
+                public int arity() {
+                    return boundRead.arity();
+                }
+
+                @Override
+                public T get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
+                    return canonicalizer.canonicalize(boundRead.get(rs, ix));
+                }
+            };
+        }
+
+        // BoundReads are only ever used by one thread, so the per-query dictionary can be a plain HashMap
+        final HashMap<T, T> dictionary = new HashMap<>();
+        return new BoundRead<T>() {
+            @Override
+            public int arity() {
+                return boundRead.arity();
+            }
+
+            @Override
+            public T get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
+                final T x = boundRead.get(rs, ix);
+                if (x == null) return null;
+
+                final T existing = dictionary.get(x);
+                if (existing != null) return existing;
+
+                if (dictionary.size() < maxSize) dictionary.put(x, x);
+                return x;
+            }
+        };
+    }
+}
@@ -3,26 +3,54 @@ package uk.co.omegaprime.mdbi;
 import javax.annotation.Nonnull;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.function.Supplier;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
-class CollectionBatchRead<T, CollectionT extends Collection<T>> implements BatchRead<CollectionT> {
-    private final Supplier<? extends CollectionT> factory;
+// Accumulates every row into a collection presized from our best guess at the number of rows: the caller's hint if
+// they gave one, else a running average of the sizes of the results this instance has produced, else the fetch size
+// of the ResultSet. Learning only helps if the same instance is used for several queries.
+class CollectionBatchRead<T, CollectionT extends Collection<T>, ResultT> implements BatchRead<ResultT> {
+    private final IntFunction<? extends CollectionT> factory;
+    private final Function<? super CollectionT, ? extends ResultT> finish;
     private final Read<T> read;
+    private final int expectedSize;
+    private volatile int learnedSize;
 
-    public CollectionBatchRead(Supplier<? extends CollectionT> factory, Read<T> read) {
+    public CollectionBatchRead(IntFunction<? extends CollectionT> factory, Function<? super CollectionT, ? extends ResultT> finish, Read<T> read, int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Expected size must be non-negative, but was " + expectedSize);
         this.factory = factory;
+        this.finish = finish;
         this.read = read;
+        this.expectedSize = expectedSize;
+    }
+
+    // Don't let a few huge results make every later one allocate a huge collection up front
+    static final int MAX_LEARNED_SIZE = 1 << 16;
+
+    /** The initial capacity to give a {@code HashMap}-based collection so that it can hold {@code size} elements without rehashing */
+    static int hashCapacity(int size) {
+        return (int)Math.min(Integer.MAX_VALUE, size * 4L / 3 + 1);
     }
 
     @Override
-    public CollectionT get(@Nonnull Read.Context ctxt, @Nonnull ResultSet rs) throws SQLException {
+    public ResultT get(@Nonnull Read.Context ctxt, @Nonnull ResultSet rs) throws SQLException {
         final BoundRead<? extends T> boundRead = read.bind(ctxt);
 
-        final CollectionT result = factory.get();
+        final int learnedSize = this.learnedSize;
+        final int estimate = expectedSize > 0 ? expectedSize : learnedSize > 0 ? learnedSize : Math.max(0, rs.getFetchSize());
+        final CollectionT result = factory.apply(estimate);
+        final IndexRef ix = IndexRef.create();
         while (rs.next()) {
-            result.add(boundRead.get(rs, IndexRef.create()));
+            result.add(boundRead.get(rs, ix.reset()));
         }
-        return result;
+        final int size = result.size();
+        this.learnedSize = learnedSize == 0 ? Math.min(size, MAX_LEARNED_SIZE) : (int)Math.min(((long)learnedSize + size) / 2, MAX_LEARNED_SIZE);
+
+        final ResultT finished = finish.apply(result);
+        // If we handed back the list itself, don't let it hang on to much more space than it needs
+        if (finished == result && result instanceof ArrayList && size < estimate / 2) ((ArrayList<?>)result).trimToSize();
+        return finished;
     }
 }
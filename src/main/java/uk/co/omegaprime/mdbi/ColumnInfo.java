@@ -0,0 +1,100 @@
+package uk.co.omegaprime.mdbi;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+// What the ResultSetMetaData says about the column that a unary BoundRead consumes. We only consult the metadata
+// when we see a new ResultSet (or column index), so the cost is paid once per query rather than once per row.
+//
+// Note that primitive reads trust the driver's claim that a column has no nulls: if it is wrong, they will return
+// 0 rather than failing. Boxed reads always check wasNull, so they can't silently turn a null into a 0.
+//
+// Some drivers (e.g. SQLite) report the type of the value in the current row from getColumnType, so we never route on
+// it: only the declared precision and scale are trusted to describe every row of the column.
+final class ColumnInfo {
+    private ResultSet rs;
+    private int ix;
+
+    /** Whether the database guarantees the column contains no nulls, in which case {@code wasNull} checks can be skipped */
+    boolean notNull;
+    // Whether to use the driver's own java.time support for this column: worked out lazily since most reads don't care
+    private Boolean javaTime;
+    // The scale of the column, or -1 if we haven't asked or the driver wouldn't tell us
+    private int scale;
+    // Whether the column is declared to hold integers that fit in a long, or null if we haven't asked
+    private Boolean integral;
+
+    void refresh(ResultSet rs, int ix) {
+        if (rs == this.rs && ix == this.ix) return;
+
+        this.rs = rs;
+        this.ix = ix;
+        this.javaTime = null;
+        this.scale = -1;
+        this.integral = null;
+        try {
+            final ResultSetMetaData metaData = rs.getMetaData();
+            notNull = metaData.isNullable(ix) == ResultSetMetaData.columnNoNulls;
+        } catch (SQLException | RuntimeException e) {
+            // Not all drivers support this (at least not for all columns): just fall back on the general case
+            notNull = false;
+        }
+    }
+
+    boolean javaTime(Class<?> type) {
+        if (javaTime == null) javaTime = JavaTimeSupport.isSupported(rs, type);
+        return javaTime;
+    }
+
+    /** The number of digits after the decimal point according to the metadata, or 0 if we don't know */
+    int scale() {
+        if (scale < 0) {
+            try {
+                scale = Math.max(rs.getMetaData().getScale(ix), 0);
+            } catch (SQLException | RuntimeException e) {
+                scale = 0;
+            }
+        }
+
+        return scale;
+    }
+
+    /** Whether the declared precision and scale say that every value is an integer that can be read with {@code getLong} */
+    boolean integral() {
+        if (integral == null) {
+            try {
+                final ResultSetMetaData metaData = rs.getMetaData();
+                final int precision = metaData.getPrecision(ix);
+                integral = precision > 0 && precision <= MAX_LONG_DIGITS && metaData.getScale(ix) == 0 && isExactNumeric(metaData.getColumnType(ix));
+            } catch (SQLException | RuntimeException e) {
+                integral = false;
+            }
+        }
+
+        return integral;
+    }
+
+    // Every number with this many digits fits in a long
+    private static final int MAX_LONG_DIGITS = 18;
+
+    // Floating point columns sometimes report a scale of 0 too, so we need to rule those out
+    private static boolean isExactNumeric(int type) {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    void disableJavaTime() {
+        javaTime = false;
+    }
+}
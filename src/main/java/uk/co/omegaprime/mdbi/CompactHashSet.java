@@ -0,0 +1,87 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.*;
+
+// An immutable set that iterates in insertion order, like a LinkedHashSet, but without a node per element: the
+// elements live in a trimmed array, and an open-addressing table of array indexes makes contains() fast.
+final class CompactHashSet<T> extends AbstractSet<T> {
+    private final Object[] elements;
+    private final int[] table; // 1 + the index in elements, or 0 if the slot is empty
+
+    private CompactHashSet(Object[] elements, int[] table) {
+        this.elements = elements;
+        this.table = table;
+    }
+
+    /** Returns a set of the distinct elements of the collection, in the order that they first occur */
+    static <T> Set<T> copyOf(Collection<? extends T> collection) {
+        final Object[] elements = new Object[collection.size()];
+        final int[] table = new int[PrimitiveMaps.capacityFor(collection.size())];
+        int size = 0;
+        for (T x : collection) {
+            final int slot = find(elements, table, x);
+            if (slot < 0) {
+                elements[size] = x;
+                table[~slot] = ++size;
+            }
+        }
+        if (size == elements.length) return new CompactHashSet<>(elements, table);
+
+        // There were duplicates, so the table we sized for the whole collection may be much bigger than we need
+        final Object[] distinct = Arrays.copyOf(elements, size);
+        final int capacity = PrimitiveMaps.capacityFor(size);
+        return new CompactHashSet<>(distinct, capacity == table.length ? table : index(distinct, capacity));
+    }
+
+    private static int[] index(Object[] elements, int capacity) {
+        final int[] table = new int[capacity];
+        for (int i = 0; i < elements.length; i++) {
+            table[~find(elements, table, elements[i])] = i + 1;
+        }
+        return table;
+    }
+
+    // Returns the slot in the table referring to the element, or the complement of the empty slot where it should go
+    private static int find(Object[] elements, int[] table, Object x) {
+        final int mask = table.length - 1;
+        for (int i = PrimitiveMaps.hash(Objects.hashCode(x)) & mask; ; i = (i + 1) & mask) {
+            final int entry = table[i];
+            if (entry == 0) return ~i;
+            if (Objects.equals(elements[entry - 1], x)) return i;
+        }
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return find(elements, table, o) >= 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < elements.length;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return (T)elements[i++];
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return elements.clone();
+    }
+}
@@ -0,0 +1,135 @@
+package uk.co.omegaprime.mdbi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compiles constructor/method calls whose arguments come from BoundReads into a single MethodHandle of type
+// (ResultSet, IndexRef)Object. Compared to Constructor.newInstance/Method.invoke this avoids the per-call argument
+// array and access checks, and primitive arguments are passed straight through from PrimitiveBoundReads unboxed.
+final class CompiledReads {
+    private CompiledReads() {}
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType READ_TYPE = MethodType.methodType(Object.class, ResultSet.class, IndexRef.class);
+
+    private static final MethodHandle GET, GET_INT, GET_LONG, GET_DOUBLE;
+    static {
+        try {
+            GET        = LOOKUP.findVirtual(BoundRead.class,                 "get",       MethodType.methodType(Object.class, ResultSet.class, IndexRef.class));
+            GET_INT    = LOOKUP.findVirtual(PrimitiveBoundRead.OfInt.class,    "getInt",    MethodType.methodType(int.class,    ResultSet.class, IndexRef.class));
+            GET_LONG   = LOOKUP.findVirtual(PrimitiveBoundRead.OfLong.class,   "getLong",   MethodType.methodType(long.class,   ResultSet.class, IndexRef.class));
+            GET_DOUBLE = LOOKUP.findVirtual(PrimitiveBoundRead.OfDouble.class, "getDouble", MethodType.methodType(double.class, ResultSet.class, IndexRef.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Returns a handle of type {@code (ResultSet, IndexRef)type} that reads a value using the given {@code BoundRead}. */
+    private static MethodHandle read(BoundRead<?> boundRead, Class<?> type) {
+        if (type == int.class && boundRead instanceof PrimitiveBoundRead.OfInt) {
+            return GET_INT.bindTo(boundRead);
+        } else if (type == long.class && boundRead instanceof PrimitiveBoundRead.OfLong) {
+            return GET_LONG.bindTo(boundRead);
+        } else if (type == double.class && boundRead instanceof PrimitiveBoundRead.OfDouble) {
+            return GET_DOUBLE.bindTo(boundRead);
+        } else {
+            return GET.bindTo(boundRead).asType(MethodType.methodType(type, ResultSet.class, IndexRef.class));
+        }
+    }
+
+    public static MethodHandle constructor(Constructor<?> constructor, List<? extends BoundRead<?>> boundReads) {
+        try {
+            return applyToReads(LOOKUP.unreflectConstructor(constructor).asFixedArity(), boundReads);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Constructor " + constructor + " was not accessible, though we should have already checked that", e);
+        }
+    }
+
+    public static MethodHandle method(Method method, Object receiver, List<? extends BoundRead<?>> boundReads) {
+        try {
+            return applyToReads(LOOKUP.unreflect(method).asFixedArity().bindTo(receiver), boundReads);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Method " + method + " was not accessible, though we should have already checked that", e);
+        }
+    }
+
+    // Evaluates the reads strictly in order (they share the IndexRef) and then calls the target on the results
+    private static MethodHandle applyToReads(MethodHandle target, List<? extends BoundRead<?>> boundReads) {
+        final Class<?>[] params = target.type().parameterArray();
+        final int n = params.length;
+        if (boundReads.size() != n) {
+            throw new IllegalArgumentException("Expected " + n + " reads for " + target + " but got " + boundReads.size());
+        }
+
+        // Permute the target so that it takes its arguments in reverse order, followed by the ResultSet and IndexRef:
+        //   (p[n-1], ..., p[0], ResultSet, IndexRef)
+        // We can then fold in the reads from last to first. foldArguments runs the combiner before the target, so the
+        // outermost fold (that of the first argument) is the one that executes first.
+        final Class<?>[] reversed = new Class<?>[n + 2];
+        final int[] reorder = new int[n + 2];
+        for (int i = 0; i < n; i++) {
+            reversed[n - 1 - i] = params[i];
+            reorder[i] = n - 1 - i;
+        }
+        reversed[n] = ResultSet.class;
+        reversed[n + 1] = IndexRef.class;
+        reorder[n] = n;
+        reorder[n + 1] = n + 1;
+
+        MethodHandle result = MethodHandles.permuteArguments(
+                MethodHandles.dropArguments(target, n, ResultSet.class, IndexRef.class),
+                MethodType.methodType(target.type().returnType(), reversed), reorder);
+        for (int i = n - 1; i >= 0; i--) {
+            // Combiner type: (p[i-1], ..., p[0], ResultSet, IndexRef)p[i]
+            final List<Class<?>> earlier = Arrays.asList(reversed).subList(n - i, n);
+            result = MethodHandles.foldArguments(result, MethodHandles.dropArguments(read(boundReads.get(i), params[i]), 0, earlier));
+        }
+
+        return result.asType(READ_TYPE);
+    }
+
+    /** Returns a handle that constructs a bean with a nullary constructor and then calls each setter with the corresponding read. */
+    public static MethodHandle bean(Constructor<?> constructor, Method[] setters, List<? extends BoundRead<?>> boundReads) {
+        final Class<?> klass = constructor.getDeclaringClass();
+        final List<MethodHandle> setterHandles = new ArrayList<>();
+        final MethodHandle constructorHandle;
+        try {
+            constructorHandle = LOOKUP.unreflectConstructor(constructor);
+            for (Method setter : setters) {
+                setterHandles.add(LOOKUP.unreflect(setter).asFixedArity());
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Bean " + klass + " was not accessible, though we should have already checked that", e);
+        }
+
+        // (T, ResultSet, IndexRef)T: just returns the bean once all the setters have run
+        MethodHandle result = MethodHandles.dropArguments(MethodHandles.identity(klass), 1, ResultSet.class, IndexRef.class);
+        for (int i = setters.length - 1; i >= 0; i--) {
+            final Class<?> param = setters[i].getParameterTypes()[0];
+            final MethodHandle setter = setterHandles.get(i).asType(MethodType.methodType(void.class, klass, param));
+            // (T, ResultSet, IndexRef)void
+            result = MethodHandles.foldArguments(result, MethodHandles.collectArguments(setter, 1, read(boundReads.get(i), param)));
+        }
+
+        return MethodHandles.foldArguments(result, constructorHandle).asType(READ_TYPE);
+    }
+
+    public static Object invoke(MethodHandle handle, ResultSet rs, IndexRef ix) throws SQLException {
+        try {
+            return (Object)handle.invokeExact(rs, ix);
+        } catch (RuntimeException | Error | SQLException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
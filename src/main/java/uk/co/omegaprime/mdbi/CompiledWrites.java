@@ -0,0 +1,94 @@
+package uk.co.omegaprime.mdbi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+// The Write counterpart of CompiledReads: turns a sequence of bean getters feeding BoundWrites into a single
+// MethodHandle of type (PreparedStatement, IndexRef, Object)void. Primitive getters feed PrimitiveBoundWrites unboxed.
+final class CompiledWrites {
+    private CompiledWrites() {}
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType SET_TYPE = MethodType.methodType(void.class, PreparedStatement.class, IndexRef.class, Object.class);
+    private static final MethodType GET_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodHandle SET, SET_INT, SET_LONG, SET_DOUBLE, NOTHING;
+    static {
+        try {
+            SET        = LOOKUP.findVirtual(BoundWrite.class,                  "set",       MethodType.methodType(void.class, PreparedStatement.class, IndexRef.class, Object.class));
+            SET_INT    = LOOKUP.findVirtual(PrimitiveBoundWrite.OfInt.class,    "setInt",    MethodType.methodType(void.class, PreparedStatement.class, IndexRef.class, int.class));
+            SET_LONG   = LOOKUP.findVirtual(PrimitiveBoundWrite.OfLong.class,   "setLong",   MethodType.methodType(void.class, PreparedStatement.class, IndexRef.class, long.class));
+            SET_DOUBLE = LOOKUP.findVirtual(PrimitiveBoundWrite.OfDouble.class, "setDouble", MethodType.methodType(void.class, PreparedStatement.class, IndexRef.class, double.class));
+            NOTHING    = LOOKUP.findStatic(CompiledWrites.class, "nothing", MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static void nothing() {}
+
+    /** Returns a handle of type {@code (PreparedStatement, IndexRef, type)void} that sets a value using the given {@code BoundWrite}. */
+    private static MethodHandle write(BoundWrite<?> boundWrite, Class<?> type) {
+        if (type == int.class && boundWrite instanceof PrimitiveBoundWrite.OfInt) {
+            return SET_INT.bindTo(boundWrite);
+        } else if (type == long.class && boundWrite instanceof PrimitiveBoundWrite.OfLong) {
+            return SET_LONG.bindTo(boundWrite);
+        } else if (type == double.class && boundWrite instanceof PrimitiveBoundWrite.OfDouble) {
+            return SET_DOUBLE.bindTo(boundWrite);
+        } else {
+            return SET.bindTo(boundWrite).asType(MethodType.methodType(void.class, PreparedStatement.class, IndexRef.class, type));
+        }
+    }
+
+    private static MethodHandle unreflect(Method getter) {
+        try {
+            return LOOKUP.unreflect(getter);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Method " + getter + " was not accessible, though we should have already checked that", e);
+        }
+    }
+
+    /** Returns a handle of type {@code (Object)Object} that calls the getter. */
+    public static MethodHandle getter(Method getter) {
+        return unreflect(getter).asType(GET_TYPE);
+    }
+
+    /** Returns a handle of type {@code (PreparedStatement, IndexRef, Object)void} that writes each getter's result in turn. */
+    public static MethodHandle bean(Class<?> klass, Method[] getters, List<? extends BoundWrite<?>> boundWrites) {
+        MethodHandle result = MethodHandles.dropArguments(NOTHING, 0, PreparedStatement.class, IndexRef.class, klass);
+        for (int i = getters.length - 1; i >= 0; i--) {
+            final Class<?> type = getters[i].getReturnType();
+            final MethodHandle getter = unreflect(getters[i]).asType(MethodType.methodType(type, klass));
+            // (PreparedStatement, IndexRef, T)void. foldArguments runs this before the rest, so the writes happen in order.
+            result = MethodHandles.foldArguments(result, MethodHandles.filterArguments(write(boundWrites.get(i), type), 2, getter));
+        }
+
+        return result.asType(SET_TYPE);
+    }
+
+    public static void invokeSet(MethodHandle handle, PreparedStatement s, IndexRef ix, Object x) throws SQLException {
+        try {
+            handle.invokeExact(s, ix, x);
+        } catch (RuntimeException | Error | SQLException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    public static Object invokeGet(MethodHandle handle, Object x) {
+        try {
+            return (Object)handle.invokeExact(x);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
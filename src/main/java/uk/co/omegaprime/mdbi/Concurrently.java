@@ -0,0 +1,104 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nullable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Runs several queries at once and waits for them all. If we weren't given an Executor, we start threads for the
+// duration, as the CSV loader does: the queries spend their time blocked on the database, so there is no point
+// sharing a CPU-sized pool with them.
+//
+// As soon as any query fails we cancel the rest, both by interrupting them and by cancelling their Statements.
+final class Concurrently {
+    private Concurrently() {}
+
+    interface Action<T> {
+        T run(@Nullable Cancellation cancellation) throws SQLException;
+    }
+
+    /**
+     * Returns the results of the actions in order, running at most {@code maxConcurrency} of them at once. If any fails,
+     * throws the exception of the first to do so.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> List<T> runAll(@Nullable Executor executor, int maxConcurrency, List<? extends Action<? extends T>> actions, String threadName) throws SQLException {
+        if (maxConcurrency < 1) throw new IllegalArgumentException("Maximum concurrency must be positive, but was " + maxConcurrency);
+
+        final int concurrency = Math.min(maxConcurrency, actions.size());
+        final ExecutorService ownExecutor = executor != null ? null : Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            final Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionService<Integer> completions = new ExecutorCompletionService<>(executor != null ? executor : ownExecutor);
+
+        final Object[] results = new Object[actions.size()];
+        final Cancellation[] cancellations = new Cancellation[actions.size()];
+        final List<Future<Integer>> futures = new ArrayList<>(actions.size());
+        try {
+            int submitted = 0;
+            for (; submitted < concurrency; submitted++) {
+                futures.add(submit(completions, actions, submitted, cancellations, results));
+            }
+
+            for (int completed = 0; completed < actions.size(); completed++) {
+                await(take(completions));
+                if (submitted < actions.size()) {
+                    futures.add(submit(completions, actions, submitted++, cancellations, results));
+                }
+            }
+
+            return (List<T>)Arrays.asList(results);
+        } finally {
+            // Only has any effect if we failed
+            for (Cancellation cancellation : cancellations) {
+                if (cancellation != null) cancellation.cancel();
+            }
+            for (Future<Integer> future : futures) future.cancel(true);
+            if (ownExecutor != null) ownExecutor.shutdownNow();
+        }
+    }
+
+    private static <T> Future<Integer> submit(CompletionService<Integer> completions, List<? extends Action<? extends T>> actions, int i,
+                                              Cancellation[] cancellations, Object[] results) {
+        final Cancellation cancellation = cancellations[i] = new Cancellation();
+        return completions.submit(() -> {
+            results[i] = actions.get(i).run(cancellation);
+            return i;
+        });
+    }
+
+    private static <T> Future<T> take(CompletionService<T> completions) {
+        try {
+            return completions.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for concurrent queries to complete", e);
+        }
+    }
+
+    static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for concurrent queries to complete", e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Concurrent query was cancelled", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package uk.co.omegaprime.mdbi;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * An immutable object describing how to map Java types to SQL ones, and vice versa.
@@ -25,36 +30,48 @@ public class Context {
             return new Builder(new Reads.Map(), new Writes.Map());
         }
 
-        /** Returns a builder with the default set of type mappings, covering basic JDK types. */
+        /**
+         * Returns a builder with the default set of type mappings, covering basic JDK types.
+         * <p>
+         * UUIDs are mapped to their string form: register e.g. {@link Writes#UUID_BINARY} and {@link Reads#UUID_BINARY}
+         * instead if your schema stores them as {@code BINARY(16)}.
+         */
         public static Builder createDefault() {
             final Builder context = createEmpty();
-            context.register(boolean.class,       Writes.PRIM_BOOLEAN,    Reads.PRIM_BOOLEAN);
-            context.register(Boolean.class,       Writes.BOOLEAN,         Reads.BOOLEAN);
-            context.register(byte.class,          Writes.PRIM_BYTE,       Reads.PRIM_BYTE);
-            context.register(Byte.class,          Writes.BYTE,            Reads.BYTE);
-            context.register(char.class,          Writes.PRIM_CHAR,       Reads.PRIM_CHAR);
-            context.register(Character.class,     Writes.CHARACTER,       Reads.CHARACTER);
-            context.register(short.class,         Writes.PRIM_SHORT,      Reads.PRIM_SHORT);
-            context.register(Short.class,         Writes.SHORT,           Reads.SHORT);
-            context.register(int.class,           Writes.PRIM_INT,        Reads.PRIM_INT);
-            context.register(Integer.class,       Writes.INTEGER,         Reads.INTEGER);
-            context.register(long.class,          Writes.PRIM_LONG,       Reads.PRIM_LONG);
-            context.register(Long.class,          Writes.LONG,            Reads.LONG);
-            context.register(float.class,         Writes.PRIM_FLOAT,      Reads.PRIM_FLOAT);
-            context.register(Float.class,         Writes.FLOAT,           Reads.FLOAT);
-            context.register(double.class,        Writes.PRIM_DOUBLE,     Reads.PRIM_DOUBLE);
-            context.register(Double.class,        Writes.DOUBLE,          Reads.DOUBLE);
-            context.register(String.class,        Writes.STRING,          Reads.STRING);
-            context.register(LocalDate.class,     Writes.LOCAL_DATE,      Reads.LOCAL_DATE);
-            context.register(LocalTime.class,     Writes.LOCAL_TIME,      Reads.LOCAL_TIME);
-            context.register(LocalDateTime.class, Writes.LOCAL_DATE_TIME, Reads.LOCAL_DATE_TIME);
-            context.register(byte[].class,        Writes.BYTE_ARRAY,      Reads.BYTE_ARRAY);
-            context.register(BigDecimal.class,    Writes.BIG_DECIMAL,     Reads.BIG_DECIMAL);
+            context.register(boolean.class,        Writes.PRIM_BOOLEAN,     Reads.PRIM_BOOLEAN);
+            context.register(Boolean.class,        Writes.BOOLEAN,          Reads.BOOLEAN);
+            context.register(byte.class,           Writes.PRIM_BYTE,        Reads.PRIM_BYTE);
+            context.register(Byte.class,           Writes.BYTE,             Reads.BYTE);
+            context.register(char.class,           Writes.PRIM_CHAR,        Reads.PRIM_CHAR);
+            context.register(Character.class,      Writes.CHARACTER,        Reads.CHARACTER);
+            context.register(short.class,          Writes.PRIM_SHORT,       Reads.PRIM_SHORT);
+            context.register(Short.class,          Writes.SHORT,            Reads.SHORT);
+            context.register(int.class,            Writes.PRIM_INT,         Reads.PRIM_INT);
+            context.register(Integer.class,        Writes.INTEGER,          Reads.INTEGER);
+            context.register(long.class,           Writes.PRIM_LONG,        Reads.PRIM_LONG);
+            context.register(Long.class,           Writes.LONG,             Reads.LONG);
+            context.register(float.class,          Writes.PRIM_FLOAT,       Reads.PRIM_FLOAT);
+            context.register(Float.class,          Writes.FLOAT,            Reads.FLOAT);
+            context.register(double.class,         Writes.PRIM_DOUBLE,      Reads.PRIM_DOUBLE);
+            context.register(Double.class,         Writes.DOUBLE,           Reads.DOUBLE);
+            context.register(String.class,         Writes.STRING,           Reads.STRING);
+            context.register(LocalDate.class,      Writes.LOCAL_DATE,       Reads.LOCAL_DATE);
+            context.register(LocalTime.class,      Writes.LOCAL_TIME,       Reads.LOCAL_TIME);
+            context.register(LocalDateTime.class,  Writes.LOCAL_DATE_TIME,  Reads.LOCAL_DATE_TIME);
+            context.register(OffsetDateTime.class, Writes.OFFSET_DATE_TIME, Reads.OFFSET_DATE_TIME);
+            context.register(Instant.class,        Writes.INSTANT,          Reads.INSTANT);
+            context.register(byte[].class,         Writes.BYTE_ARRAY,       Reads.BYTE_ARRAY);
+            context.register(BigDecimal.class,     Writes.BIG_DECIMAL,      Reads.BIG_DECIMAL);
+            context.register(UUID.class,           Writes.UUID_STRING,      Reads.UUID_STRING);
+            context.register(int[].class,          Writes.intArray(),       Reads.intArray());
+            context.register(long[].class,         Writes.longArray(),      Reads.longArray());
+            context.register(double[].class,       Writes.doubleArray(),    Reads.doubleArray());
+            context.register(String[].class,       Writes.stringArray(),    Reads.stringArray());
             return context;
         }
 
         public static Builder createFromContext(Context context) {
-            return new Builder(context.readers, context.writers);
+            return new Builder(new Reads.Map(context.readers), new Writes.Map(context.writers));
         }
 
         private Builder(Reads.Map readers, Writes.Map writers) {
@@ -86,6 +103,45 @@ public class Context {
             return register(klass, Writes.bean(klass, fields), Reads.bean(klass, fields));
         }
 
+        /**
+         * Registers the {@code Read} and {@code Write} that the MDBI annotation processor generated for a class annotated
+         * with {@link MdbiTuple} or {@link MdbiBean}.
+         * <p>
+         * This finds the generated class by name. If you would rather avoid that (e.g. to skip reflection entirely in
+         * a GraalVM native image), call the {@code register} method of the generated class yourself.
+         */
+        public Builder registerGenerated(Class<?> klass) {
+            final String generatedName = generatedClassName(klass);
+            try {
+                final Class<?> generated = Class.forName(generatedName, true, klass.getClassLoader());
+                generated.getMethod("register", Builder.class).invoke(null, this);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("No generated class " + generatedName + " for " + klass + ": is it annotated, and is the MDBI annotation processor on your compile path?", e);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalArgumentException("Class " + generatedName + " does not look like it was generated by MDBI", e);
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+                if (cause instanceof Error) throw (Error)cause;
+                throw new UndeclaredThrowableException(cause);
+            }
+            return this;
+        }
+
+        // Must agree with the naming scheme used by the annotation processor. We avoid Class.getPackage because
+        // it may return null for classes that were not loaded by a conventional class loader (e.g. in a native image).
+        private static String generatedClassName(Class<?> klass) {
+            Class<?> outermost = klass;
+            String name = klass.getSimpleName();
+            for (Class<?> outer = klass.getEnclosingClass(); outer != null; outer = outer.getEnclosingClass()) {
+                name = outer.getSimpleName() + "_" + name;
+                outermost = outer;
+            }
+
+            final int lastDot = outermost.getName().lastIndexOf('.');
+            return (lastDot < 0 ? "" : outermost.getName().substring(0, lastDot + 1)) + name + "_Mdbi";
+        }
+
         public Context build() {
             return new Context(new Reads.Map(readers), new Writes.Map(writers));
         }
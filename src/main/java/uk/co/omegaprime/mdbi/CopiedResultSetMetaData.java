@@ -0,0 +1,95 @@
+package uk.co.omegaprime.mdbi;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+// A copy of everything a ResultSetMetaData says about each column, so that it can be consulted after the ResultSet it
+// came from has been closed, or from threads other than the one reading the ResultSet. If the driver refused to tell
+// us something, we remember the exception and throw it when that property is asked for.
+class CopiedResultSetMetaData implements ResultSetMetaData {
+    private interface Property {
+        Object get(ResultSetMetaData rsmd, int column) throws SQLException;
+    }
+
+    private static final int AUTO_INCREMENT = 0, CASE_SENSITIVE = 1, SEARCHABLE = 2, CURRENCY = 3, NULLABLE = 4, SIGNED = 5,
+                             DISPLAY_SIZE = 6, LABEL = 7, NAME = 8, SCHEMA_NAME = 9, PRECISION = 10, SCALE = 11, TABLE_NAME = 12,
+                             CATALOG_NAME = 13, TYPE = 14, TYPE_NAME = 15, READ_ONLY = 16, WRITABLE = 17, DEFINITELY_WRITABLE = 18,
+                             CLASS_NAME = 19;
+
+    private static final Property[] PROPERTIES = {
+        ResultSetMetaData::isAutoIncrement, ResultSetMetaData::isCaseSensitive, ResultSetMetaData::isSearchable,
+        ResultSetMetaData::isCurrency, ResultSetMetaData::isNullable, ResultSetMetaData::isSigned,
+        ResultSetMetaData::getColumnDisplaySize, ResultSetMetaData::getColumnLabel, ResultSetMetaData::getColumnName,
+        ResultSetMetaData::getSchemaName, ResultSetMetaData::getPrecision, ResultSetMetaData::getScale,
+        ResultSetMetaData::getTableName, ResultSetMetaData::getCatalogName, ResultSetMetaData::getColumnType,
+        ResultSetMetaData::getColumnTypeName, ResultSetMetaData::isReadOnly, ResultSetMetaData::isWritable,
+        ResultSetMetaData::isDefinitelyWritable, ResultSetMetaData::getColumnClassName,
+    };
+
+    // Indexed by column - 1, then by property
+    private final Object[][] values;
+
+    public CopiedResultSetMetaData(ResultSetMetaData rsmd) throws SQLException {
+        values = new Object[rsmd.getColumnCount()][];
+        for (int i = 0; i < values.length; i++) {
+            final Object[] column = values[i] = new Object[PROPERTIES.length];
+            for (int j = 0; j < PROPERTIES.length; j++) {
+                try {
+                    column[j] = PROPERTIES[j].get(rsmd, i + 1);
+                } catch (SQLException | RuntimeException e) {
+                    column[j] = e;
+                }
+            }
+        }
+    }
+
+    private Object get(int property, int column) throws SQLException {
+        if (column < 1 || column > values.length) throw new SQLException("Invalid column index " + column);
+
+        final Object result = values[column - 1][property];
+        if (result instanceof SQLException) {
+            throw new SQLException((SQLException)result);
+        } else if (result instanceof RuntimeException) {
+            throw new SQLException((RuntimeException)result);
+        } else {
+            return result;
+        }
+    }
+
+    @Override
+    public int getColumnCount() throws SQLException {
+        return values.length;
+    }
+
+    @Override public boolean isAutoIncrement(int column) throws SQLException      { return (Boolean)get(AUTO_INCREMENT, column); }
+    @Override public boolean isCaseSensitive(int column) throws SQLException      { return (Boolean)get(CASE_SENSITIVE, column); }
+    @Override public boolean isSearchable(int column) throws SQLException         { return (Boolean)get(SEARCHABLE, column); }
+    @Override public boolean isCurrency(int column) throws SQLException           { return (Boolean)get(CURRENCY, column); }
+    @Override public int isNullable(int column) throws SQLException               { return (Integer)get(NULLABLE, column); }
+    @Override public boolean isSigned(int column) throws SQLException             { return (Boolean)get(SIGNED, column); }
+    @Override public int getColumnDisplaySize(int column) throws SQLException     { return (Integer)get(DISPLAY_SIZE, column); }
+    @Override public String getColumnLabel(int column) throws SQLException        { return (String)get(LABEL, column); }
+    @Override public String getColumnName(int column) throws SQLException         { return (String)get(NAME, column); }
+    @Override public String getSchemaName(int column) throws SQLException         { return (String)get(SCHEMA_NAME, column); }
+    @Override public int getPrecision(int column) throws SQLException             { return (Integer)get(PRECISION, column); }
+    @Override public int getScale(int column) throws SQLException                 { return (Integer)get(SCALE, column); }
+    @Override public String getTableName(int column) throws SQLException          { return (String)get(TABLE_NAME, column); }
+    @Override public String getCatalogName(int column) throws SQLException        { return (String)get(CATALOG_NAME, column); }
+    @Override public int getColumnType(int column) throws SQLException            { return (Integer)get(TYPE, column); }
+    @Override public String getColumnTypeName(int column) throws SQLException     { return (String)get(TYPE_NAME, column); }
+    @Override public boolean isReadOnly(int column) throws SQLException           { return (Boolean)get(READ_ONLY, column); }
+    @Override public boolean isWritable(int column) throws SQLException           { return (Boolean)get(WRITABLE, column); }
+    @Override public boolean isDefinitelyWritable(int column) throws SQLException { return (Boolean)get(DEFINITELY_WRITABLE, column); }
+    @Override public String getColumnClassName(int column) throws SQLException    { return (String)get(CLASS_NAME, column); }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,91 @@
+package uk.co.omegaprime.mdbi;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Conversions for fixed-scale decimals represented as unscaled longs, e.g. 1.25 at scale 6 is 1250000. Everything
+// here fails with an ArithmeticException rather than silently rounding or overflowing.
+final class Decimals {
+    private Decimals() {}
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    static int checkScale(int scale) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Scale must be between 0 and " + (POWERS_OF_TEN.length - 1) + " inclusive, but was " + scale);
+        }
+
+        return scale;
+    }
+
+    /** Turns an integer into its unscaled representation at the given scale */
+    static long scale(long x, int scale) {
+        try {
+            return Math.multiplyExact(x, POWERS_OF_TEN[scale]);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException(x + " does not fit in a long at scale " + scale);
+        }
+    }
+
+    /** Parses a plain decimal string without going via BigDecimal, unless it turns out to use an exponent or similar */
+    static long parse(String s, int scale) {
+        final int n = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        // We accumulate negative numbers negatively so that Long.MIN_VALUE is representable
+        long result = 0;
+        int fractionDigits = -1;
+        boolean anyDigits = false;
+        try {
+            for (; i < n; i++) {
+                final char c = s.charAt(i);
+                if (c == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                    continue;
+                } else if (c < '0' || c > '9') {
+                    return parseSlow(s, scale);
+                }
+
+                anyDigits = true;
+                if (fractionDigits == scale) {
+                    // Trailing zeros beyond our scale are harmless, anything else will be rejected by the slow path
+                    if (c != '0') return parseSlow(s, scale);
+                    continue;
+                } else if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+
+                final int digit = c - '0';
+                result = Math.addExact(Math.multiplyExact(result, 10), negative ? -digit : digit);
+            }
+
+            if (!anyDigits) throw new NumberFormatException("Not a decimal number: " + s);
+            return fractionDigits >= scale ? result : Math.multiplyExact(result, POWERS_OF_TEN[scale - Math.max(fractionDigits, 0)]);
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException(s + " can't be represented as a long at scale " + scale);
+        }
+    }
+
+    private static long parseSlow(String s, int scale) {
+        try {
+            return new BigDecimal(s).setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException(s + " can't be represented as a long at scale " + scale);
+        }
+    }
+
+    static BigDecimal toBigDecimal(long unscaled, int scale) {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+}
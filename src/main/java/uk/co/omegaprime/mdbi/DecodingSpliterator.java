@@ -0,0 +1,96 @@
+package uk.co.omegaprime.mdbi;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Decodes rows that were buffered with getObject. BoundReads are stateful, so each split binds the Read afresh:
+// that is what lets the splits be decoded on different threads at once. SQLExceptions thrown while decoding are
+// wrapped in UndeclaredThrowableException, since a Spliterator can't throw them.
+class DecodingSpliterator<T> implements Spliterator<T> {
+    // Below this size, splitting costs more than it saves
+    private static final int MIN_SPLIT_SIZE = 256;
+
+    private final Read.Context ctxt;
+    private final Read<T> read;
+    private final ResultSet rs;
+    private final ResultSetMetaData metaData;
+    private final List<Object[]> rows;
+    private int from;
+    private final int to;
+
+    // Lazily initialized, so that splitting is cheap
+    private BufferedResultSet buffered;
+    private BoundRead<? extends T> boundRead;
+    private IndexRef ix;
+
+    public DecodingSpliterator(Read.Context ctxt, Read<T> read, ResultSet rs, ResultSetMetaData metaData, List<Object[]> rows) {
+        this(ctxt, read, rs, metaData, rows, 0, rows.size());
+    }
+
+    private DecodingSpliterator(Read.Context ctxt, Read<T> read, ResultSet rs, ResultSetMetaData metaData, List<Object[]> rows, int from, int to) {
+        this.ctxt = ctxt;
+        this.read = read;
+        this.rs = rs;
+        this.metaData = metaData;
+        this.rows = rows;
+        this.from = from;
+        this.to = to;
+    }
+
+    /** Copies every remaining row of the {@code ResultSet}: see {@link BufferedResultSet#copyRow(ResultSet, int)} */
+    static void buffer(ResultSet rs, int columns, List<Object[]> into, int maxRows) throws SQLException {
+        while (into.size() < maxRows && rs.next()) {
+            into.add(BufferedResultSet.copyRow(rs, columns));
+        }
+    }
+
+    T decode(int i) throws SQLException {
+        if (buffered == null) {
+            buffered = new BufferedResultSet(rs, metaData, 0, metaData.getColumnCount()).reset(rows);
+            boundRead = read.bind(ctxt);
+            ix = IndexRef.create();
+        }
+
+        buffered.absolute(i + 1);
+        return boundRead.get(buffered, ix.reset());
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (from >= to) return false;
+
+        final T result;
+        try {
+            result = decode(from++);
+        } catch (SQLException e) {
+            throw new UndeclaredThrowableException(e);
+        }
+        action.accept(result);
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (to - from < 2 * MIN_SPLIT_SIZE) return null;
+
+        final int mid = (from + to) >>> 1;
+        final Spliterator<T> prefix = new DecodingSpliterator<>(ctxt, read, rs, metaData, rows, from, mid);
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+    }
+}
@@ -0,0 +1,89 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+// Hands each run of rows with the same key to a consumer as soon as the run ends, optionally consuming on an Executor.
+// When we use an Executor, the number of groups that have been read but not yet consumed is bounded, so that a slow
+// consumer makes us stop reading rather than buffer the whole result in memory.
+@ParametersAreNonnullByDefault
+class ForEachGroupBatchRead<K, V> implements BatchRead<Long> {
+    private final Read<K> readKey;
+    private final BatchRead<V> readValue;
+    private final BiConsumer<? super K, ? super V> action;
+    private final @Nullable Executor executor;
+    private final int maxInFlight;
+
+    public ForEachGroupBatchRead(Read<K> readKey, BatchRead<V> readValue, BiConsumer<? super K, ? super V> action, @Nullable Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("Must allow at least one group in flight, but got " + maxInFlight);
+        this.readKey = readKey;
+        this.readValue = readValue;
+        this.action = action;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public Long get(Read.Context ctxt, ResultSet rs) throws SQLException {
+        final KeyGroupResultSet<K> groups = new KeyGroupResultSet<>(rs, readKey.bind(ctxt));
+        if (executor == null) {
+            long count = 0;
+            while (groups.nextGroup()) {
+                action.accept(groups.key(), readValue.get(ctxt, groups));
+                count++;
+            }
+            return count;
+        }
+
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        long count = 0;
+        try {
+            while (failure.get() == null && groups.nextGroup()) {
+                final K key = groups.key();
+                final V value = readValue.get(ctxt, groups);
+
+                inFlight.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            action.accept(key, value);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                count++;
+            }
+
+            // Wait for the stragglers
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for groups to be consumed", e);
+        }
+
+        final Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException)t;
+        } else if (t instanceof Error) {
+            throw (Error)t;
+        } else if (t != null) {
+            throw new IllegalStateException(t);
+        }
+
+        return count;
+    }
+}
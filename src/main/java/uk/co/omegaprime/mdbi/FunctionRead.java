@@ -1,6 +1,7 @@
 package uk.co.omegaprime.mdbi;
 
 import javax.annotation.Nonnull;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.*;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -92,6 +93,7 @@ class FunctionRead<T> implements Read<T> {
     @Override
     public BoundRead<? extends T> bind(Read.Context ctxt) {
         final List<BoundRead<?>> boundReads = reads.stream().map(r -> r.bind(ctxt)).collect(Collectors.toList());
+        final MethodHandle handle = CompiledReads.method(method, receiver, boundReads);
         return new BoundRead<T>() {
             @Override
             public int arity() {
@@ -100,11 +102,7 @@ class FunctionRead<T> implements Read<T> {
 
             @Override
             public T get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
-                final Object[] arguments = new Object[boundReads.size()];
-                for (int i = 0; i < arguments.length; i++) {
-                    arguments[i] = boundReads.get(i).get(rs, ix);
-                }
-                return klass.cast(Reflection.invokeUnchecked(method, receiver, arguments));
+                return klass.cast(CompiledReads.invoke(handle, rs, ix));
             }
         };
     }
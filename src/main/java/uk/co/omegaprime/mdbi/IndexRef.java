@@ -11,6 +11,15 @@ public class IndexRef {
         return new IndexRef();
     }
 
+    /**
+     * Rewinds this instance so that the next {@link #take()} returns 1 again. This lets a loop over the rows of a
+     * {@code ResultSet} reuse one {@code IndexRef} rather than allocating a new one for every row.
+     */
+    public IndexRef reset() {
+        x = 1;
+        return this;
+    }
+
     /** Returns the next column index to consume, and simultaneously advances the {@code IndexRef} to point to the next column. */
     public int take() {
         return x++;
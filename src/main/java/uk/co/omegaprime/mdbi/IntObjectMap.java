@@ -0,0 +1,199 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * A map from {@code int} keys to objects that stores its keys unboxed in a single open-addressing table, so an entry
+ * costs a few bytes rather than an {@code Integer}, a map entry and their headers.
+ * <p>
+ * Iteration order is unspecified. Not thread safe. Construct with {@link BatchReads#asIntMap(Read, Read)} or {@link #create()}.
+ */
+public final class IntObjectMap<V> {
+    /** The function passed to {@link #forEach(Consumer)} */
+    public interface Consumer<V> {
+        void accept(int key, V value);
+    }
+
+    // Combines the value we already hold for a key with a new one
+    interface Merger<V> {
+        V merge(int key, V oldValue, V newValue);
+    }
+
+    private int[] keys;
+    private Object[] values;
+    private boolean hasZeroKey;
+    private int size;
+    private int threshold;
+
+    private IntObjectMap(int capacity) {
+        allocate(capacity);
+    }
+
+    public static <V> IntObjectMap<V> create() {
+        return create(0);
+    }
+
+    /** Returns a map that can hold {@code expectedSize} entries without having to grow */
+    public static <V> IntObjectMap<V> create(int expectedSize) {
+        return new IntObjectMap<>(PrimitiveMaps.capacityFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity + 1];
+        values = new Object[capacity + 1];
+        threshold = PrimitiveMaps.threshold(capacity);
+    }
+
+    // Returns the slot holding the key, or the complement of the empty slot where it should go
+    private int find(int key) {
+        final int zeroSlot = keys.length - 1;
+        if (key == 0) return hasZeroKey ? zeroSlot : ~zeroSlot;
+
+        final int mask = zeroSlot - 1;
+        for (int i = PrimitiveMaps.hash(key) & mask; ; i = (i + 1) & mask) {
+            final int k = keys[i];
+            if (k == key) return i;
+            if (k == 0) return ~i;
+        }
+    }
+
+    private void insert(int slot, int key, V value) {
+        if (key == 0) hasZeroKey = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) rehash(PrimitiveMaps.grow(keys.length - 1));
+    }
+
+    private void rehash(int capacity) {
+        final int[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(capacity);
+
+        final int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length - 1; j++) {
+            final int key = oldKeys[j];
+            if (key == 0) continue;
+
+            int i = PrimitiveMaps.hash(key) & mask;
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+        values[capacity] = oldValues[oldValues.length - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /** Returns the value associated with the key, or null if there is none */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        final int slot = find(key);
+        return slot < 0 ? null : (V)values[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(int key, V defaultValue) {
+        final int slot = find(key);
+        return slot < 0 ? defaultValue : (V)values[slot];
+    }
+
+    /** Associates the value with the key, returning the value previously associated with it (or null if there was none) */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            final V result = (V)values[slot];
+            values[slot] = value;
+            return result;
+        }
+
+        insert(~slot, key, value);
+        return null;
+    }
+
+    /** Returns the value associated with the key, first associating it with a newly computed value if there is none */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<? extends V> f) {
+        final int slot = find(key);
+        if (slot >= 0) return (V)values[slot];
+
+        final V result = f.apply(key);
+        insert(~slot, key, result);
+        return result;
+    }
+
+    // Adds the entry, or merges it into the existing one, with a single lookup
+    @SuppressWarnings("unchecked")
+    void merge(int key, V value, Merger<V> merger) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = merger.merge(key, (V)values[slot], value);
+        } else {
+            insert(~slot, key, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super V> action) {
+        for (int i = 0; i < keys.length - 1; i++) {
+            if (keys[i] != 0) action.accept(keys[i], (V)values[i]);
+        }
+        if (hasZeroKey) action.accept(0, (V)values[values.length - 1]);
+    }
+
+    /** Returns a new array holding every key in the map, in iteration order */
+    public int[] keys() {
+        final int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < keys.length - 1; i++) {
+            if (keys[i] != 0) result[n++] = keys[i];
+        }
+        if (hasZeroKey) result[n] = 0;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntObjectMap)) return false;
+
+        final IntObjectMap<?> that = (IntObjectMap<?>)o;
+        if (size != that.size) return false;
+        for (int i = 0; i < keys.length; i++) {
+            if ((i == keys.length - 1 ? hasZeroKey : keys[i] != 0)) {
+                final int slot = that.find(keys[i]);
+                if (slot < 0 || !Objects.equals(values[i], that.values[slot])) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if ((i == keys.length - 1 ? hasZeroKey : keys[i] != 0)) {
+                result += Integer.hashCode(keys[i]) ^ Objects.hashCode(values[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> sb.append(sb.length() == 1 ? "" : ", ").append(k).append('=').append(v));
+        return sb.append('}').toString();
+    }
+}
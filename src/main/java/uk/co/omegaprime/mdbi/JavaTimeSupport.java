@@ -0,0 +1,78 @@
+package uk.co.omegaprime.mdbi;
+
+import java.sql.*;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Whether a driver can transfer java.time values itself via getObject/setObject, as JDBC 4.2 allows. This saves us
+// going via a Timestamp, an Instant and a ZonedDateTime for every value. We decide once per driver, keyed on the
+// class of its Connection, and take the driver's word for it until it throws SQLFeatureNotSupportedException at us
+// for a particular java.time type: drivers often support some of the types but not others, so we only stop using
+// the driver for the type that it refused.
+//
+// Callers should cache the answer (e.g. per bound column) rather than asking for every value.
+final class JavaTimeSupport {
+    private JavaTimeSupport() {}
+
+    private static final ConcurrentHashMap<Class<?>, Boolean> SUPPORTED = new ConcurrentHashMap<>();
+    // For each class of Connection, the java.time types that its driver has refused
+    private static final ConcurrentHashMap<Class<?>, Set<Class<?>>> UNSUPPORTED_TYPES = new ConcurrentHashMap<>();
+
+    static boolean isSupported(ResultSet rs, Class<?> type) {
+        try {
+            final Statement s = rs.getStatement();
+            return s != null && isSupported(s.getConnection(), type);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    static boolean isSupported(Statement s, Class<?> type) {
+        try {
+            return isSupported(s.getConnection(), type);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    static boolean isSupported(Connection c, Class<?> type) {
+        if (c == null) return false;
+
+        final Set<Class<?>> unsupportedTypes = UNSUPPORTED_TYPES.get(c.getClass());
+        if (unsupportedTypes != null && unsupportedTypes.contains(type)) return false;
+
+        final Boolean supported = SUPPORTED.get(c.getClass());
+        if (supported != null) return supported;
+
+        final boolean result = detect(c);
+        SUPPORTED.put(c.getClass(), result);
+        return result;
+    }
+
+    private static boolean detect(Connection c) {
+        try {
+            final DatabaseMetaData metaData = c.getMetaData();
+            final int major = metaData.getJDBCMajorVersion(), minor = metaData.getJDBCMinorVersion();
+            return major > 4 || (major == 4 && minor >= 2);
+        } catch (SQLException | RuntimeException | AbstractMethodError e) {
+            return false;
+        }
+    }
+
+    static void markUnsupported(ResultSet rs, Class<?> type) {
+        try {
+            final Statement s = rs.getStatement();
+            if (s != null) markUnsupported(s.getConnection(), type);
+        } catch (SQLException ignored) {}
+    }
+
+    static void markUnsupported(Statement s, Class<?> type) {
+        try {
+            markUnsupported(s.getConnection(), type);
+        } catch (SQLException ignored) {}
+    }
+
+    static void markUnsupported(Connection c, Class<?> type) {
+        if (c != null) UNSUPPORTED_TYPES.computeIfAbsent(c.getClass(), _class -> ConcurrentHashMap.newKeySet()).add(type);
+    }
+}
@@ -0,0 +1,131 @@
+package uk.co.omegaprime.mdbi;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Objects;
+
+// Splits a ResultSet into contiguous runs of rows that share a key. The instance itself is a view of the current run
+// with the key columns dropped, and is reused for every run. Each row's key is decoded exactly once, and we only ever
+// move the underlying ResultSet forwards, so the view doesn't support scrolling backwards either.
+class KeyGroupResultSet<K> extends DropColumnsResultSet {
+    private static final byte BEFORE_FIRST = 0, ON_ROW = 1, AFTER_LAST = 2;
+
+    private final ResultSet rs;
+    private final BoundRead<? extends K> boundReadKey;
+    private final IndexRef ix = IndexRef.create();
+
+    private boolean started;
+    private boolean exhausted;
+    private K key;
+    // The key of the row after the end of the current run, valid when we are AFTER_LAST and not exhausted
+    private K nextKey;
+    // When BEFORE_FIRST the underlying ResultSet is actually already on the first row of the run
+    private byte state = BEFORE_FIRST;
+    private int row;
+
+    public KeyGroupResultSet(ResultSet rs, BoundRead<? extends K> boundReadKey) {
+        super(1 + boundReadKey.arity(), rs);
+        this.rs = rs;
+        this.boundReadKey = boundReadKey;
+    }
+
+    public K key() {
+        return key;
+    }
+
+    /**
+     * Moves on to the next run of rows, returning false if there isn't one. Rows of the current run that were never
+     * reached with {@link #next()} form the start of the next run, so if the caller stops early they will see the
+     * same key again.
+     */
+    public boolean nextGroup() throws SQLException {
+        if (!started) {
+            started = true;
+            if (!rs.next()) return false;
+            key = boundReadKey.get(rs, ix.reset());
+        } else if (state == ON_ROW) {
+            if (!rs.next()) return false;
+            key = boundReadKey.get(rs, ix.reset());
+        } else if (state == AFTER_LAST) {
+            if (exhausted) return false;
+            key = nextKey;
+        }
+
+        nextKey = null;
+        state = BEFORE_FIRST;
+        row = 0;
+        return true;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        switch (state) {
+            case BEFORE_FIRST:
+                state = ON_ROW;
+                row = 1;
+                return true;
+            case ON_ROW:
+                if (!rs.next()) {
+                    exhausted = true;
+                    state = AFTER_LAST;
+                    return false;
+                }
+
+                final K rowKey = boundReadKey.get(rs, ix.reset());
+                if (Objects.equals(key, rowKey)) {
+                    row++;
+                    return true;
+                }
+
+                nextKey = rowKey;
+                state = AFTER_LAST;
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        return state == BEFORE_FIRST;
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        return state == AFTER_LAST;
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        return state == ON_ROW && row == 1;
+    }
+
+    @Override
+    public int getRow() throws SQLException {
+        return state == ON_ROW ? row : 0;
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        return ResultSet.TYPE_FORWARD_ONLY;
+    }
+
+    @SuppressWarnings("StatementWithEmptyBody")
+    @Override
+    public void afterLast() throws SQLException {
+        while (next());
+    }
+
+    private static SQLException forwardOnly() {
+        return new SQLFeatureNotSupportedException("The rows for a key can only be read forwards");
+    }
+
+    @Override public boolean isLast() throws SQLException { throw forwardOnly(); }
+    @Override public void beforeFirst() throws SQLException { throw forwardOnly(); }
+    @Override public boolean first() throws SQLException { throw forwardOnly(); }
+    @Override public boolean last() throws SQLException { throw forwardOnly(); }
+    @Override public boolean absolute(int row) throws SQLException { throw forwardOnly(); }
+    @Override public boolean relative(int rows) throws SQLException { throw forwardOnly(); }
+    @Override public boolean previous() throws SQLException { throw forwardOnly(); }
+}
@@ -0,0 +1,61 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.Objects;
+
+import static uk.co.omegaprime.mdbi.MDBI.sql;
+
+/**
+ * A range of values of a key column: from {@code lower} inclusive, up to {@code upper} exclusive (or inclusive, if
+ * {@link #isUpperInclusive()}). Used to split one logical query into several that can be run concurrently: see
+ * {@link MDBI#queryPartitioned(java.util.List, java.util.function.Function, BatchRead, java.util.function.Function)}.
+ * <p>
+ * Useful lists of these can be obtained from {@link Partitions}.
+ */
+public final class KeyRange<T> {
+    private final T lower;
+    private final T upper;
+    private final boolean upperInclusive;
+
+    private KeyRange(T lower, T upper, boolean upperInclusive) {
+        this.lower = Objects.requireNonNull(lower);
+        this.upper = Objects.requireNonNull(upper);
+        this.upperInclusive = upperInclusive;
+    }
+
+    public static <T> KeyRange<T> of(T lower, T upper, boolean upperInclusive) {
+        return new KeyRange<>(lower, upper, upperInclusive);
+    }
+
+    public T getLower() { return lower; }
+    public T getUpper() { return upper; }
+    public boolean isUpperInclusive() { return upperInclusive; }
+
+    /** Returns a condition that holds exactly when the column lies in this range, e.g. {@code id >= 1 and id < 10} */
+    public SQL predicate(SQL column) {
+        return sql(column, " >= ").$(lower).sql(" and ", column, upperInclusive ? " <= " : " < ").$(upper);
+    }
+
+    /** As {@link #predicate(SQL)} */
+    public SQL predicate(String column) {
+        return predicate(sql(column));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof KeyRange)) return false;
+
+        final KeyRange<?> that = (KeyRange<?>)o;
+        return upperInclusive == that.upperInclusive && lower.equals(that.lower) && upper.equals(that.upper);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lower, upper, upperInclusive);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + lower + ", " + upper + (upperInclusive ? "]" : ")");
+    }
+}
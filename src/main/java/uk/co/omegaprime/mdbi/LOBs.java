@@ -0,0 +1,137 @@
+package uk.co.omegaprime.mdbi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Helpers for moving large objects around without holding the whole thing on the heap.
+ * <p>
+ * Typically used with {@link BatchReads#forEach(Read, SQLConsumer)} and a streaming read such as {@link Reads#BYTE_CHANNEL}:
+ * <pre>
+ * mdbi.query(sql("select doc from documents where id = ", $(id)),
+ *            BatchReads.forEach(Reads.BYTE_CHANNEL, doc -&gt; LOBs.transfer(doc, fileChannel)));
+ * </pre>
+ */
+public class LOBs {
+    private LOBs() {}
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Copies everything from the source to the target, returning the number of bytes copied. If the target is a
+     * {@code FileChannel}, we let it pull the data itself starting from its current position, and advance the
+     * position afterwards.
+     */
+    public static long transfer(ReadableByteChannel source, WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        if (target instanceof FileChannel) {
+            final FileChannel file = (FileChannel)target;
+            final long position = file.position();
+            long n;
+            while ((n = file.transferFrom(source, position + transferred, BUFFER_SIZE * 16)) > 0) {
+                transferred += n;
+            }
+            file.position(position + transferred);
+        } else {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    transferred += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+
+        return transferred;
+    }
+
+    /** As {@link #transfer(ReadableByteChannel, WritableByteChannel)} */
+    public static long transfer(InputStream source, WritableByteChannel target) throws IOException {
+        return transfer(Channels.newChannel(source), target);
+    }
+
+    // Lets a driver consume a ByteBuffer (perhaps a direct or memory-mapped one) as if it were a stream
+    static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+
+            final int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    // We can't know when the driver has finished with a stream we hand it, so we don't open the file until the driver
+    // first reads from it (a statement that fails or is never executed costs no file handle), and close it again once
+    // the expected number of bytes has been read (or we hit EOF)
+    static class FileInputStream extends InputStream {
+        private final Path path;
+        private InputStream stream;
+        private long remaining;
+        private boolean closed;
+
+        public FileInputStream(Path path, long length) {
+            this.path = path;
+            this.remaining = length;
+        }
+
+        private InputStream stream() throws IOException {
+            if (stream == null) stream = Files.newInputStream(path);
+            return stream;
+        }
+
+        private int closeIfDone(int n) throws IOException {
+            if (n > 0) remaining -= n;
+            if (n < 0 || remaining <= 0) close();
+            return n;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (closed) return -1;
+            final int b = stream().read();
+            closeIfDone(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (closed) return -1;
+            return closeIfDone(stream().read(bytes, offset, length));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                if (stream != null) stream.close();
+            }
+        }
+    }
+}
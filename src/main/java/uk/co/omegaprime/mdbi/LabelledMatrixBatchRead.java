@@ -35,10 +35,12 @@ class LabelledMatrixBatchRead implements BatchRead<Map<String, Object>> {
             }
         }
 
+        final BoundRead<?>[] boundReadsArray = boundReads.toArray(new BoundRead<?>[boundReads.size()]);
+        final IndexRef ix = IndexRef.create();
         while (rs.next()) {
-            final IndexRef ix = IndexRef.create();
+            ix.reset();
             for (int i = 0; i < columnLists.length; i++) {
-                ((List<Object>)columnLists[i]).add(boundReads.get(i).get(rs, ix));
+                ((List<Object>)columnLists[i]).add(boundReadsArray[i].get(rs, ix));
             }
         }
 
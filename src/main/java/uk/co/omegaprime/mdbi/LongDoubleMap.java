@@ -0,0 +1,179 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A map from {@code long} keys to {@code double} values that stores its keys and values unboxed in open-addressing tables, so an entry
+ * costs a few bytes rather than a {@code Long}, a {@code Double}, a map entry and their headers.
+ * <p>
+ * Iteration order is unspecified. Not thread safe. Construct with {@link BatchReads#asLongDoubleMap(Read, Read)} or {@link #create()}.
+ */
+public final class LongDoubleMap {
+    /** The function passed to {@link #forEach(Consumer)} */
+    public interface Consumer {
+        void accept(long key, double value);
+    }
+
+    // Combines the value we already hold for a key with a new one
+    interface Merger {
+        double merge(long key, double oldValue, double newValue);
+    }
+
+    private long[] keys;
+    private double[] values;
+    private boolean hasZeroKey;
+    private int size;
+    private int threshold;
+
+    private LongDoubleMap(int capacity) {
+        allocate(capacity);
+    }
+
+    public static LongDoubleMap create() {
+        return create(0);
+    }
+
+    /** Returns a map that can hold {@code expectedSize} entries without having to grow */
+    public static LongDoubleMap create(int expectedSize) {
+        return new LongDoubleMap(PrimitiveMaps.capacityFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity + 1];
+        values = new double[capacity + 1];
+        threshold = PrimitiveMaps.threshold(capacity);
+    }
+
+    // Returns the slot holding the key, or the complement of the empty slot where it should go
+    private int find(long key) {
+        final int zeroSlot = keys.length - 1;
+        if (key == 0) return hasZeroKey ? zeroSlot : ~zeroSlot;
+
+        final int mask = zeroSlot - 1;
+        for (int i = PrimitiveMaps.hash(key) & mask; ; i = (i + 1) & mask) {
+            final long k = keys[i];
+            if (k == key) return i;
+            if (k == 0) return ~i;
+        }
+    }
+
+    private void insert(int slot, long key, double value) {
+        if (key == 0) hasZeroKey = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) rehash(PrimitiveMaps.grow(keys.length - 1));
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = keys;
+        final double[] oldValues = values;
+        allocate(capacity);
+
+        final int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length - 1; j++) {
+            final long key = oldKeys[j];
+            if (key == 0) continue;
+
+            int i = PrimitiveMaps.hash(key) & mask;
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+        values[capacity] = oldValues[oldValues.length - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /** Returns the value associated with the key, throwing {@code NoSuchElementException} if there is none */
+    public double get(long key) {
+        final int slot = find(key);
+        if (slot < 0) throw new NoSuchElementException("No value for key " + key);
+        return values[slot];
+    }
+
+    public double getOrDefault(long key, double defaultValue) {
+        final int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public void put(long key, double value) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+        } else {
+            insert(~slot, key, value);
+        }
+    }
+
+    // Adds the entry, or merges it into the existing one, with a single lookup
+    void merge(long key, double value, Merger merger) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = merger.merge(key, values[slot], value);
+        } else {
+            insert(~slot, key, value);
+        }
+    }
+
+    public void forEach(Consumer action) {
+        for (int i = 0; i < keys.length - 1; i++) {
+            if (keys[i] != 0) action.accept(keys[i], values[i]);
+        }
+        if (hasZeroKey) action.accept(0, values[values.length - 1]);
+    }
+
+    /** Returns a new array holding every key in the map, in iteration order */
+    public long[] keys() {
+        final long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length - 1; i++) {
+            if (keys[i] != 0) result[n++] = keys[i];
+        }
+        if (hasZeroKey) result[n] = 0;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongDoubleMap)) return false;
+
+        final LongDoubleMap that = (LongDoubleMap)o;
+        if (size != that.size) return false;
+        for (int i = 0; i < keys.length; i++) {
+            if ((i == keys.length - 1 ? hasZeroKey : keys[i] != 0)) {
+                final int slot = that.find(keys[i]);
+                if (slot < 0 || Double.compare(values[i], that.values[slot]) != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if ((i == keys.length - 1 ? hasZeroKey : keys[i] != 0)) {
+                result += Long.hashCode(keys[i]) ^ Double.hashCode(values[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> sb.append(sb.length() == 1 ? "" : ", ").append(k).append('=').append(v));
+        return sb.append('}').toString();
+    }
+}
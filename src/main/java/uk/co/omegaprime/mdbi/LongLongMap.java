@@ -0,0 +1,179 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A map from {@code long} keys to {@code long} values that stores its keys and values unboxed in open-addressing tables, so an entry
+ * costs a few bytes rather than two {@code Long}s, a map entry and their headers.
+ * <p>
+ * Iteration order is unspecified. Not thread safe. Construct with {@link BatchReads#asLongLongMap(Read, Read)} or {@link #create()}.
+ */
+public final class LongLongMap {
+    /** The function passed to {@link #forEach(Consumer)} */
+    public interface Consumer {
+        void accept(long key, long value);
+    }
+
+    // Combines the value we already hold for a key with a new one
+    interface Merger {
+        long merge(long key, long oldValue, long newValue);
+    }
+
+    private long[] keys;
+    private long[] values;
+    private boolean hasZeroKey;
+    private int size;
+    private int threshold;
+
+    private LongLongMap(int capacity) {
+        allocate(capacity);
+    }
+
+    public static LongLongMap create() {
+        return create(0);
+    }
+
+    /** Returns a map that can hold {@code expectedSize} entries without having to grow */
+    public static LongLongMap create(int expectedSize) {
+        return new LongLongMap(PrimitiveMaps.capacityFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity + 1];
+        values = new long[capacity + 1];
+        threshold = PrimitiveMaps.threshold(capacity);
+    }
+
+    // Returns the slot holding the key, or the complement of the empty slot where it should go
+    private int find(long key) {
+        final int zeroSlot = keys.length - 1;
+        if (key == 0) return hasZeroKey ? zeroSlot : ~zeroSlot;
+
+        final int mask = zeroSlot - 1;
+        for (int i = PrimitiveMaps.hash(key) & mask; ; i = (i + 1) & mask) {
+            final long k = keys[i];
+            if (k == key) return i;
+            if (k == 0) return ~i;
+        }
+    }
+
+    private void insert(int slot, long key, long value) {
+        if (key == 0) hasZeroKey = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) rehash(PrimitiveMaps.grow(keys.length - 1));
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        allocate(capacity);
+
+        final int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length - 1; j++) {
+            final long key = oldKeys[j];
+            if (key == 0) continue;
+
+            int i = PrimitiveMaps.hash(key) & mask;
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+        values[capacity] = oldValues[oldValues.length - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /** Returns the value associated with the key, throwing {@code NoSuchElementException} if there is none */
+    public long get(long key) {
+        final int slot = find(key);
+        if (slot < 0) throw new NoSuchElementException("No value for key " + key);
+        return values[slot];
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        final int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public void put(long key, long value) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+        } else {
+            insert(~slot, key, value);
+        }
+    }
+
+    // Adds the entry, or merges it into the existing one, with a single lookup
+    void merge(long key, long value, Merger merger) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = merger.merge(key, values[slot], value);
+        } else {
+            insert(~slot, key, value);
+        }
+    }
+
+    public void forEach(Consumer action) {
+        for (int i = 0; i < keys.length - 1; i++) {
+            if (keys[i] != 0) action.accept(keys[i], values[i]);
+        }
+        if (hasZeroKey) action.accept(0, values[values.length - 1]);
+    }
+
+    /** Returns a new array holding every key in the map, in iteration order */
+    public long[] keys() {
+        final long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length - 1; i++) {
+            if (keys[i] != 0) result[n++] = keys[i];
+        }
+        if (hasZeroKey) result[n] = 0;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongLongMap)) return false;
+
+        final LongLongMap that = (LongLongMap)o;
+        if (size != that.size) return false;
+        for (int i = 0; i < keys.length; i++) {
+            if ((i == keys.length - 1 ? hasZeroKey : keys[i] != 0)) {
+                final int slot = that.find(keys[i]);
+                if (slot < 0 || Long.compare(values[i], that.values[slot]) != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if ((i == keys.length - 1 ? hasZeroKey : keys[i] != 0)) {
+                result += Long.hashCode(keys[i]) ^ Long.hashCode(values[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> sb.append(sb.length() == 1 ? "" : ", ").append(k).append('=').append(v));
+        return sb.append('}').toString();
+    }
+}
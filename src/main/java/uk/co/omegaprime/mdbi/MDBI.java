@@ -3,10 +3,14 @@ package uk.co.omegaprime.mdbi;
 import javax.annotation.Nullable;
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -18,6 +22,9 @@ public class MDBI {
     private interface ConnectionObtainer {
         <T> T with(ConnectionUser<T> user) throws SQLException;
 
+        /** Whether concurrent calls to {@link #with(ConnectionUser)} will each be handed their own connection */
+        boolean isIndependent();
+
         static ConnectionObtainer fromDataSource(DataSource dataSource) {
             return new ConnectionObtainer() {
                 @Override
@@ -26,6 +33,11 @@ public class MDBI {
                         return user.consume(c);
                     }
                 }
+
+                @Override
+                public boolean isIndependent() {
+                    return true;
+                }
             };
         }
 
@@ -35,11 +47,16 @@ public class MDBI {
                 public <T> T with(ConnectionUser<T> user) throws SQLException {
                     return user.consume(connection);
                 }
+
+                @Override
+                public boolean isIndependent() {
+                    return false;
+                }
             };
         }
     }
 
-    private interface ConnectionUser<T> {
+    interface ConnectionUser<T> {
         T consume(Connection c) throws SQLException;
     }
 
@@ -47,6 +64,7 @@ public class MDBI {
     private final ConnectionObtainer connectionObtainer;
     private final boolean prepared, transactional;
     private final Supplier<Retry> retryPolicy;
+    private final @Nullable Executor executor;
 
     // TODO: support generated keys? Bit awkward because we need to know we need the feature when we prepare the stmt.
 
@@ -66,22 +84,23 @@ public class MDBI {
     }
 
     private MDBI(Context context, ConnectionObtainer connectionObtainer) {
-        this(context, connectionObtainer, true, true, Retries::deadlocks);
+        this(context, connectionObtainer, true, true, Retries::deadlocks, null);
     }
 
     private MDBI(Context context, ConnectionObtainer connectionObtainer,
-                 boolean prepared, boolean transactional, Supplier<Retry> retryPolicy) {
+                 boolean prepared, boolean transactional, Supplier<Retry> retryPolicy, @Nullable Executor executor) {
         this.context = context;
         this.connectionObtainer = connectionObtainer;
         this.prepared = prepared;
         this.transactional = transactional;
         this.retryPolicy = retryPolicy;
+        this.executor = executor;
     }
 
     /** Should we use {@link PreparedStatement}s to execute SQL (the default)? Or should we instead construct SQL strings for use with {@link Statement}? */
     public boolean isPrepared() { return prepared; }
     public MDBI withPrepared(boolean prepared) {
-        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy);
+        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy, executor);
     }
 
     /**
@@ -91,7 +110,7 @@ public class MDBI {
      */
     public boolean isTransactional() { return transactional; }
     public MDBI withTransactional(boolean transactional) {
-        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy);
+        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy, executor);
     }
 
     /**
@@ -113,12 +132,24 @@ public class MDBI {
      */
     public Supplier<Retry> getRetryPolicy() { return retryPolicy; }
     public MDBI withRetryPolicy(Supplier<Retry> retryPolicy) {
-        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy);
+        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy, executor);
+    }
+
+    /**
+     * The {@code Executor} used to run queries concurrently, e.g. by {@link #queryPartitioned(List, Function, BatchRead, Function)}.
+     * If null (the default), we start threads as needed for the duration of each such call.
+     * <p>
+     * Queries only run concurrently if this {@code MDBI} was constructed from a {@code DataSource}: a single {@code Connection}
+     * can't be used from several threads at once, so in that case everything runs on the calling thread.
+     */
+    public @Nullable Executor getExecutor() { return executor; }
+    public MDBI withExecutor(@Nullable Executor executor) {
+        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy, executor);
     }
 
     public Context getContext() { return context; }
     public MDBI withContext(Context context) {
-        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy);
+        return new MDBI(context, connectionObtainer, prepared, transactional, retryPolicy, executor);
     }
 
     /** Executes a query and throws away the result, if any. */
@@ -134,18 +165,7 @@ public class MDBI {
         if (prepared) {
             return connectionObtainer.with(c -> {
                 try (final PreparedStatement ps = BatchPreparedSQLBuilder.build(sql, context.writeContext(), c)) {
-                    return retry(c, () -> {
-                        try {
-                            return ps.executeLargeBatch();
-                        } catch (UnsupportedOperationException _unsupported) {
-                            final int[] ints = ps.executeBatch();
-                            final long[] longs = new long[ints.length];
-                            for (int i = 0; i < ints.length; i++) {
-                                longs[i] = ints[i];
-                            }
-                            return longs;
-                        }
-                    });
+                    return retry(c, () -> executeBatch(ps));
                 }
             });
         } else {
@@ -180,6 +200,19 @@ public class MDBI {
         }
     }
 
+    static long[] executeBatch(PreparedStatement ps) throws SQLException {
+        try {
+            return ps.executeLargeBatch();
+        } catch (UnsupportedOperationException _unsupported) {
+            final int[] ints = ps.executeBatch();
+            final long[] longs = new long[ints.length];
+            for (int i = 0; i < ints.length; i++) {
+                longs[i] = ints[i];
+            }
+            return longs;
+        }
+    }
+
     /** Executes a query and returns the number of rows affected */
     public long update(SQL sql) throws SQLException {
         return query(sql, (StatementlikeBatchRead<Long>) (ctxt, s) -> {
@@ -250,22 +283,122 @@ public class MDBI {
 
     /** Executes a query and interprets the result in a fully customizable way using the {@code StatementlikeBatchRead} instance. */
     public <T> T query(SQL sql, StatementlikeBatchRead<T> batchRead) throws SQLException {
+        return query(sql, batchRead, null);
+    }
+
+    // As query(SQL, StatementlikeBatchRead), but letting another thread cancel the statement while it runs
+    <T> T query(SQL sql, StatementlikeBatchRead<T> batchRead, @Nullable Cancellation cancellation) throws SQLException {
         if (prepared) {
             return connectionObtainer.with(c -> {
                 try (final PreparedStatement ps = BespokePreparedSQLBuilder.build(sql, context.writeContext(), c)) {
-                    return retry(c, () -> batchRead.get(context.readContext(), new PreparedStatementlike(ps)));
+                    return cancellably(ps, cancellation, () -> retry(c, () -> batchRead.get(context.readContext(), new PreparedStatementlike(ps))));
                 }
             });
         } else {
             return connectionObtainer.with(c -> {
                 try (final Statement s = c.createStatement()) {
-                    return retry(c, () -> batchRead.get(context.readContext(), new UnpreparedStatementlike(s, BespokeUnpreparedSQLBuilder.build(sql, context.writeContext()))));
+                    return cancellably(s, cancellation, () -> retry(c, () -> batchRead.get(context.readContext(), new UnpreparedStatementlike(s, BespokeUnpreparedSQLBuilder.build(sql, context.writeContext())))));
                 }
             });
         }
     }
 
-    private <T> T retry(Connection c, SQLAction<T> act) throws SQLException {
+    private static <T> T cancellably(Statement s, @Nullable Cancellation cancellation, SQLAction<T> act) throws SQLException {
+        if (cancellation == null) return act.run();
+
+        cancellation.enter(s);
+        try {
+            return act.run();
+        } finally {
+            cancellation.exit();
+        }
+    }
+
+    /**
+     * Runs one query per {@code KeyRange}, each on its own connection and concurrently if possible (see {@link #getExecutor()}), and
+     * combines their results in the order of the ranges. For example, to read a big table in pieces:
+     * <pre>
+     * mdbi.queryPartitioned(Partitions.longRanges(mdbi, sql("person"), sql("id"), 8),
+     *                       range -&gt; sql("select id, name from person where ", range.predicate("id")),
+     *                       BatchReads.asMap(Integer.class, String.class), Partitions.unionMaps());
+     * </pre>
+     * Note that the queries run in separate transactions, so they only see a consistent snapshot if nobody is writing to the table.
+     */
+    public <K, T, R> R queryPartitioned(List<KeyRange<K>> ranges, Function<? super KeyRange<K>, SQL> query, BatchRead<T> batchRead,
+                                        Function<? super List<T>, ? extends R> combine) throws SQLException {
+        final StatementlikeBatchRead<T> statementlikeBatchRead = StatementlikeBatchReads.fromBatchRead(batchRead);
+        final List<Concurrently.Action<T>> actions = new ArrayList<>(ranges.size());
+        for (KeyRange<K> range : ranges) {
+            final SQL sql = query.apply(range);
+            actions.add(cancellation -> query(sql, statementlikeBatchRead, cancellation));
+        }
+
+        return combine.apply(runAll(actions, Integer.MAX_VALUE, "MDBI partitioned query"));
+    }
+
+    /**
+     * Returns a builder for running several independent queries at once, each on its own connection. For example:
+     * <pre>
+     * ParallelQueries queries = mdbi.parallel();
+     * Supplier&lt;List&lt;String&gt;&gt; names = queries.add(sql("select name from person"), BatchReads.asList(String.class));
+     * Supplier&lt;Integer&gt; count = queries.add(sql("select count(*) from orders"), BatchReads.first(int.class));
+     * queries.run();
+     * </pre>
+     * As with {@link #queryPartitioned(List, Function, BatchRead, Function)}, the queries only actually run concurrently
+     * if this {@code MDBI} was constructed from a {@code DataSource}.
+     */
+    public ParallelQueries parallel() {
+        return new ParallelQueries(this);
+    }
+
+    /**
+     * Reads a query a page at a time using keyset pagination, which doesn't depend on the driver honouring {@code setFetchSize}.
+     * The {@code query} function is given the key of the last row of the previous page (or null, for the first page) and the
+     * page size, and should return a query for the following rows ordered by that key. For example:
+     * <pre>
+     * try (Pages&lt;Integer, Person&gt; pages = mdbi.paginate((after, limit) -&gt; sql("select id, name from person ",
+     *                                                                           after == null ? sql("") : sql("where id &gt; ").$(after),
+     *                                                                           " order by id limit ").$(limit),
+     *                                                   Person.class, person -&gt; person.id, 1000)) {
+     *     while (pages.hasNext()) process(pages.next());
+     * }
+     * </pre>
+     * If this {@code MDBI} was constructed from a {@code DataSource}, each page is fetched in the background while the
+     * previous one is being processed, using the {@link #getExecutor()} if there is one.
+     */
+    public <K, T> Pages<K, T> paginate(BiFunction<? super K, Integer, SQL> query, Read<T> read, Function<? super T, ? extends K> keyOf, int pageSize) {
+        return new Pages<>(this, query, read, keyOf, pageSize);
+    }
+
+    /** As {@link #paginate(BiFunction, Read, Function, int)}, but reading each row using the {@code Context}-default read instance for the class */
+    public <K, T> Pages<K, T> paginate(BiFunction<? super K, Integer, SQL> query, Class<T> klass, Function<? super T, ? extends K> keyOf, int pageSize) {
+        return paginate(query, new ContextRead<>(klass), keyOf, pageSize);
+    }
+
+    // Runs the actions concurrently if our connections allow it, returning their results in order
+    <T> List<T> runAll(List<? extends Concurrently.Action<? extends T>> actions, int maxConcurrency, String threadName) throws SQLException {
+        if (actions.size() > 1 && maxConcurrency > 1 && hasIndependentConnections()) {
+            return Concurrently.runAll(executor, maxConcurrency, actions, threadName);
+        }
+
+        final List<T> result = new ArrayList<>(actions.size());
+        for (Concurrently.Action<? extends T> action : actions) {
+            result.add(action.run(null));
+        }
+        return result;
+    }
+
+    /** Runs the action against a connection: a fresh one if we were constructed from a {@code DataSource}. */
+    <T> T withConnection(ConnectionUser<T> user) throws SQLException {
+        return connectionObtainer.with(user);
+    }
+
+    /** Can {@link #withConnection(ConnectionUser)} safely be used from several threads at once? */
+    boolean hasIndependentConnections() {
+        return connectionObtainer.isIndependent();
+    }
+
+    <T> T retry(Connection c, SQLAction<T> act) throws SQLException {
         if (!transactional || !c.getAutoCommit()) {
             // Already in transaction, we can't safely retry because failure of the SQL action we
             // are trying to do might cause rollback. Example: what if we execute these 3 one after another:
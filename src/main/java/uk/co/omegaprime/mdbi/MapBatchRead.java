@@ -25,19 +25,19 @@ class MapBatchRead<K, V, MapT extends Map<K, V>> implements BatchRead<MapT> {
         final BoundRead<? extends K> boundReadKey = readKey.bind(ctxt);
         final BoundRead<? extends V> boundReadValue = readValue.bind(ctxt);
         final MapT result = factory.get();
+        final IndexRef ix = IndexRef.create();
         while (rs.next()) {
-            final IndexRef ix = IndexRef.create();
+            ix.reset();
             final K key = boundReadKey.get(rs, ix);
             final V value = boundReadValue.get(rs, ix);
 
-            final V consolidatedValue;
-            if (!result.containsKey(key)) {
-                consolidatedValue = value;
+            // Only fall back on containsKey if we might have a null value, saving a lookup in the common case
+            final V oldValue = result.get(key);
+            if (oldValue == null && !result.containsKey(key)) {
+                result.put(key, value);
             } else {
-                consolidatedValue = append.append(key, result.get(key), value);
+                result.put(key, append.append(key, oldValue, value));
             }
-
-            result.put(key, consolidatedValue);
         }
 
         return result;
@@ -4,7 +4,6 @@ import javax.annotation.Nonnull;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 class MatrixBatchRead implements BatchRead<Object[]> {
     private final Collection<Read<?>> reads;
@@ -14,30 +13,166 @@ class MatrixBatchRead implements BatchRead<Object[]> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Object[] get(@Nonnull Read.Context ctxt, @Nonnull ResultSet rs) throws SQLException {
-        final List<BoundRead<?>> boundReads = reads.stream().map(read -> read.bind(ctxt)).collect(Collectors.toList());
-
-        final List<?>[] columnLists = new List<?>[boundReads.size()];
-        for (int i = 0; i < columnLists.length; i++) {
-            columnLists[i] = new ArrayList<>();
+        final Column[] columns = new Column[reads.size()];
+        final Iterator<Read<?>> readsIt = reads.iterator();
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Column.create(readsIt.next(), ctxt);
         }
 
+        final IndexRef ix = IndexRef.create();
         while (rs.next()) {
-            final IndexRef ix = IndexRef.create();
-            for (int i = 0; i < columnLists.length; i++) {
-                ((List<Object>)columnLists[i]).add(boundReads.get(i).get(rs, ix));
+            ix.reset();
+            for (Column column : columns) {
+                column.add(rs, ix);
             }
         }
 
-        final Object[] columns = new Object[columnLists.length];
-        final Iterator<Read<?>> readsIt = reads.iterator();
-        for (int i = 0; i < columnLists.length; i++) {
-            final List list = columnLists[i];
-            columns[i] = Primitives.listToArray(readsIt.next().getElementClass(), list);
+        final Object[] result = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            result[i] = columns[i].toArray();
+        }
+
+        return result;
+    }
+
+    // Accumulates the values of one column of the matrix. Where the BoundRead can give us a primitive directly we
+    // store it in a primitive array straight away rather than boxing it into a list and unboxing it at the end.
+    private static abstract class Column {
+        abstract void add(ResultSet rs, IndexRef ix) throws SQLException;
+        abstract Object toArray();
+
+        @SuppressWarnings("unchecked")
+        static Column create(Read<?> read, Read.Context ctxt) {
+            final Class<?> klass = read.getElementClass();
+            final BoundRead<?> boundRead = read.bind(ctxt);
+            if (read instanceof UUIDBitsRead) {
+                return new UUIDBitsColumn((BoundRead<? extends UUID>)boundRead);
+            } else if (klass == int.class && boundRead instanceof PrimitiveBoundRead.OfInt) {
+                return new IntColumn((PrimitiveBoundRead.OfInt)boundRead);
+            } else if (klass == long.class && boundRead instanceof PrimitiveBoundRead.OfLong) {
+                return new LongColumn((PrimitiveBoundRead.OfLong)boundRead);
+            } else if (klass == double.class && boundRead instanceof PrimitiveBoundRead.OfDouble) {
+                return new DoubleColumn((PrimitiveBoundRead.OfDouble)boundRead);
+            } else {
+                return new ObjectColumn(klass, boundRead);
+            }
+        }
+    }
+
+    // Marks a UUID column that should come out of the matrix as two parallel long[]s: the most and least significant bits
+    static class UUIDBitsRead implements Read<UUID> {
+        private final Read<UUID> read;
+
+        public UUIDBitsRead(Read<UUID> read) {
+            this.read = read;
         }
 
-        return columns;
+        @Override
+        public Class<? extends UUID> getElementClass() {
+            return read.getElementClass();
+        }
+
+        @Override
+        public BoundRead<? extends UUID> bind(Read.Context ctxt) {
+            return read.bind(ctxt);
+        }
+    }
+
+    private static class UUIDBitsColumn extends Column {
+        private final BoundRead<? extends UUID> boundRead;
+        private long[] mostSignificantBits = new long[16], leastSignificantBits = new long[16];
+        private int size;
+
+        public UUIDBitsColumn(BoundRead<? extends UUID> boundRead) {
+            this.boundRead = boundRead;
+        }
+
+        @Override
+        void add(ResultSet rs, IndexRef ix) throws SQLException {
+            final UUID x = boundRead.get(rs, ix);
+            if (x == null) throw new NullPointerException("Found null in result");
+
+            if (size == mostSignificantBits.length) {
+                mostSignificantBits = Arrays.copyOf(mostSignificantBits, size * 2);
+                leastSignificantBits = Arrays.copyOf(leastSignificantBits, size * 2);
+            }
+            mostSignificantBits[size] = x.getMostSignificantBits();
+            leastSignificantBits[size] = x.getLeastSignificantBits();
+            size++;
+        }
+
+        @Override
+        Object toArray() {
+            return new long[][] { Arrays.copyOf(mostSignificantBits, size), Arrays.copyOf(leastSignificantBits, size) };
+        }
     }
 
+    private static class ObjectColumn extends Column {
+        private final Class<?> klass;
+        private final BoundRead<?> boundRead;
+        private final List<Object> values = new ArrayList<>();
+
+        public ObjectColumn(Class<?> klass, BoundRead<?> boundRead) {
+            this.klass = klass;
+            this.boundRead = boundRead;
+        }
+
+        @Override void add(ResultSet rs, IndexRef ix) throws SQLException { values.add(boundRead.get(rs, ix)); }
+        @Override Object toArray() { return Primitives.listToArray(klass, values); }
+    }
+
+    private static class IntColumn extends Column {
+        private final PrimitiveBoundRead.OfInt boundRead;
+        private int[] values = new int[16];
+        private int size;
+
+        public IntColumn(PrimitiveBoundRead.OfInt boundRead) {
+            this.boundRead = boundRead;
+        }
+
+        @Override
+        void add(ResultSet rs, IndexRef ix) throws SQLException {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = boundRead.getInt(rs, ix);
+        }
+
+        @Override Object toArray() { return Arrays.copyOf(values, size); }
+    }
+
+    private static class LongColumn extends Column {
+        private final PrimitiveBoundRead.OfLong boundRead;
+        private long[] values = new long[16];
+        private int size;
+
+        public LongColumn(PrimitiveBoundRead.OfLong boundRead) {
+            this.boundRead = boundRead;
+        }
+
+        @Override
+        void add(ResultSet rs, IndexRef ix) throws SQLException {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = boundRead.getLong(rs, ix);
+        }
+
+        @Override Object toArray() { return Arrays.copyOf(values, size); }
+    }
+
+    private static class DoubleColumn extends Column {
+        private final PrimitiveBoundRead.OfDouble boundRead;
+        private double[] values = new double[16];
+        private int size;
+
+        public DoubleColumn(PrimitiveBoundRead.OfDouble boundRead) {
+            this.boundRead = boundRead;
+        }
+
+        @Override
+        void add(ResultSet rs, IndexRef ix) throws SQLException {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = boundRead.getDouble(rs, ix);
+        }
+
+        @Override Object toArray() { return Arrays.copyOf(values, size); }
+    }
 }
@@ -4,6 +4,7 @@ import java.lang.reflect.Array;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -26,6 +27,7 @@ public class MatrixBatchReadBuilder {
     private final List<SQL> columns = new ArrayList<>();
     private final List<Read<?>> reads = new ArrayList<>();
     private final List<CompletableSupplier<?>> suppliers = new ArrayList<>();
+    private boolean canonicalizing;
 
     private static class CompletableSupplier<T> implements Supplier<T> {
         public T value;
@@ -58,7 +60,8 @@ public class MatrixBatchReadBuilder {
             ((CompletableSupplier<Object>)suppliers.get(i)).value = matrix[i];
         }
 
-        return Array.getLength(matrix[0]);
+        // UUID bits columns are the only ones that aren't simply an array with one element per row
+        return reads.get(0) instanceof MatrixBatchRead.UUIDBitsRead ? ((long[][])matrix[0])[0].length : Array.getLength(matrix[0]);
     }
 
     /** Returns comma delimited column list */
@@ -66,9 +69,28 @@ public class MatrixBatchReadBuilder {
         return SQL.commaSeparate(columns.iterator());
     }
 
+    /**
+     * Makes equal values in each non-primitive column share a single instance: see {@link Reads#canonicalizing(Read)}.
+     * Applies to columns added both before and after this call.
+     */
+    public MatrixBatchReadBuilder canonicalizing() {
+        this.canonicalizing = true;
+        return this;
+    }
+
     /** Returns how to interpret a {@code ResultSet} as a matrix */
     public BatchRead<Object[]> build() {
-        return BatchReads.matrix(reads);
+        if (!canonicalizing) {
+            return BatchReads.matrix(reads);
+        }
+
+        final List<Read<?>> canonicalizingReads = new ArrayList<>();
+        for (Read<?> read : reads) {
+            // UUID bits end up in primitive arrays too, and MatrixBatchRead needs to see the UUIDBitsRead itself
+            final boolean primitive = read.getElementClass().isPrimitive() || read instanceof MatrixBatchRead.UUIDBitsRead;
+            canonicalizingReads.add(primitive ? read : Reads.canonicalizing(read));
+        }
+        return BatchReads.matrix(canonicalizingReads);
     }
 
     private <Ts> Supplier<Ts> addInternal(SQL column, Read<?> read) {
@@ -138,6 +160,28 @@ public class MatrixBatchReadBuilder {
         return addInternal(column, read);
     }
 
+    /** Reads a timestamp column as milliseconds since the epoch: see {@link Reads#EPOCH_MILLIS} */
+    public Supplier<long[]> addEpochMillis(SQL column) {
+        return addLong(column, Reads.EPOCH_MILLIS);
+    }
+
+    /** Reads a fixed-scale decimal column as unscaled longs: see {@link Reads#scaledLong(int)} */
+    public Supplier<long[]> addScaledLong(SQL column, int scale) {
+        return addLong(column, Reads.scaledLong(scale));
+    }
+
+    /**
+     * Reads a UUID column as two parallel arrays: the first holding the most significant bits of each UUID and the second
+     * the least significant bits. Nulls are not allowed.
+     */
+    public Supplier<long[][]> addUUIDBits(SQL column) {
+        return addUUIDBits(column, Reads.useContext(UUID.class));
+    }
+
+    public Supplier<long[][]> addUUIDBits(SQL column, Read<UUID> read) {
+        return addInternal(column, new MatrixBatchRead.UUIDBitsRead(read));
+    }
+
     public Supplier<float[]> addFloat(SQL column) {
         return addFloat(column, Reads.useContext(float.class));
     }
@@ -0,0 +1,20 @@
+package uk.co.omegaprime.mdbi;
+
+import java.lang.annotation.*;
+
+/**
+ * Asks the MDBI annotation processor to generate a {@link Read} and {@link Write} for this JavaBean that do
+ * the same job as {@link Reads#bean(Class, String...)} and {@link Writes#bean(Class, String...)}, but without any reflection.
+ * <p>
+ * The generated class is named as described in {@link MdbiTuple}.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface MdbiBean {
+    /**
+     * The bean properties to map, in column order, named as you would name them for {@link Reads#bean(Class, String...)}.
+     * If empty, every property declared in the class itself that has both a getter and a setter is used, in the order the setters are declared.
+     */
+    String[] value() default {};
+}
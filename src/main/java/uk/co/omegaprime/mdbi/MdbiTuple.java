@@ -0,0 +1,25 @@
+package uk.co.omegaprime.mdbi;
+
+import java.lang.annotation.*;
+
+/**
+ * Asks the MDBI annotation processor to generate a {@link Read} (and optionally a {@link Write}) for this class
+ * that does the same job as {@link Reads#tuple(Class)}, but without any reflection.
+ * <p>
+ * The annotated class must have exactly one public constructor. For a class {@code Outer.Inner} the processor emits
+ * a class {@code Outer_Inner_Mdbi} in the same package, with {@code READ} and {@code WRITE} constants and a
+ * {@code register(Context.Builder)} method. You can use that directly or go via {@link Context.Builder#registerGenerated(Class)}.
+ * <p>
+ * Constructor arguments of primitive type or {@code String} are read and written with the corresponding
+ * {@code ResultSet}/{@code PreparedStatement} methods directly. Other types use the mapping registered in the {@link Context}.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface MdbiTuple {
+    /**
+     * Should a {@code Write} be generated as well as a {@code Read}? If so, each constructor parameter must have a
+     * corresponding public field or getter (e.g. {@code name}, {@code name()}, {@code getName()} or {@code isName()}).
+     */
+    boolean write() default true;
+}
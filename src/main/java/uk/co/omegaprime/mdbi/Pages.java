@@ -0,0 +1,143 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The pages of a keyset-paginated query: see {@link MDBI#paginate(BiFunction, Read, Function, int)}. Only one page needs
+ * to be held in memory at a time, however large the table is.
+ * <p>
+ * When the {@code MDBI} was constructed from a {@code DataSource}, the next page is fetched on another thread (and
+ * connection) while you are processing the current one. Remember to {@link #close()} this if you stop reading early,
+ * so that we stop fetching.
+ */
+public class Pages<K, T> implements AutoCloseable {
+    private final MDBI mdbi;
+    private final BiFunction<? super K, Integer, SQL> query;
+    private final StatementlikeBatchRead<List<T>> batchRead;
+    private final Function<? super T, ? extends K> keyOf;
+    private final int pageSize;
+    private final @Nullable Executor executor;
+    private final @Nullable ExecutorService ownExecutor;
+    private final Cancellation cancellation = new Cancellation();
+
+    // The fetch of the page after the last one we returned, or null if we know there isn't one. If the fetch failed we
+    // hang on to it, so that every later call reports the failure rather than it looking like we reached the end.
+    private @Nullable FutureTask<List<T>> upcoming;
+    // A non-empty page that we have fetched but not yet returned
+    private @Nullable List<T> buffered;
+    private boolean closed;
+
+    Pages(MDBI mdbi, BiFunction<? super K, Integer, SQL> query, Read<T> read, Function<? super T, ? extends K> keyOf, int pageSize) {
+        if (pageSize < 1) throw new IllegalArgumentException("Page size must be positive, but was " + pageSize);
+        this.mdbi = mdbi;
+        this.query = query;
+        this.batchRead = StatementlikeBatchReads.fromBatchRead(BatchReads.asList(read, pageSize));
+        this.keyOf = keyOf;
+        this.pageSize = pageSize;
+
+        if (!mdbi.hasIndependentConnections()) {
+            // Can't use the connection from another thread, so fetch each page when it is asked for
+            this.executor = null;
+            this.ownExecutor = null;
+        } else if (mdbi.getExecutor() != null) {
+            this.executor = mdbi.getExecutor();
+            this.ownExecutor = null;
+        } else {
+            this.executor = this.ownExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "MDBI page prefetcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        fetch(null);
+    }
+
+    private void fetch(@Nullable K after) {
+        final SQL sql = query.apply(after, pageSize);
+        upcoming = new FutureTask<>(() -> mdbi.query(sql, batchRead, cancellation));
+        if (executor != null) executor.execute(upcoming);
+    }
+
+    /** Whether there is another page: blocks until we know. If fetching a page failed, this rethrows that failure every time. */
+    public boolean hasNext() throws SQLException {
+        if (buffered == null && upcoming != null) {
+            if (closed) throw new IllegalStateException("These pages have been closed");
+
+            final FutureTask<List<T>> task = upcoming;
+            task.run(); // Does nothing if it has already run on the executor
+            final List<T> page;
+            try {
+                page = Concurrently.await(task);
+            } catch (SQLException | RuntimeException | Error e) {
+                if (task.isDone()) stopFetching();
+                throw e;
+            }
+
+            upcoming = null;
+            if (!page.isEmpty()) {
+                buffered = page;
+                // A short page must be the last, so don't bother asking for the next one
+                if (page.size() >= pageSize) fetch(keyOf.apply(page.get(page.size() - 1)));
+            }
+
+            if (upcoming == null) stopFetching();
+        }
+
+        return buffered != null;
+    }
+
+    // Called once we won't be fetching any more pages: people who read every page needn't close() us to free our thread
+    private void stopFetching() {
+        if (ownExecutor != null) ownExecutor.shutdown();
+    }
+
+    /** Returns the next page, which is never empty */
+    public List<T> next() throws SQLException {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        final List<T> result = buffered;
+        buffered = null;
+        return result;
+    }
+
+    /** Calls the action on every remaining row, in order, and then closes the pages. Returns the number of rows. */
+    public long forEachRow(SQLConsumer<? super T> action) throws SQLException {
+        long count = 0;
+        try {
+            while (hasNext()) {
+                for (T x : next()) {
+                    action.accept(x);
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            close();
+        }
+        return count;
+    }
+
+    /** Stops any fetch that is in progress. Idempotent. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        cancellation.cancel();
+        if (upcoming != null) upcoming.cancel(true);
+        if (ownExecutor != null) ownExecutor.shutdownNow();
+    }
+}
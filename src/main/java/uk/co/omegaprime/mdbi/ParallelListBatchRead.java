@@ -0,0 +1,82 @@
+package uk.co.omegaprime.mdbi;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+// Reads a list where decoding is expensive by splitting the work in two: the calling thread just copies raw column
+// values out of the ResultSet a batch at a time, and the Executor decodes each batch with the Read. We keep at most
+// maxInFlight batches outstanding, so memory use is bounded however large the result is, and we collect the decoded
+// batches in the order they were read.
+class ParallelListBatchRead<T> implements BatchRead<List<T>> {
+    private final Read<T> read;
+    private final Executor executor;
+    private final int batchSize;
+    private final int maxInFlight;
+
+    public ParallelListBatchRead(Read<T> read, Executor executor, int batchSize, int maxInFlight) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive, but was " + batchSize);
+        if (maxInFlight < 1) throw new IllegalArgumentException("Must allow at least one batch in flight, but got " + maxInFlight);
+        this.read = read;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public List<T> get(Read.Context ctxt, ResultSet rs) throws SQLException {
+        final ResultSetMetaData metaData = new CopiedResultSetMetaData(rs.getMetaData());
+        final int columns = metaData.getColumnCount();
+
+        final List<T> result = new ArrayList<>();
+        final Deque<CompletableFuture<List<T>>> inFlight = new ArrayDeque<>();
+        try {
+            while (true) {
+                final List<Object[]> rows = new ArrayList<>(batchSize);
+                DecodingSpliterator.buffer(rs, columns, rows, batchSize);
+                if (rows.isEmpty()) break;
+
+                if (inFlight.size() == maxInFlight) result.addAll(join(inFlight.removeFirst()));
+                inFlight.addLast(CompletableFuture.supplyAsync(() -> {
+                    final List<T> decoded = new ArrayList<>(rows.size());
+                    new DecodingSpliterator<>(ctxt, read, rs, metaData, rows).forEachRemaining(decoded::add);
+                    return decoded;
+                }, executor));
+            }
+
+            while (!inFlight.isEmpty()) result.addAll(join(inFlight.removeFirst()));
+        } finally {
+            // Only non-empty if we failed: don't waste effort on batches nobody will see
+            for (CompletableFuture<List<T>> future : inFlight) future.cancel(false);
+        }
+
+        return result;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof UndeclaredThrowableException && t.getCause() instanceof SQLException) t = t.getCause();
+
+            if (t instanceof SQLException) {
+                throw (SQLException)t;
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException)t;
+            } else if (t instanceof Error) {
+                throw (Error)t;
+            } else {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+}
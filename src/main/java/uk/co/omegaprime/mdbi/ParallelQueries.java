@@ -0,0 +1,70 @@
+package uk.co.omegaprime.mdbi;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs several independent queries at once, each on its own connection, so that the total time taken is that of the
+ * slowest query rather than the sum of them all. Obtain one with {@link MDBI#parallel()}.
+ * <p>
+ * If any query fails, we cancel the others (via {@link java.sql.Statement#cancel()}, if the driver supports it) and
+ * {@link #run()} throws the exception of the first to fail.
+ */
+public class ParallelQueries {
+    private final MDBI mdbi;
+    private final List<Concurrently.Action<?>> actions = new ArrayList<>();
+    private final List<CompletableSupplier<?>> suppliers = new ArrayList<>();
+    private int maxConcurrency = Integer.MAX_VALUE;
+
+    private static class CompletableSupplier<T> implements Supplier<T> {
+        public boolean completed;
+        public T value;
+
+        @Override
+        public T get() {
+            if (!completed) {
+                throw new IllegalStateException("You must run the corresponding ParallelQueries before invoking a Supplier that it returns");
+            }
+
+            return value;
+        }
+    }
+
+    ParallelQueries(MDBI mdbi) {
+        this.mdbi = mdbi;
+    }
+
+    /** Limits how many of the queries may run at once (and hence how many connections we use). Unlimited by default. */
+    public ParallelQueries withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) throw new IllegalArgumentException("Maximum concurrency must be positive, not " + maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /** Adds a query, returning a {@code Supplier} of its result that can be used once {@link #run()} has returned */
+    public <T> Supplier<T> add(SQL sql, BatchRead<T> batchRead) {
+        return add(sql, StatementlikeBatchReads.fromBatchRead(batchRead));
+    }
+
+    /** As {@link #add(SQL, BatchRead)} */
+    public <T> Supplier<T> add(SQL sql, StatementlikeBatchRead<T> batchRead) {
+        actions.add(cancellation -> mdbi.query(sql, batchRead, cancellation));
+
+        final CompletableSupplier<T> supplier = new CompletableSupplier<>();
+        suppliers.add(supplier);
+        return supplier;
+    }
+
+    /** Runs all the queries added so far, making their results available from the corresponding {@code Supplier}s */
+    @SuppressWarnings("unchecked")
+    public void run() throws SQLException {
+        final List<Object> results = mdbi.runAll((List<Concurrently.Action<Object>>)(List)actions, maxConcurrency, "MDBI parallel query");
+        for (int i = 0; i < results.size(); i++) {
+            final CompletableSupplier<Object> supplier = (CompletableSupplier<Object>)suppliers.get(i);
+            supplier.value = results.get(i);
+            supplier.completed = true;
+        }
+    }
+}
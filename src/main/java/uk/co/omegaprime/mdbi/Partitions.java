@@ -0,0 +1,121 @@
+package uk.co.omegaprime.mdbi;
+
+import java.lang.reflect.Array;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+import static uk.co.omegaprime.mdbi.MDBI.sql;
+
+/**
+ * Functions for splitting a key column into {@link KeyRange}s, and for combining the results of the queries on each
+ * range, for use with {@link MDBI#queryPartitioned(List, Function, BatchRead, Function)}.
+ */
+public final class Partitions {
+    private Partitions() {}
+
+    /**
+     * Splits {@code [min, max]} into at most {@code n} ranges of roughly equal width. Fewer ranges are returned if there
+     * aren't enough distinct values to go round.
+     */
+    public static List<KeyRange<Long>> longRanges(long min, long max, int n) {
+        if (n < 1) throw new IllegalArgumentException("Must ask for at least one range, but asked for " + n);
+        if (min > max) throw new IllegalArgumentException("Minimum " + min + " is greater than maximum " + max);
+
+        final long span = Math.subtractExact(max, min);
+        final List<KeyRange<Long>> result = new ArrayList<>();
+        long lower = min;
+        for (int i = 1; i < n; i++) {
+            final long upper = min + (span / n) * i + (span % n) * i / n;
+            if (upper > lower) {
+                result.add(KeyRange.of(lower, upper, false));
+                lower = upper;
+            }
+        }
+        result.add(KeyRange.of(lower, max, true));
+        return result;
+    }
+
+    /** As {@link #longRanges(long, long, int)}, but for dates */
+    public static List<KeyRange<LocalDate>> dateRanges(LocalDate min, LocalDate max, int n) {
+        final List<KeyRange<LocalDate>> result = new ArrayList<>();
+        for (KeyRange<Long> range : longRanges(min.toEpochDay(), max.toEpochDay(), n)) {
+            result.add(KeyRange.of(LocalDate.ofEpochDay(range.getLower()), LocalDate.ofEpochDay(range.getUpper()), range.isUpperInclusive()));
+        }
+        return result;
+    }
+
+    /**
+     * Splits the values of an integral column into at most {@code n} ranges of roughly equal width, finding the bounds
+     * by asking the database for the minimum and maximum. Returns no ranges if the table is empty.
+     */
+    public static List<KeyRange<Long>> longRanges(MDBI mdbi, SQL table, SQL column, int n) throws SQLException {
+        final Row minMax = mdbi.queryFirst(sql("select min(", column, "), max(", column, ") from ", table),
+                                           Reads.row(Reads.useContext(Long.class), Reads.useContext(Long.class)));
+        final Long min = (Long)minMax.get(0), max = (Long)minMax.get(1);
+        return min == null || max == null ? Collections.emptyList() : longRanges(min, max, n);
+    }
+
+    /** As {@link #longRanges(MDBI, SQL, SQL, int)}, but for a date column */
+    public static List<KeyRange<LocalDate>> dateRanges(MDBI mdbi, SQL table, SQL column, int n) throws SQLException {
+        final Row minMax = mdbi.queryFirst(sql("select min(", column, "), max(", column, ") from ", table),
+                                           Reads.row(Reads.useContext(LocalDate.class), Reads.useContext(LocalDate.class)));
+        final LocalDate min = (LocalDate)minMax.get(0), max = (LocalDate)minMax.get(1);
+        return min == null || max == null ? Collections.emptyList() : dateRanges(min, max, n);
+    }
+
+    /** Combines partial results by concatenating the lists in order */
+    public static <T> Function<List<List<T>>, List<T>> concatLists() {
+        return parts -> {
+            int size = 0;
+            for (List<T> part : parts) size += part.size();
+
+            final List<T> result = new ArrayList<>(size);
+            for (List<T> part : parts) result.addAll(part);
+            return result;
+        };
+    }
+
+    /** Combines partial results by taking the union of the maps, failing if any key occurs in more than one of them */
+    public static <K, V> Function<List<Map<K, V>>, Map<K, V>> unionMaps() {
+        return parts -> {
+            int size = 0;
+            for (Map<K, V> part : parts) size += part.size();
+
+            final Map<K, V> result = new LinkedHashMap<>(CollectionBatchRead.hashCapacity(size));
+            for (Map<K, V> part : parts) {
+                for (Map.Entry<K, V> e : part.entrySet()) {
+                    final V old = result.putIfAbsent(e.getKey(), e.getValue());
+                    if (old != null) {
+                        throw new IllegalArgumentException("Key " + e.getKey() + " occurs in more than one partition, associated with both " + old + " and " + e.getValue());
+                    }
+                }
+            }
+            return result;
+        };
+    }
+
+    /** Combines the partial results of {@link BatchReads#matrix(Class[])} by concatenating each column in order */
+    public static Function<List<Object[]>, Object[]> concatMatrices() {
+        return parts -> {
+            if (parts.isEmpty()) throw new IllegalArgumentException("Can't work out the shape of a matrix with no partitions");
+
+            final Object[] result = new Object[parts.get(0).length];
+            for (int i = 0; i < result.length; i++) {
+                int length = 0;
+                for (Object[] part : parts) length += Array.getLength(part[i]);
+
+                final Object column = Array.newInstance(parts.get(0)[i].getClass().getComponentType(), length);
+                int offset = 0;
+                for (Object[] part : parts) {
+                    final int partLength = Array.getLength(part[i]);
+                    System.arraycopy(part[i], 0, column, offset, partLength);
+                    offset += partLength;
+                }
+                result[i] = column;
+            }
+            return result;
+        };
+    }
+}
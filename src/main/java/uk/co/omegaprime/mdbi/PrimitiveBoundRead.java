@@ -0,0 +1,57 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nonnull;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Implemented by the BoundReads for the common primitive types so that consumers which know they want a primitive
+// (e.g. the compiled constructor calls in TupleRead) can get at the value without boxing it first.
+final class PrimitiveBoundRead {
+    private PrimitiveBoundRead() {}
+
+    interface OfInt extends BoundRead<Integer> {
+        int getInt(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException;
+    }
+
+    interface OfLong extends BoundRead<Long> {
+        long getLong(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException;
+    }
+
+    interface OfDouble extends BoundRead<Double> {
+        double getDouble(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException;
+    }
+
+    // Views any BoundRead as a primitive one, unboxing (and so rejecting nulls) if it doesn't provide the primitive itself
+
+    static OfInt ofInt(BoundRead<? extends Integer> boundRead) {
+        if (boundRead instanceof OfInt) return (OfInt)boundRead;
+        return new OfInt() {
+            @Override public int arity() { return boundRead.arity(); }
+            @Override public Integer get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return getInt(rs, ix); }
+            @Override public int getInt(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return nonNull(boundRead.get(rs, ix)); }
+        };
+    }
+
+    static OfLong ofLong(BoundRead<? extends Long> boundRead) {
+        if (boundRead instanceof OfLong) return (OfLong)boundRead;
+        return new OfLong() {
+            @Override public int arity() { return boundRead.arity(); }
+            @Override public Long get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return getLong(rs, ix); }
+            @Override public long getLong(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return nonNull(boundRead.get(rs, ix)); }
+        };
+    }
+
+    static OfDouble ofDouble(BoundRead<? extends Double> boundRead) {
+        if (boundRead instanceof OfDouble) return (OfDouble)boundRead;
+        return new OfDouble() {
+            @Override public int arity() { return boundRead.arity(); }
+            @Override public Double get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return getDouble(rs, ix); }
+            @Override public double getDouble(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return nonNull(boundRead.get(rs, ix)); }
+        };
+    }
+
+    private static <T> T nonNull(T x) {
+        if (x == null) throw new NullPointerException("Found null in result");
+        return x;
+    }
+}
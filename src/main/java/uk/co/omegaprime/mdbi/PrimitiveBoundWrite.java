@@ -0,0 +1,23 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nonnull;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Implemented by the BoundWrites for the common primitive types so that producers which already have a primitive in
+// hand (e.g. compiled bean getters, or TupleWriteBuilder.addInt) can set it on the statement without boxing it first.
+final class PrimitiveBoundWrite {
+    private PrimitiveBoundWrite() {}
+
+    interface OfInt extends BoundWrite<Integer> {
+        void setInt(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, int x) throws SQLException;
+    }
+
+    interface OfLong extends BoundWrite<Long> {
+        void setLong(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, long x) throws SQLException;
+    }
+
+    interface OfDouble extends BoundWrite<Double> {
+        void setDouble(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, double x) throws SQLException;
+    }
+}
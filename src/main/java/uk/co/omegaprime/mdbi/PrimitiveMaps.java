@@ -0,0 +1,40 @@
+package uk.co.omegaprime.mdbi;
+
+// Shared arithmetic for the open-addressing primitive-keyed maps (LongObjectMap and friends). Those maps use linear
+// probing over power-of-two sized arrays, reserving the key 0 to mean "empty slot". The real key 0, if present,
+// lives in one extra slot past the end of the table.
+final class PrimitiveMaps {
+    private PrimitiveMaps() {}
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    static int hash(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    static int hash(int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** The table size that lets us hold the given number of entries without resizing */
+    static int capacityFor(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Expected size must be non-negative, but was " + expectedSize);
+
+        final long wanted = Math.max(MIN_CAPACITY, (long)expectedSize * 4 / 3 + 1);
+        if (wanted > MAX_CAPACITY) throw new IllegalArgumentException("Too many entries for a single map: " + expectedSize);
+        return Integer.highestOneBit((int)wanted - 1) << 1;
+    }
+
+    /** The number of entries at which a table of the given size must grow */
+    static int threshold(int capacity) {
+        return capacity == MAX_CAPACITY ? capacity - 1 : capacity / 4 * 3;
+    }
+
+    static int grow(int capacity) {
+        if (capacity == MAX_CAPACITY) throw new IllegalStateException("Too many entries for a single map");
+        return capacity * 2;
+    }
+}
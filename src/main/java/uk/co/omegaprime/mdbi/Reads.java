@@ -1,16 +1,23 @@
 package uk.co.omegaprime.mdbi;
 
 import javax.annotation.Nonnull;
+import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -24,6 +31,8 @@ public class Reads {
             if (rs.wasNull()) throw new NullPointerException("Found null in result");
             return result;
         }
+
+        @Override protected Boolean getNotNull(ResultSet rs, int ix) throws SQLException { return rs.getBoolean(ix); }
     };
     public static final Read<Boolean> BOOLEAN = new AbstractUnaryRead<Boolean>(Boolean.class) {
         @Override
@@ -40,6 +49,8 @@ public class Reads {
             if (rs.wasNull()) throw new NullPointerException("Found null in result");
             return result;
         }
+
+        @Override protected Byte getNotNull(ResultSet rs, int ix) throws SQLException { return rs.getByte(ix); }
     };
     public static final Read<Byte> BYTE = new AbstractUnaryRead<Byte>(Byte.class) {
         @Override
@@ -74,6 +85,8 @@ public class Reads {
             if (rs.wasNull()) throw new NullPointerException("Found null in result");
             return result;
         }
+
+        @Override protected Short getNotNull(ResultSet rs, int ix) throws SQLException { return rs.getShort(ix); }
     };
     public static final Read<Short> SHORT = new AbstractUnaryRead<Short>(Short.class) {
         @Override
@@ -83,9 +96,9 @@ public class Reads {
             return result;
         }
     };
-    public static final Read<Integer> PRIM_INT = new AbstractUnaryRead<Integer>(int.class) {
+    public static final Read<Integer> PRIM_INT = new AbstractIntRead() {
         @Override
-        public Integer get(ResultSet rs, int ix) throws SQLException {
+        protected int getInt(ResultSet rs, int ix) throws SQLException {
             final int result = rs.getInt(ix);
             if (rs.wasNull()) throw new NullPointerException("Found null in result");
             return result;
@@ -99,9 +112,9 @@ public class Reads {
             return result;
         }
     };
-    public static final Read<Long> PRIM_LONG = new AbstractUnaryRead<Long>(long.class) {
+    public static final Read<Long> PRIM_LONG = new AbstractLongRead() {
         @Override
-        protected Long get(ResultSet rs, int ix) throws SQLException {
+        protected long getLong(ResultSet rs, int ix) throws SQLException {
             long result = rs.getLong(ix);
             if (rs.wasNull()) throw new NullPointerException("Found null in result");
             return result;
@@ -122,6 +135,8 @@ public class Reads {
             if (rs.wasNull()) return Float.NaN;
             return result;
         }
+
+        @Override protected Float getNotNull(ResultSet rs, int ix) throws SQLException { return rs.getFloat(ix); }
     };
     public static final Read<Float> FLOAT = new AbstractUnaryRead<Float>(Float.class) {
         @Override
@@ -131,9 +146,9 @@ public class Reads {
             return result;
         }
     };
-    public static final Read<Double> PRIM_DOUBLE = new AbstractUnaryRead<Double>(double.class) {
+    public static final Read<Double> PRIM_DOUBLE = new AbstractDoubleRead() {
         @Override
-        public Double get(ResultSet rs, int ix) throws SQLException {
+        protected double getDouble(ResultSet rs, int ix) throws SQLException {
             final double result = rs.getDouble(ix);
             if (rs.wasNull()) return Double.NaN;
             return result;
@@ -150,33 +165,154 @@ public class Reads {
     public static final Read<String> STRING = new AbstractUnaryRead<String>(String.class) {
         @Override public String get(ResultSet rs, int ix) throws SQLException { return rs.getString(ix); }
     };
-    public static final Read<LocalDate> LOCAL_DATE = new AbstractUnaryRead<LocalDate>(LocalDate.class) {
+    public static final Read<LocalDate> LOCAL_DATE = new AbstractJavaTimeRead<LocalDate>(LocalDate.class) {
         @Override
         public LocalDate get(ResultSet rs, int ix) throws SQLException {
             final Timestamp ts = rs.getTimestamp(ix, Time.UTC_CALENDAR.get());
             return ts == null ? null : Instant.ofEpochMilli(ts.getTime()).atZone(Time.UTC_ZONE_ID).toLocalDate();
         }
     };
-    public static final Read<LocalTime> LOCAL_TIME = new AbstractUnaryRead<LocalTime>(LocalTime.class) {
+    public static final Read<LocalTime> LOCAL_TIME = new AbstractJavaTimeRead<LocalTime>(LocalTime.class) {
         @Override
         public LocalTime get(ResultSet rs, int ix) throws SQLException {
             final Timestamp ts = rs.getTimestamp(ix, Time.UTC_CALENDAR.get());
             return ts == null ? null : Instant.ofEpochMilli(ts.getTime()).atZone(Time.UTC_ZONE_ID).toLocalTime();
         }
     };
-    public static final Read<LocalDateTime> LOCAL_DATE_TIME = new AbstractUnaryRead<LocalDateTime>(LocalDateTime.class) {
+    public static final Read<LocalDateTime> LOCAL_DATE_TIME = new AbstractJavaTimeRead<LocalDateTime>(LocalDateTime.class) {
         @Override
         public LocalDateTime get(ResultSet rs, int ix) throws SQLException {
             final Timestamp ts = rs.getTimestamp(ix, Time.UTC_CALENDAR.get());
             return ts == null ? null : Instant.ofEpochMilli(ts.getTime()).atZone(Time.UTC_ZONE_ID).toLocalDateTime();
         }
     };
+    public static final Read<OffsetDateTime> OFFSET_DATE_TIME = new AbstractJavaTimeRead<OffsetDateTime>(OffsetDateTime.class) {
+        @Override
+        public OffsetDateTime get(ResultSet rs, int ix) throws SQLException {
+            final Timestamp ts = rs.getTimestamp(ix, Time.UTC_CALENDAR.get());
+            return ts == null ? null : ts.toInstant().atOffset(ZoneOffset.UTC);
+        }
+    };
+    public static final Read<Instant> INSTANT = new AbstractUnaryRead<Instant>(Instant.class) {
+        @Override
+        public Instant get(ResultSet rs, int ix) throws SQLException {
+            final Timestamp ts = rs.getTimestamp(ix, Time.UTC_CALENDAR.get());
+            return ts == null ? null : ts.toInstant();
+        }
+    };
+    /**
+     * Reads a timestamp column as milliseconds since the epoch (interpreting it as UTC), without allocating any
+     * {@code java.time} objects along the way. Useful with {@link MatrixBatchReadBuilder#addEpochMillis(SQL)}.
+     */
+    public static final Read<Long> EPOCH_MILLIS = new AbstractLongRead() {
+        @Override
+        protected long getLong(ResultSet rs, int ix) throws SQLException {
+            final Timestamp ts = rs.getTimestamp(ix, Time.UTC_CALENDAR.get());
+            if (ts == null) throw new NullPointerException("Found null in result");
+            return ts.getTime();
+        }
+
+        @Override protected long getLongNotNull(ResultSet rs, int ix) throws SQLException { return getLong(rs, ix); }
+    };
     public static final Read<byte[]> BYTE_ARRAY = new AbstractUnaryRead<byte[]>(byte[].class) {
         @Override protected byte[] get(ResultSet rs, int ix) throws SQLException { return rs.getBytes(ix); }
     };
     public static final Read<BigDecimal> BIG_DECIMAL = new AbstractUnaryRead<BigDecimal>(BigDecimal.class) {
         @Override protected BigDecimal get(ResultSet rs, int ix) throws SQLException { return rs.getBigDecimal(ix); }
+
+        // Columns declared as integral are cheaper to read as longs than to have the driver build a BigDecimal for us
+        @Override
+        protected BigDecimal get(ResultSet rs, int ix, ColumnInfo column) throws SQLException {
+            if (!column.integral()) return rs.getBigDecimal(ix);
+
+            final long result = rs.getLong(ix);
+            return rs.wasNull() ? null : BigDecimal.valueOf(result);
+        }
+    };
+
+    /**
+     * Reads a binary column as a stream without materializing it on the heap (if the driver allows). The stream is
+     * only valid until the cursor moves on, so this is for use with {@link BatchReads#forEach(Read, SQLConsumer)}.
+     */
+    public static final Read<InputStream> BINARY_STREAM = new AbstractUnaryRead<InputStream>(InputStream.class) {
+        @Override protected InputStream get(ResultSet rs, int ix) throws SQLException { return rs.getBinaryStream(ix); }
+    };
+    /** As {@link #BINARY_STREAM}, but for character data */
+    public static final Read<Reader> CHARACTER_STREAM = new AbstractUnaryRead<Reader>(Reader.class) {
+        @Override protected Reader get(ResultSet rs, int ix) throws SQLException { return rs.getCharacterStream(ix); }
+    };
+    /** As {@link #BINARY_STREAM}, but as a channel: see {@link LOBs#transfer(ReadableByteChannel, java.nio.channels.WritableByteChannel)} */
+    public static final Read<ReadableByteChannel> BYTE_CHANNEL = new AbstractUnaryRead<ReadableByteChannel>(ReadableByteChannel.class) {
+        @Override
+        protected ReadableByteChannel get(ResultSet rs, int ix) throws SQLException {
+            final InputStream result = rs.getBinaryStream(ix);
+            return result == null ? null : Channels.newChannel(result);
+        }
+    };
+    /** Reads a UUID from its 36 character string form. This is the default for {@code UUID} in {@link Context.Builder#createDefault()}. */
+    public static final Read<UUID> UUID_STRING = new AbstractUnaryRead<UUID>(UUID.class) {
+        @Override
+        protected UUID get(ResultSet rs, int ix) throws SQLException {
+            final String result = rs.getString(ix);
+            return result == null ? null : UUID.fromString(result);
+        }
+    };
+    /** Reads a UUID from a 16 byte big-endian binary column, such as a {@code BINARY(16)} */
+    public static final Read<UUID> UUID_BINARY = new AbstractUnaryRead<UUID>(UUID.class) {
+        @Override
+        protected UUID get(ResultSet rs, int ix) throws SQLException {
+            final byte[] result = rs.getBytes(ix);
+            return result == null ? null : UUIDs.fromBytes(result);
+        }
     };
+    /** Reads a UUID from a column of the database's own UUID type, e.g. Postgres {@code uuid} */
+    public static final Read<UUID> UUID_NATIVE = new AbstractUnaryRead<UUID>(UUID.class) {
+        @Override
+        protected UUID get(ResultSet rs, int ix) throws SQLException {
+            final Object result = rs.getObject(ix);
+            if (result == null || result instanceof UUID) {
+                return (UUID)result;
+            } else if (result instanceof byte[]) {
+                return UUIDs.fromBytes((byte[])result);
+            } else {
+                return UUID.fromString(result.toString());
+            }
+        }
+    };
+
+    /**
+     * Reads a fixed-scale decimal as an unscaled {@code long}: for example, at scale 2 the value 1.25 is read as 125.
+     * <p>
+     * Columns whose declared precision and scale say they hold integers are read with {@code getLong}, without allocating.
+     * Anything else is parsed from its string form, which costs a {@code String} per value but still no {@code BigDecimal}.
+     * Values that would overflow or lose precision cause an {@code ArithmeticException}, and columns whose metadata says
+     * they have a larger scale than requested are rejected with an {@code IllegalArgumentException}. SQL nulls cause a
+     * {@code NullPointerException}.
+     */
+    public static Read<Long> scaledLong(int scale) {
+        Decimals.checkScale(scale);
+        return new AbstractLongRead() {
+            @Override
+            protected long getLong(ResultSet rs, int ix) throws SQLException {
+                final String result = rs.getString(ix);
+                if (result == null) throw new NullPointerException("Found null in result");
+                return Decimals.parse(result, scale);
+            }
+
+            @Override
+            protected long getLong(ResultSet rs, int ix, ColumnInfo column) throws SQLException {
+                if (column.scale() > scale) {
+                    throw new IllegalArgumentException("Column " + ix + " has scale " + column.scale() + " but we can only represent " + scale + " decimal places");
+                }
+
+                if (!column.integral()) return getLong(rs, ix);
+
+                final long result = rs.getLong(ix);
+                if (rs.wasNull()) throw new NullPointerException("Found null in result");
+                return Decimals.scale(result, scale);
+            }
+        };
+    }
 
     /** A {@code Read} instance that simply defers to the {@link Context} to decide how to construct an instance of the given class. */
     public static <T> Read<T> useContext(Class<? extends T> klass) {
@@ -264,6 +400,52 @@ public class Reads {
 
     private Reads() {}
 
+    /**
+     * Reads a SQL {@code ARRAY} column into an {@code int[]}. If the driver doesn't report the column as an {@code ARRAY}, or
+     * doesn't support {@code java.sql.Array}, we instead parse the Postgres text form of the array, e.g. {@code {1,2,3}}.
+     * Null elements are not allowed.
+     */
+    public static Read<int[]> intArray() {
+        return new SQLArrays.ArrayRead<>(SQLArrays.INT);
+    }
+
+    /** As {@link #intArray()}, but for {@code long[]} */
+    public static Read<long[]> longArray() {
+        return new SQLArrays.ArrayRead<>(SQLArrays.LONG);
+    }
+
+    /** As {@link #intArray()}, but for {@code double[]}. Null elements are read as NaN. */
+    public static Read<double[]> doubleArray() {
+        return new SQLArrays.ArrayRead<>(SQLArrays.DOUBLE);
+    }
+
+    /** As {@link #intArray()}, but for {@code String[]}. Null elements are allowed. */
+    public static Read<String[]> stringArray() {
+        return new SQLArrays.ArrayRead<>(SQLArrays.STRING);
+    }
+
+    /** The number of distinct values that {@link #canonicalizing(Read)} will remember in any one query */
+    public static final int DEFAULT_CANONICALIZING_SIZE = 4096;
+
+    /**
+     * Makes equal values read by any one query share a single instance, which is worthwhile for low-cardinality columns
+     * (currency codes and the like) if you are going to hang on to the results. At most {@link #DEFAULT_CANONICALIZING_SIZE}
+     * distinct values are remembered per query.
+     */
+    public static <T> Read<T> canonicalizing(Read<T> read) {
+        return canonicalizing(read, DEFAULT_CANONICALIZING_SIZE);
+    }
+
+    /** As {@link #canonicalizing(Read)}, but remembers at most the given number of distinct values per query */
+    public static <T> Read<T> canonicalizing(Read<T> read, int maxSize) {
+        return new CanonicalizingRead<>(read, maxSize);
+    }
+
+    /** As {@link #canonicalizing(Read)}, but shares the dictionary with every other query that uses the same {@code Canonicalizer} */
+    public static <T> Read<T> canonicalizing(Read<T> read, Canonicalizer<T> canonicalizer) {
+        return new CanonicalizingRead<>(read, canonicalizer);
+    }
+
     /** Constructs an enum by interpreting the value from the database as the name of a enum constant */
     public static <T extends Enum<T>> Read<T> enumAsString(Class<T> klass) {
         return map(klass, Reads.STRING, x -> x == null ? null : Enum.valueOf(klass, x));
@@ -277,6 +459,8 @@ public class Reads {
 
     static class Map implements Read.Context {
         private final HashMap<Class<?>, Read<?>> map = new HashMap<>();
+        // Lets repeated lookups of a class skip the hash probe. Replaced wholesale whenever the map changes.
+        private ClassValue<Read<?>> cache = newCache();
 
         public Map() {}
 
@@ -284,13 +468,23 @@ public class Reads {
             map.putAll(that.map);
         }
 
+        private ClassValue<Read<?>> newCache() {
+            return new ClassValue<Read<?>>() {
+                @Override
+                protected Read<?> computeValue(Class<?> klass) {
+                    return map.get(klass);
+                }
+            };
+        }
+
         public <T> void put(Class<? super T> klass, Read<T> write) {
             map.put(klass, write);
+            cache = newCache();
         }
 
         @SuppressWarnings("unchecked")
         public <T> Read<? extends T> get(Class<T> klass) {
-            final Read<? extends T> result = (Read<? extends T>) map.get(klass);
+            final Read<? extends T> result = (Read<? extends T>) cache.get(klass);
             if (result == null) {
                 throw new IllegalArgumentException("Don't know how to transfer " + klass + " objects from JDBC");
             } else {
@@ -313,6 +507,7 @@ public class Reads {
 
         @Override
         public BoundRead<T> bind(Context ctxt) {
+            final ColumnInfo column = new ColumnInfo();
             return new BoundRead<T>() {
                 @Override
                 public int arity() {
@@ -321,12 +516,143 @@ public class Reads {
 
                 @Override
                 public T get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
-                    return AbstractUnaryRead.this.get(rs, ix.take());
+                    final int i = ix.take();
+                    column.refresh(rs, i);
+                    return AbstractUnaryRead.this.get(rs, i, column);
                 }
             };
         }
 
         protected abstract T get(ResultSet rs, int ix) throws SQLException;
+
+        /**
+         * Reads a column that the database has told us contains no nulls: override if this lets you skip a {@code wasNull} check.
+         * Only reads of primitives should do this, since drivers can be wrong (e.g. for the nullable side of an outer join)
+         * and a boxed read would then silently turn a null into a zero.
+         */
+        protected T getNotNull(ResultSet rs, int ix) throws SQLException {
+            return get(rs, ix);
+        }
+
+        /** Reads the column in the cheapest way that the metadata allows: override if more than nullability matters */
+        protected T get(ResultSet rs, int ix, ColumnInfo column) throws SQLException {
+            return column.notNull ? getNotNull(rs, ix) : get(rs, ix);
+        }
+    }
+
+    // Unary reads of java.time types that use the driver's own support for them when it has any
+    private abstract static class AbstractJavaTimeRead<T> extends AbstractUnaryRead<T> {
+        private final Class<T> klass;
+
+        public AbstractJavaTimeRead(Class<T> klass) {
+            super(klass);
+            this.klass = klass;
+        }
+
+        @Override
+        protected T get(ResultSet rs, int ix, ColumnInfo column) throws SQLException {
+            if (column.javaTime(klass)) {
+                try {
+                    return rs.getObject(ix, klass);
+                } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+                    JavaTimeSupport.markUnsupported(rs, klass);
+                    column.disableJavaTime();
+                } catch (SQLException e) {
+                    // The driver can't convert this particular column: maybe it'll have more luck with a Timestamp
+                    column.disableJavaTime();
+                }
+            }
+
+            return get(rs, ix);
+        }
+    }
+
+    // Unary reads of primitives whose BoundReads can hand out the value without boxing it
+    private abstract static class AbstractIntRead extends AbstractUnaryRead<Integer> {
+        public AbstractIntRead() { super(int.class); }
+
+        @Override
+        public BoundRead<Integer> bind(Context ctxt) {
+            final ColumnInfo column = new ColumnInfo();
+            return new PrimitiveBoundRead.OfInt() {
+                @Override public int arity() { return 1; }
+                @Override public Integer get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return getInt(rs, ix); }
+
+                @Override
+                public int getInt(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
+                    final int i = ix.take();
+                    column.refresh(rs, i);
+                    return AbstractIntRead.this.getInt(rs, i, column);
+                }
+            };
+        }
+
+        @Override protected Integer get(ResultSet rs, int ix) throws SQLException { return getInt(rs, ix); }
+        @Override protected Integer getNotNull(ResultSet rs, int ix) throws SQLException { return getIntNotNull(rs, ix); }
+        protected abstract int getInt(ResultSet rs, int ix) throws SQLException;
+        protected int getIntNotNull(ResultSet rs, int ix) throws SQLException { return rs.getInt(ix); }
+
+        protected int getInt(ResultSet rs, int ix, ColumnInfo column) throws SQLException {
+            return column.notNull ? getIntNotNull(rs, ix) : getInt(rs, ix);
+        }
+    }
+
+    private abstract static class AbstractLongRead extends AbstractUnaryRead<Long> {
+        public AbstractLongRead() { super(long.class); }
+
+        @Override
+        public BoundRead<Long> bind(Context ctxt) {
+            final ColumnInfo column = new ColumnInfo();
+            return new PrimitiveBoundRead.OfLong() {
+                @Override public int arity() { return 1; }
+                @Override public Long get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return getLong(rs, ix); }
+
+                @Override
+                public long getLong(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
+                    final int i = ix.take();
+                    column.refresh(rs, i);
+                    return AbstractLongRead.this.getLong(rs, i, column);
+                }
+            };
+        }
+
+        @Override protected Long get(ResultSet rs, int ix) throws SQLException { return getLong(rs, ix); }
+        @Override protected Long getNotNull(ResultSet rs, int ix) throws SQLException { return getLongNotNull(rs, ix); }
+        protected abstract long getLong(ResultSet rs, int ix) throws SQLException;
+        protected long getLongNotNull(ResultSet rs, int ix) throws SQLException { return rs.getLong(ix); }
+
+        protected long getLong(ResultSet rs, int ix, ColumnInfo column) throws SQLException {
+            return column.notNull ? getLongNotNull(rs, ix) : getLong(rs, ix);
+        }
+    }
+
+    private abstract static class AbstractDoubleRead extends AbstractUnaryRead<Double> {
+        public AbstractDoubleRead() { super(double.class); }
+
+        @Override
+        public BoundRead<Double> bind(Context ctxt) {
+            final ColumnInfo column = new ColumnInfo();
+            return new PrimitiveBoundRead.OfDouble() {
+                @Override public int arity() { return 1; }
+                @Override public Double get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException { return getDouble(rs, ix); }
+
+                @Override
+                public double getDouble(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
+                    final int i = ix.take();
+                    column.refresh(rs, i);
+                    return AbstractDoubleRead.this.getDouble(rs, i, column);
+                }
+            };
+        }
+
+        @Override protected Double get(ResultSet rs, int ix) throws SQLException { return getDouble(rs, ix); }
+        @Override protected Double getNotNull(ResultSet rs, int ix) throws SQLException { return getDoubleNotNull(rs, ix); }
+        protected abstract double getDouble(ResultSet rs, int ix) throws SQLException;
+        protected double getDoubleNotNull(ResultSet rs, int ix) throws SQLException { return rs.getDouble(ix); }
+
+        protected double getDouble(ResultSet rs, int ix, ColumnInfo column) throws SQLException {
+            return column.notNull ? getDoubleNotNull(rs, ix) : getDouble(rs, ix);
+        }
     }
 
     /**
@@ -381,7 +707,7 @@ public class Reads {
 
                     @Override
                     public List<T> get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
-                        final List<T> result = new ArrayList<>();
+                        final List<T> result = new ArrayList<>(bounds.size());
                         for (BoundRead<? extends T> bound : bounds) {
                             result.add(bound.get(rs, ix));
                         }
@@ -398,6 +724,35 @@ public class Reads {
         return list(Arrays.asList(reads));
     }
 
+    /** As {@link #row(Collection)}, but using the {@code Read} instance associated with the class in the {@link Context}. */
+    public static Read<Row> rowWithClasses(Collection<Class<?>> klasses) {
+        return row(klasses.stream().map(klass -> new ContextRead<>(klass)).collect(Collectors.toList()));
+    }
+
+    /** Variadic version of {@link #rowWithClasses(Collection)} */
+    public static Read<Row> rowWithClasses(Class<?>... klasses) {
+        return rowWithClasses(Arrays.asList(klasses));
+    }
+
+    /**
+     * Reads the given elements one after another into a {@link Row}, which can be accessed by position or by column name.
+     * <p>
+     * This holds the same information as {@link #labelledMap(Collection)}, but much more compactly: the column names
+     * are looked up once per query and shared between all of the rows.
+     * <p>
+     * If a {@code Read} instance spans more than one column, the name chosen will be that of the first column.
+     * <p>
+     * If more than one column shares the same name, {@code IllegalArgumentException} will be thrown.
+     */
+    public static Read<Row> row(Collection<? extends Read<?>> reads) {
+        return new RowRead(reads);
+    }
+
+    /** Variadic version of {@link #row(Collection)} */
+    public static Read<Row> row(Read<?>... reads) {
+        return row(Arrays.asList(reads));
+    }
+
     /** As {@link #labelledMap(Collection)}, but using the {@code Read} instance associated with the class in the {@link Context}. */
     public static <T> Read<java.util.Map<String, T>> labelledMapWithClasses(Collection<Class<? extends T>> klasses) {
         return labelledMap(klasses.stream().map(klass -> new ContextRead<>(klass)).collect(Collectors.toList()));
@@ -411,6 +766,7 @@ public class Reads {
 
     /**
      * Reads the given classes one after another, aggregating the results from the row into a {@code Map} keyed by the column name.
+     * The maps are unmodifiable views of a {@link Row}: see {@link #row(Collection)}.
      * <p>
      * If a {@code Read} instance spans more than one column, the name chosen will be that of the first column.
      * <p>
@@ -418,6 +774,8 @@ public class Reads {
      */
     public static <T> Read<java.util.Map<String, T>> labelledMap(Collection<Read<? extends T>> reads) {
         return new Read<java.util.Map<String, T>>() {
+            private final RowRead rowRead = new RowRead(reads);
+
             @SuppressWarnings("unchecked")
             @Override
             public Class<java.util.Map<String, T>> getElementClass() {
@@ -426,27 +784,17 @@ public class Reads {
 
             @Override
             public BoundRead<? extends java.util.Map<String, T>> bind(Context ctxt) {
-                final List<BoundRead<? extends T>> bounds = reads.stream().map(read -> read.bind(ctxt)).collect(Collectors.toList());
+                final BoundRead<Row> bound = rowRead.bind(ctxt);
 
                 return new BoundRead<java.util.Map<String, T>>() {
                     @Override
                     public int arity() {
-                        return bounds.stream().mapToInt(BoundRead::arity).sum();
+                        return bound.arity();
                     }
 
                     @Override
                     public java.util.Map<String, T> get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
-                        final java.util.Map<String, T> result = new LinkedHashMap<>();
-                        for (BoundRead<? extends T> bound : bounds) {
-                            // TODO: refactor so that we can do this lookup only once per query..
-                            final String columnName = rs.getMetaData().getColumnName(ix.peek());
-                            if (result.containsKey(columnName)) {
-                                throw new IllegalArgumentException("Column " + columnName + " occurs twice in the result");
-                            }
-
-                            result.put(columnName, bound.get(rs, ix));
-                        }
-                        return result;
+                        return new Row.MapView<>(bound.get(rs, ix));
                     }
                 };
             }
@@ -1,10 +1,7 @@
 package uk.co.omegaprime.mdbi;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.UndeclaredThrowableException;
-import java.sql.SQLException;
 import java.util.*;
 
 class Reflection {
@@ -99,41 +96,6 @@ class Reflection {
         }
     }
 
-    public static <T> T constructUnchecked(Constructor<T> constructor, Object[] arguments) throws SQLException {
-        try {
-            return constructor.newInstance(arguments);
-        } catch (InstantiationException e) {
-            throw new IllegalStateException("Constructor " + constructor + " was not callable, though we should have already checked that", e);
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException("Constructor " + constructor + " was not accessible, though we should have already checked that", e);
-        } catch (InvocationTargetException e) {
-            throw rethrowInvocationTargetException(e);
-        }
-    }
-
-    public static Object invokeUnchecked(Method method, Object receiver, Object[] arguments) throws SQLException {
-        try {
-            return method.invoke(receiver, arguments);
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException("Method " + method + " was not accessible, though we should have already checked that", e);
-        } catch (InvocationTargetException e) {
-            throw rethrowInvocationTargetException(e);
-        }
-    }
-
-    private static RuntimeException rethrowInvocationTargetException(InvocationTargetException e) throws SQLException {
-        final Throwable cause = e.getCause();
-        if (cause instanceof RuntimeException) {
-            throw (RuntimeException)cause;
-        } else if (cause instanceof Error) {
-            throw (Error)cause;
-        } else if (cause instanceof SQLException) {
-            throw (SQLException)cause;
-        } else {
-            return new UndeclaredThrowableException(cause);
-        }
-    }
-
     public static void checkReadsConformance(String context, List<Class<?>> types, Collection<Read<?>> reads) {
         if (reads.size() != types.size()) {
             throw new IllegalArgumentException(context + " has " + types.size() + " elements but you supplied " + reads.size() + " readers");
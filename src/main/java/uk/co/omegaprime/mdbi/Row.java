@@ -0,0 +1,183 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.*;
+
+/**
+ * One row of a result, stored compactly as an array of values plus a {@link Schema} that is shared by every row of the query.
+ * <p>
+ * Construct these with {@link Reads#row(Collection)}. If you need a {@code Map} or {@code List}, use the {@link #asMap()}
+ * and {@link #asList()} views, which don't copy anything.
+ */
+public final class Row {
+    /** The column labels of a row, and their positions. Immutable, and shared between all rows with the same labels. */
+    public static final class Schema {
+        private final String[] labels;
+        private final HashMap<String, Integer> indexes;
+
+        Schema(String[] labels) {
+            this.labels = labels;
+            this.indexes = new HashMap<>(labels.length * 2);
+            for (int i = 0; i < labels.length; i++) {
+                if (indexes.put(labels[i], i) != null) {
+                    throw new IllegalArgumentException("Column " + labels[i] + " occurs twice in the result");
+                }
+            }
+        }
+
+        public int size() {
+            return labels.length;
+        }
+
+        public List<String> labels() {
+            return Collections.unmodifiableList(Arrays.asList(labels));
+        }
+
+        public String label(int i) {
+            return labels[i];
+        }
+
+        /** Returns the position of the column with the given label, or -1 if there is no such column */
+        public int indexOf(String label) {
+            final Integer result = indexes.get(label);
+            return result == null ? -1 : result;
+        }
+
+        boolean hasLabels(String[] labels) {
+            return Arrays.equals(this.labels, labels);
+        }
+    }
+
+    private final Schema schema;
+    private final Object[] values;
+
+    Row(Schema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public Object get(int i) {
+        return values[i];
+    }
+
+    public Object get(String label) {
+        final int i = schema.indexOf(label);
+        if (i < 0) throw new IllegalArgumentException("No column " + label + " in the row: only " + schema.labels());
+        return values[i];
+    }
+
+    public <T> T get(String label, Class<T> klass) {
+        return klass.cast(get(label));
+    }
+
+    public String getString(String label) {
+        return (String)get(label);
+    }
+
+    /** Returns the value of a numeric column, throwing {@code NullPointerException} if it is null */
+    public int getInt(String label) {
+        return ((Number)Objects.requireNonNull(get(label), label)).intValue();
+    }
+
+    /** Returns the value of a numeric column, throwing {@code NullPointerException} if it is null */
+    public long getLong(String label) {
+        return ((Number)Objects.requireNonNull(get(label), label)).longValue();
+    }
+
+    /** Returns the value of a numeric column, throwing {@code NullPointerException} if it is null */
+    public double getDouble(String label) {
+        return ((Number)Objects.requireNonNull(get(label), label)).doubleValue();
+    }
+
+    /** An unmodifiable view of the values of the row, in column order */
+    public List<Object> asList() {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    /** An unmodifiable view of the row keyed by column label, iterating in column order */
+    public Map<String, Object> asMap() {
+        return new MapView<>(this);
+    }
+
+    static class MapView<T> extends AbstractMap<String, T> {
+        private final Row row;
+
+        MapView(Row row) {
+            this.row = row;
+        }
+
+        @Override
+        public int size() {
+            return row.values.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && row.schema.indexOf((String)key) >= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get(Object key) {
+            final int i = key instanceof String ? row.schema.indexOf((String)key) : -1;
+            return i < 0 ? null : (T)row.values[i];
+        }
+
+        @Override
+        public Set<Entry<String, T>> entrySet() {
+            return new AbstractSet<Entry<String, T>>() {
+                @Override
+                public int size() {
+                    return row.values.length;
+                }
+
+                @Override
+                public Iterator<Entry<String, T>> iterator() {
+                    return new Iterator<Entry<String, T>>() {
+                        private int i = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < row.values.length;
+                        }
+
+                        @SuppressWarnings("unchecked")
+                        @Override
+                        public Entry<String, T> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            final Entry<String, T> result = new SimpleImmutableEntry<>(row.schema.labels[i], (T)row.values[i]);
+                            i++;
+                            return result;
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Row)) return false;
+
+        final Row that = (Row)o;
+        return (schema == that.schema || schema.hasLabels(that.schema.labels)) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(schema.labels) * 31 + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
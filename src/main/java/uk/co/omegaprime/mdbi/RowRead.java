@@ -0,0 +1,74 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nonnull;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class RowRead implements Read<Row> {
+    private final Collection<? extends Read<?>> reads;
+    // The schema of the last query we read. Queries with the same column labels will share it rather than build their own.
+    private volatile Row.Schema lastSchema;
+
+    public RowRead(Collection<? extends Read<?>> reads) {
+        this.reads = reads;
+    }
+
+    @Override
+    public Class<Row> getElementClass() {
+        return Row.class;
+    }
+
+    @Override
+    public BoundRead<Row> bind(Context ctxt) {
+        final List<BoundRead<?>> boundList = reads.stream().map(read -> read.bind(ctxt)).collect(Collectors.toList());
+        final BoundRead<?>[] bounds = boundList.toArray(new BoundRead<?>[boundList.size()]);
+        final int arity = boundList.stream().mapToInt(BoundRead::arity).sum();
+
+        return new BoundRead<Row>() {
+            // We only need to look at the metadata again if we are asked to read from a different ResultSet
+            private ResultSet schemaResultSet;
+            private Row.Schema schema;
+
+            @Override
+            public int arity() {
+                return arity;
+            }
+
+            @Override
+            public Row get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
+                if (rs != schemaResultSet) {
+                    schema = schema(rs, ix.peek());
+                    schemaResultSet = rs;
+                }
+
+                final Object[] values = new Object[bounds.length];
+                for (int i = 0; i < bounds.length; i++) {
+                    values[i] = bounds[i].get(rs, ix);
+                }
+                return new Row(schema, values);
+            }
+
+            // If a Read spans more than one column, it is labelled with the name of the first of them
+            private Row.Schema schema(ResultSet rs, int firstColumn) throws SQLException {
+                final ResultSetMetaData rsmd = rs.getMetaData();
+                final String[] labels = new String[bounds.length];
+                int column = firstColumn;
+                for (int i = 0; i < bounds.length; i++) {
+                    labels[i] = rsmd.getColumnName(column);
+                    column += bounds[i].arity();
+                }
+
+                final Row.Schema last = lastSchema;
+                if (last != null && last.hasLabels(labels)) return last;
+
+                final Row.Schema result = new Row.Schema(labels);
+                lastSchema = result;
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,343 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.Nonnull;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Support for reading and writing SQL ARRAY columns as Java arrays. Where the driver doesn't support java.sql.Array
+// (e.g. SQLite) we fall back on the Postgres text form of the array, e.g. {1,2,3} or {"a","b",NULL}.
+final class SQLArrays {
+    private SQLArrays() {}
+
+    // How to convert between a particular Java array type and its java.sql.Array/text representations
+    abstract static class Codec<T> {
+        final Class<T> klass;
+        final String sqlTypeName;
+
+        Codec(Class<T> klass, String sqlTypeName) {
+            this.klass = klass;
+            this.sqlTypeName = sqlTypeName;
+        }
+
+        /** Converts the result of {@link Array#getArray()}, which is usually an array of boxed values */
+        abstract T fromArray(Object xs);
+        abstract T fromElements(List<String> xs);
+        abstract Object[] toObjects(T xs);
+        abstract List<String> toElements(T xs);
+    }
+
+    private static Object[] objects(Object xs) {
+        if (!(xs instanceof Object[])) throw new IllegalArgumentException("Driver returned an array of unexpected type " + xs.getClass());
+        return (Object[])xs;
+    }
+
+    private static Object nonNull(Object x) {
+        if (x == null) throw new NullPointerException("Found null in array");
+        return x;
+    }
+
+    static final Codec<int[]> INT = new Codec<int[]>(int[].class, "integer") {
+        @Override
+        int[] fromArray(Object xs) {
+            if (xs instanceof int[]) return (int[])xs;
+            final Object[] os = objects(xs);
+            final int[] result = new int[os.length];
+            for (int i = 0; i < os.length; i++) result[i] = ((Number)nonNull(os[i])).intValue();
+            return result;
+        }
+
+        @Override
+        int[] fromElements(List<String> xs) {
+            final int[] result = new int[xs.size()];
+            for (int i = 0; i < result.length; i++) result[i] = Integer.parseInt((String)nonNull(xs.get(i)));
+            return result;
+        }
+
+        @Override
+        Object[] toObjects(int[] xs) {
+            final Object[] result = new Object[xs.length];
+            for (int i = 0; i < xs.length; i++) result[i] = xs[i];
+            return result;
+        }
+
+        @Override
+        List<String> toElements(int[] xs) {
+            final List<String> result = new ArrayList<>(xs.length);
+            for (int x : xs) result.add(Integer.toString(x));
+            return result;
+        }
+    };
+
+    static final Codec<long[]> LONG = new Codec<long[]>(long[].class, "bigint") {
+        @Override
+        long[] fromArray(Object xs) {
+            if (xs instanceof long[]) return (long[])xs;
+            final Object[] os = objects(xs);
+            final long[] result = new long[os.length];
+            for (int i = 0; i < os.length; i++) result[i] = ((Number)nonNull(os[i])).longValue();
+            return result;
+        }
+
+        @Override
+        long[] fromElements(List<String> xs) {
+            final long[] result = new long[xs.size()];
+            for (int i = 0; i < result.length; i++) result[i] = Long.parseLong((String)nonNull(xs.get(i)));
+            return result;
+        }
+
+        @Override
+        Object[] toObjects(long[] xs) {
+            final Object[] result = new Object[xs.length];
+            for (int i = 0; i < xs.length; i++) result[i] = xs[i];
+            return result;
+        }
+
+        @Override
+        List<String> toElements(long[] xs) {
+            final List<String> result = new ArrayList<>(xs.length);
+            for (long x : xs) result.add(Long.toString(x));
+            return result;
+        }
+    };
+
+    static final Codec<double[]> DOUBLE = new Codec<double[]>(double[].class, "float8") {
+        @Override
+        double[] fromArray(Object xs) {
+            if (xs instanceof double[]) return (double[])xs;
+            final Object[] os = objects(xs);
+            final double[] result = new double[os.length];
+            for (int i = 0; i < os.length; i++) result[i] = os[i] == null ? Double.NaN : ((Number)os[i]).doubleValue();
+            return result;
+        }
+
+        @Override
+        double[] fromElements(List<String> xs) {
+            final double[] result = new double[xs.size()];
+            for (int i = 0; i < result.length; i++) result[i] = xs.get(i) == null ? Double.NaN : Double.parseDouble(xs.get(i));
+            return result;
+        }
+
+        @Override
+        Object[] toObjects(double[] xs) {
+            final Object[] result = new Object[xs.length];
+            for (int i = 0; i < xs.length; i++) result[i] = xs[i];
+            return result;
+        }
+
+        @Override
+        List<String> toElements(double[] xs) {
+            final List<String> result = new ArrayList<>(xs.length);
+            for (double x : xs) result.add(Double.toString(x));
+            return result;
+        }
+    };
+
+    static final Codec<String[]> STRING = new Codec<String[]>(String[].class, "varchar") {
+        @Override
+        String[] fromArray(Object xs) {
+            if (xs instanceof String[]) return (String[])xs;
+            final Object[] os = objects(xs);
+            final String[] result = new String[os.length];
+            for (int i = 0; i < os.length; i++) result[i] = os[i] == null ? null : os[i].toString();
+            return result;
+        }
+
+        @Override
+        String[] fromElements(List<String> xs) {
+            return xs.toArray(new String[xs.size()]);
+        }
+
+        @Override
+        Object[] toObjects(String[] xs) {
+            return xs;
+        }
+
+        @Override
+        List<String> toElements(String[] xs) {
+            final List<String> result = new ArrayList<>(xs.length);
+            for (String x : xs) result.add(x == null ? null : quote(x));
+            return result;
+        }
+    };
+
+    private static String quote(String x) {
+        return '"' + x.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /** Renders the text form of an array, where a null element is rendered as NULL */
+    static String format(List<String> elements) {
+        final StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(elements.get(i) == null ? "NULL" : elements.get(i));
+        }
+        return sb.append('}').toString();
+    }
+
+    /** Parses the text form of a one-dimensional array, returning null for NULL elements */
+    static List<String> parse(String s) {
+        final String trimmed = s.trim();
+        if (trimmed.length() < 2 || trimmed.charAt(0) != '{' || trimmed.charAt(trimmed.length() - 1) != '}') {
+            throw new IllegalArgumentException("Not an array: " + s);
+        }
+
+        final List<String> result = new ArrayList<>();
+        int i = 1;
+        final int end = trimmed.length() - 1;
+        while (i < end && Character.isWhitespace(trimmed.charAt(i))) i++;
+        if (i == end) return Collections.emptyList();
+
+        while (true) {
+            while (Character.isWhitespace(trimmed.charAt(i))) i++;
+
+            final char c = trimmed.charAt(i);
+            if (c == '{') {
+                throw new IllegalArgumentException("Multi-dimensional arrays are not supported: " + s);
+            } else if (c == '"') {
+                final StringBuilder sb = new StringBuilder();
+                for (i++; ; i++) {
+                    if (i >= end) throw new IllegalArgumentException("Unterminated quoted element in " + s);
+                    final char d = trimmed.charAt(i);
+                    if (d == '"') break;
+                    sb.append(d == '\\' ? trimmed.charAt(++i) : d);
+                }
+                result.add(sb.toString());
+                i++;
+            } else {
+                final int start = i;
+                while (i < end && trimmed.charAt(i) != ',') i++;
+                final String element = trimmed.substring(start, i).trim();
+                result.add(element.equalsIgnoreCase("NULL") ? null : element);
+            }
+
+            while (i < end && Character.isWhitespace(trimmed.charAt(i))) i++;
+            if (i == end) return result;
+            if (trimmed.charAt(i) != ',') throw new IllegalArgumentException("Expected a comma at position " + i + " of " + s);
+            i++;
+        }
+    }
+
+    static class ArrayRead<T> implements Read<T> {
+        private final Codec<T> codec;
+
+        public ArrayRead(Codec<T> codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public Class<? extends T> getElementClass() {
+            return codec.klass;
+        }
+
+        @Override
+        public BoundRead<T> bind(Context ctxt) {
+            return new BoundRead<T>() {
+                // Whether to parse the text form of the column rather than asking for a java.sql.Array: null until we know
+                private Boolean useText;
+
+                @Override
+                public int arity() {
+                    return 1;
+                }
+
+                @Override
+                public T get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
+                    final int i = ix.take();
+                    if (useText == null) useText = !isArrayColumn(rs, i);
+                    if (!useText) {
+                        final Array array;
+                        try {
+                            array = rs.getArray(i);
+                        } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+                            useText = true;
+                            return get(rs, i);
+                        }
+
+                        if (array == null) return null;
+                        try {
+                            return codec.fromArray(array.getArray());
+                        } finally {
+                            try {
+                                array.free();
+                            } catch (SQLFeatureNotSupportedException | AbstractMethodError ignored) {}
+                        }
+                    }
+
+                    return get(rs, i);
+                }
+
+                private T get(ResultSet rs, int i) throws SQLException {
+                    final String text = rs.getString(i);
+                    return text == null ? null : codec.fromElements(parse(text));
+                }
+            };
+        }
+
+        // Drivers without array support (e.g. SQLite) never report ARRAY columns, and may fail getArray with a plain
+        // SQLException that we can't tell apart from a real error, so we ask the metadata before trying it
+        private static boolean isArrayColumn(ResultSet rs, int i) {
+            try {
+                return rs.getMetaData().getColumnType(i) == Types.ARRAY;
+            } catch (SQLException | RuntimeException e) {
+                // Can't tell, so try getArray and see if the driver says it isn't supported
+                return true;
+            }
+        }
+    }
+
+    static class ArrayWrite<T> implements Write<T> {
+        private final Codec<T> codec;
+
+        public ArrayWrite(Codec<T> codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public BoundWrite<T> bind(Context ctxt) {
+            return new BoundWrite<T>() {
+                // Set once we discover that the driver can't create a java.sql.Array for us
+                private boolean useText;
+
+                @Override
+                public int arity() {
+                    return 1;
+                }
+
+                @Override
+                public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, T x) throws SQLException {
+                    final int i = ix.take();
+                    if (x == null) {
+                        s.setNull(i, Types.ARRAY);
+                        return;
+                    }
+
+                    if (!useText) {
+                        try {
+                            final Array array = s.getConnection().createArrayOf(codec.sqlTypeName, codec.toObjects(x));
+                            if (array == null) throw new SQLFeatureNotSupportedException("Driver returned a null Array");
+                            s.setArray(i, array);
+                            return;
+                        } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+                            useText = true;
+                        }
+                    }
+
+                    s.setString(i, format(codec.toElements(x)));
+                }
+
+                @Nonnull
+                @Override
+                public List<String> asSQL(T x) {
+                    return Collections.singletonList(x == null ? "null" : "'" + format(codec.toElements(x)).replace("'", "''") + "'");
+                }
+            };
+        }
+    }
+}
@@ -197,8 +197,9 @@ class BatchPreparedSQLBuilder {
         final List<Collection> batchBuilt = batch.build();
 
         final List<Iterator> iterators = batchBuilt.stream().map(Collection::iterator).collect(Collectors.toList());
+        final IndexRef ref = IndexRef.create();
         for (int i = 0; i < size; i++) {
-            final IndexRef ref = IndexRef.create();
+            ref.reset();
             for (int j = 0; j < iterators.size(); j++) {
                 actions.get(j).write(stmt, ref, iterators.get(j).next());
             }
@@ -229,10 +230,35 @@ class BespokePreparedSQLBuilder {
         void write(PreparedStatement stmt, IndexRef ref) throws SQLException;
     }
 
+    /** A statement that has been prepared but may be (re)bound any number of times, e.g. to add several rows to a batch. */
+    static class Prepared {
+        public final PreparedStatement statement;
+        private final List<Action> actions;
+
+        private Prepared(PreparedStatement statement, List<Action> actions) {
+            this.statement = statement;
+            this.actions = actions;
+        }
+
+        /** Sets every parameter of the statement from the current value of the corresponding hole. */
+        public void bind() throws SQLException {
+            final IndexRef ref = IndexRef.create();
+            for (Action action : actions) {
+                action.write(statement, ref);
+            }
+        }
+    }
+
     private BespokePreparedSQLBuilder() {}
 
-    @SuppressWarnings("unchecked")
     public static PreparedStatement build(SQL sql, Write.Context wm, Connection connection) throws SQLException {
+        final Prepared prepared = prepare(sql, wm, connection);
+        prepared.bind();
+        return prepared.statement;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Prepared prepare(SQL sql, Write.Context wm, Connection connection) throws SQLException {
         final PreparedSQLBuilder sqlBuilder;
         final List<Action> actions = new ArrayList<>();
 
@@ -244,14 +270,7 @@ class BespokePreparedSQLBuilder {
         });
 
         sqlBuilder.visitSQL(sql);
-        final PreparedStatement stmt = sqlBuilder.build(connection);
-
-        final IndexRef ref = IndexRef.create();
-        for (Action action : actions) {
-            action.write(stmt, ref);
-        }
-
-        return stmt;
+        return new Prepared(sqlBuilder.build(connection), actions);
     }
 
     static SQL.Hole<?> unwrapHole(Object arg) {
@@ -0,0 +1,10 @@
+package uk.co.omegaprime.mdbi;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/** Basically a {@link java.util.function.Consumer} that can throw the exceptions you get from JDBC and from streaming LOBs */
+@FunctionalInterface
+public interface SQLConsumer<T> {
+    void accept(T x) throws SQLException, IOException;
+}
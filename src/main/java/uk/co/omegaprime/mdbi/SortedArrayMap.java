@@ -0,0 +1,293 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.*;
+
+// An immutable NavigableMap over parallel arrays of keys and values that are already sorted by key. Lookups are
+// binary searches, and sub-map views just narrow the range of the arrays that we look at. Descending views are
+// built by copying, since they are rarely wanted.
+class SortedArrayMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+    private final Object[] keys;
+    private final Object[] values;
+    private final int from, to;
+    private final Comparator<? super K> comparator; // Null for natural ordering, as in TreeMap
+
+    private SortedArrayMap(Object[] keys, Object[] values, int from, int to, Comparator<? super K> comparator) {
+        this.keys = keys;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.comparator = comparator;
+    }
+
+    /** Accumulates entries whose keys must arrive in strictly ascending order */
+    static class Builder<K, V> {
+        private final Comparator<? super K> comparator;
+        private Object[] keys = new Object[16], values = new Object[16];
+        private int size;
+
+        Builder(Comparator<? super K> comparator) {
+            this.comparator = comparator;
+        }
+
+        /** Whether the key is the same as the one most recently added */
+        boolean isLastKey(K key) {
+            return size > 0 && compare(comparator, keys[size - 1], key) == 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        V lastValue() {
+            return size == 0 ? null : (V)values[size - 1];
+        }
+
+        void add(K key, V value) {
+            Objects.requireNonNull(key, "Sorted maps can't have null keys");
+            if (size > 0 && compare(comparator, keys[size - 1], key) >= 0) {
+                throw new IllegalArgumentException("Keys must be in strictly ascending order, but " + keys[size - 1] + " was followed by " + key);
+            }
+
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+
+        NavigableMap<K, V> build() {
+            return new SortedArrayMap<>(Arrays.copyOf(keys, size), Arrays.copyOf(values, size), 0, size, comparator);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> int compare(Comparator<? super K> comparator, Object a, Object b) {
+        return comparator == null ? ((Comparable<Object>)a).compareTo(b) : comparator.compare((K)a, (K)b);
+    }
+
+    // As Arrays.binarySearch: the index of the key if present, else (-(insertion point) - 1)
+    private int search(Object key) {
+        Objects.requireNonNull(key);
+        int lo = from, hi = to - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int c = compare(comparator, keys[mid], key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    private int ceilingIndex(Object key) { final int s = search(key); return s >= 0 ? s : -s - 1; }
+    private int higherIndex(Object key)  { final int s = search(key); return s >= 0 ? s + 1 : -s - 1; }
+    private int floorIndex(Object key)   { final int s = search(key); return s >= 0 ? s : -s - 2; }
+    private int lowerIndex(Object key)   { final int s = search(key); return s >= 0 ? s - 1 : -s - 2; }
+
+    @SuppressWarnings("unchecked")
+    private Entry<K, V> entry(int i) {
+        return i < from || i >= to ? null : new SimpleImmutableEntry<>((K)keys[i], (V)values[i]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int i) {
+        return i < from || i >= to ? null : (K)keys[i];
+    }
+
+    private SortedArrayMap<K, V> range(int from, int to) {
+        return new SortedArrayMap<>(keys, values, from, Math.max(from, to), comparator);
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return search(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        final int i = search(key);
+        return i >= 0 ? (V)values[i] : null;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public int size() {
+                return to - from;
+            }
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<Entry<K, V>>() {
+                    private int i = from;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < to;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return entry(i++);
+                    }
+                };
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableList((List<V>)Arrays.asList(values).subList(from, to));
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override public Entry<K, V> lowerEntry(K key)   { return entry(lowerIndex(key)); }
+    @Override public K lowerKey(K key)               { return key(lowerIndex(key)); }
+    @Override public Entry<K, V> floorEntry(K key)   { return entry(floorIndex(key)); }
+    @Override public K floorKey(K key)               { return key(floorIndex(key)); }
+    @Override public Entry<K, V> ceilingEntry(K key) { return entry(ceilingIndex(key)); }
+    @Override public K ceilingKey(K key)             { return key(ceilingIndex(key)); }
+    @Override public Entry<K, V> higherEntry(K key)  { return entry(higherIndex(key)); }
+    @Override public K higherKey(K key)              { return key(higherIndex(key)); }
+    @Override public Entry<K, V> firstEntry()        { return entry(from); }
+    @Override public Entry<K, V> lastEntry()         { return entry(to - 1); }
+
+    @Override
+    public K firstKey() {
+        if (from == to) throw new NoSuchElementException();
+        return key(from);
+    }
+
+    @Override
+    public K lastKey() {
+        if (from == to) throw new NoSuchElementException();
+        return key(to - 1);
+    }
+
+    @Override public Entry<K, V> pollFirstEntry() { throw new UnsupportedOperationException("Map is immutable"); }
+    @Override public Entry<K, V> pollLastEntry()  { throw new UnsupportedOperationException("Map is immutable"); }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        final int n = to - from;
+        final Object[] reversedKeys = new Object[n], reversedValues = new Object[n];
+        for (int i = 0; i < n; i++) {
+            reversedKeys[i] = keys[to - 1 - i];
+            reversedValues[i] = values[to - 1 - i];
+        }
+        return new SortedArrayMap<>(reversedKeys, reversedValues, 0, n, Collections.reverseOrder(comparator));
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<>(this);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (compare(comparator, fromKey, toKey) > 0) throw new IllegalArgumentException("fromKey > toKey");
+        return range(fromInclusive ? ceilingIndex(fromKey) : higherIndex(fromKey),
+                     toInclusive ? floorIndex(toKey) + 1 : lowerIndex(toKey) + 1);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return range(from, inclusive ? floorIndex(toKey) + 1 : lowerIndex(toKey) + 1);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return range(inclusive ? ceilingIndex(fromKey) : higherIndex(fromKey), to);
+    }
+
+    @Override public SortedMap<K, V> subMap(K fromKey, K toKey) { return subMap(fromKey, true, toKey, false); }
+    @Override public SortedMap<K, V> headMap(K toKey)           { return headMap(toKey, false); }
+    @Override public SortedMap<K, V> tailMap(K fromKey)         { return tailMap(fromKey, true); }
+
+    private static class KeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+        private final SortedArrayMap<K, ?> map;
+
+        KeySet(SortedArrayMap<K, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new Iterator<K>() {
+                private int i = map.from;
+
+                @Override
+                public boolean hasNext() {
+                    return i < map.to;
+                }
+
+                @Override
+                public K next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return map.key(i++);
+                }
+            };
+        }
+
+        @Override public K lower(K k)   { return map.lowerKey(k); }
+        @Override public K floor(K k)   { return map.floorKey(k); }
+        @Override public K ceiling(K k) { return map.ceilingKey(k); }
+        @Override public K higher(K k)  { return map.higherKey(k); }
+        @Override public K first()      { return map.firstKey(); }
+        @Override public K last()       { return map.lastKey(); }
+        @Override public Comparator<? super K> comparator() { return map.comparator(); }
+
+        @Override public K pollFirst() { throw new UnsupportedOperationException("Set is immutable"); }
+        @Override public K pollLast()  { throw new UnsupportedOperationException("Set is immutable"); }
+
+        @Override public NavigableSet<K> descendingSet()      { return map.descendingKeySet(); }
+        @Override public Iterator<K> descendingIterator()     { return descendingSet().iterator(); }
+
+        @Override
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            return map.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+        }
+
+        @Override public NavigableSet<K> headSet(K toElement, boolean inclusive)   { return map.headMap(toElement, inclusive).navigableKeySet(); }
+        @Override public NavigableSet<K> tailSet(K fromElement, boolean inclusive) { return map.tailMap(fromElement, inclusive).navigableKeySet(); }
+        @Override public SortedSet<K> subSet(K fromElement, K toElement)           { return subSet(fromElement, true, toElement, false); }
+        @Override public SortedSet<K> headSet(K toElement)                         { return headSet(toElement, false); }
+        @Override public SortedSet<K> tailSet(K fromElement)                       { return tailSet(fromElement, true); }
+    }
+}
@@ -1,6 +1,7 @@
 package uk.co.omegaprime.mdbi;
 
 import javax.annotation.Nonnull;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -38,6 +39,7 @@ class TupleRead<T> implements Read<T> {
     @Override
     public BoundRead<T> bind(Read.Context ctxt) {
         final List<BoundRead<?>> boundReads = reads.stream().map(r -> r.bind(ctxt)).collect(Collectors.toList());
+        final MethodHandle handle = CompiledReads.constructor(constructor, boundReads);
         return new BoundRead<T>() {
             @Override
             public int arity() {
@@ -46,11 +48,7 @@ class TupleRead<T> implements Read<T> {
 
             @Override
             public T get(@Nonnull ResultSet rs, @Nonnull IndexRef ix) throws SQLException {
-                final Object[] arguments = new Object[boundReads.size()];
-                for (int i = 0; i < arguments.length; i++) {
-                    arguments[i] = boundReads.get(i).get(rs, ix);
-                }
-                return Reflection.constructUnchecked(constructor, arguments);
+                return klass.cast(CompiledReads.invoke(handle, rs, ix));
             }
         };
     }
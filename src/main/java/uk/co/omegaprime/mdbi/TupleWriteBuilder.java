@@ -1,10 +1,17 @@
 package uk.co.omegaprime.mdbi;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /** Allows the construction of {@link Write} instances that can turn compound Java objects into sequences of SQL values. */
 public class TupleWriteBuilder<T> {
@@ -24,6 +31,60 @@ public class TupleWriteBuilder<T> {
         return this;
     }
 
+    /** Turns the {@code int} property specified by {@code f} into a SQL object without boxing it, if the {@code Write} registered in the {@link Context} allows. */
+    public TupleWriteBuilder<T> addInt(ToIntFunction<T> f) {
+        args.add(ctxt -> {
+            final BoundWrite<? super Integer> boundWrite = new ContextWrite<>(int.class).bind(ctxt);
+            if (!(boundWrite instanceof PrimitiveBoundWrite.OfInt)) {
+                return Writes.map(new ContextWrite<>(int.class), (T x) -> f.applyAsInt(x)).bind(ctxt);
+            }
+
+            final PrimitiveBoundWrite.OfInt intWrite = (PrimitiveBoundWrite.OfInt)boundWrite;
+            return new BoundWrite<T>() {
+                @Override public int arity() { return intWrite.arity(); }
+                @Override public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, @Nullable T x) throws SQLException { intWrite.setInt(s, ix, f.applyAsInt(x)); }
+                @Nonnull @Override public List<String> asSQL(@Nullable T x) { return intWrite.asSQL(f.applyAsInt(x)); }
+            };
+        });
+        return this;
+    }
+
+    /** Turns the {@code long} property specified by {@code f} into a SQL object without boxing it, if the {@code Write} registered in the {@link Context} allows. */
+    public TupleWriteBuilder<T> addLong(ToLongFunction<T> f) {
+        args.add(ctxt -> {
+            final BoundWrite<? super Long> boundWrite = new ContextWrite<>(long.class).bind(ctxt);
+            if (!(boundWrite instanceof PrimitiveBoundWrite.OfLong)) {
+                return Writes.map(new ContextWrite<>(long.class), (T x) -> f.applyAsLong(x)).bind(ctxt);
+            }
+
+            final PrimitiveBoundWrite.OfLong longWrite = (PrimitiveBoundWrite.OfLong)boundWrite;
+            return new BoundWrite<T>() {
+                @Override public int arity() { return longWrite.arity(); }
+                @Override public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, @Nullable T x) throws SQLException { longWrite.setLong(s, ix, f.applyAsLong(x)); }
+                @Nonnull @Override public List<String> asSQL(@Nullable T x) { return longWrite.asSQL(f.applyAsLong(x)); }
+            };
+        });
+        return this;
+    }
+
+    /** Turns the {@code double} property specified by {@code f} into a SQL object without boxing it, if the {@code Write} registered in the {@link Context} allows. */
+    public TupleWriteBuilder<T> addDouble(ToDoubleFunction<T> f) {
+        args.add(ctxt -> {
+            final BoundWrite<? super Double> boundWrite = new ContextWrite<>(double.class).bind(ctxt);
+            if (!(boundWrite instanceof PrimitiveBoundWrite.OfDouble)) {
+                return Writes.map(new ContextWrite<>(double.class), (T x) -> f.applyAsDouble(x)).bind(ctxt);
+            }
+
+            final PrimitiveBoundWrite.OfDouble doubleWrite = (PrimitiveBoundWrite.OfDouble)boundWrite;
+            return new BoundWrite<T>() {
+                @Override public int arity() { return doubleWrite.arity(); }
+                @Override public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, @Nullable T x) throws SQLException { doubleWrite.setDouble(s, ix, f.applyAsDouble(x)); }
+                @Nonnull @Override public List<String> asSQL(@Nullable T x) { return doubleWrite.asSQL(f.applyAsDouble(x)); }
+            };
+        });
+        return this;
+    }
+
     public Write<T> build() {
         return new TupleWrite<>(new ArrayList<>(args));
     }
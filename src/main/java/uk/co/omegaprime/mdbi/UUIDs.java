@@ -0,0 +1,44 @@
+package uk.co.omegaprime.mdbi;
+
+import java.util.UUID;
+
+// The 16-byte big-endian encoding of UUIDs that databases use for BINARY(16) columns
+final class UUIDs {
+    private UUIDs() {}
+
+    static byte[] toBytes(UUID x) {
+        final byte[] result = new byte[16];
+        putLong(result, 0, x.getMostSignificantBits());
+        putLong(result, 8, x.getLeastSignificantBits());
+        return result;
+    }
+
+    static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != 16) throw new IllegalArgumentException("Found " + bytes.length + " bytes but was expecting a 16 byte UUID");
+        return new UUID(getLong(bytes, 0), getLong(bytes, 8));
+    }
+
+    private static void putLong(byte[] bytes, int offset, long x) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte)x;
+            x >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return result;
+    }
+
+    static String toHex(byte[] bytes) {
+        final char[] digits = "0123456789ABCDEF".toCharArray();
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(digits[(b >> 4) & 0xF]).append(digits[b & 0xF]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,196 @@
+package uk.co.omegaprime.mdbi;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+
+// Groups the rows of a ResultSet by key without needing them to be sorted: we buffer each group's rows in memory
+// and then replay them through the value BatchRead. If the buffered rows grow beyond a limit, we instead write every
+// row to one of several temporary files chosen by hashing its key, and then process the files one at a time, splitting
+// any file whose rows are still too big in the same way using the next few bits of the hash.
+//
+// Since each group's rows are handed to the value BatchRead all at once, a single group is never split up: the memory
+// we use is therefore bounded by the larger of the limit and the biggest group, not by the limit alone.
+@ParametersAreNonnullByDefault
+class UnorderedMapBatchRead<K, V> implements BatchRead<Map<K, V>> {
+    private static final int SPILL_PARTITION_BITS = 4;
+    private static final int SPILL_PARTITIONS = 1 << SPILL_PARTITION_BITS;
+    // Once every bit of the hash has been used to choose a partition, splitting further can't separate any keys
+    private static final int MAX_SPILL_DEPTH = Integer.SIZE / SPILL_PARTITION_BITS;
+    // How often to forget the objects that an ObjectOutputStream has already written, so that it doesn't keep them alive
+    private static final int SPILL_RESET_INTERVAL = 1024;
+
+    private final Read<K> readKey;
+    private final BatchRead<V> readValue;
+    private final long maxBufferedBytes;
+
+    public UnorderedMapBatchRead(Read<K> readKey, BatchRead<V> readValue, long maxBufferedBytes) {
+        if (maxBufferedBytes < 0) throw new IllegalArgumentException("Maximum buffer size must be non-negative, but was " + maxBufferedBytes);
+        this.readKey = readKey;
+        this.readValue = readValue;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    @Override
+    public Map<K, V> get(Read.Context ctxt, ResultSet rs) throws SQLException {
+        final BoundRead<? extends K> boundReadKey = readKey.bind(ctxt);
+        final ResultSetMetaData rsmd = rs.getMetaData();
+        final int columns = rsmd.getColumnCount();
+        final int firstValueIx = 1 + boundReadKey.arity();
+        final IndexRef ix = IndexRef.create();
+
+        final Map<K, V> result = new LinkedHashMap<>();
+        final BufferedResultSet keys = new BufferedResultSet(rs, rsmd, 0, columns);
+        final BufferedResultSet values = new BufferedResultSet(rs, new DropColumnsResultSetMetaData(firstValueIx, rsmd), firstValueIx - 1, columns - firstValueIx + 1);
+        try (Groups groups = new Groups(0)) {
+            while (rs.next()) {
+                final K key = boundReadKey.get(rs, ix.reset());
+                groups.add(key, BufferedResultSet.copyRow(rs, columns));
+            }
+
+            groups.finish(ctxt, boundReadKey, ix, keys, values, result);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The rows seen so far at one level of spilling, either in memory or partitioned across temporary files
+    private class Groups implements Closeable {
+        private final int depth;
+        private Map<K, List<Object[]>> groups = new LinkedHashMap<>();
+        private long bufferedBytes = 0;
+        private Spill spill;
+
+        Groups(int depth) {
+            this.depth = depth;
+        }
+
+        void add(K key, Object[] row) throws IOException {
+            if (spill != null) {
+                spill.write(key, row);
+                return;
+            }
+
+            groups.computeIfAbsent(key, _key -> new ArrayList<>()).add(row);
+            bufferedBytes += estimateBytes(row);
+            // Spilling a lone group wouldn't help, since we'd need to read all of it back in at once anyway
+            if (bufferedBytes > maxBufferedBytes && groups.size() > 1 && depth < MAX_SPILL_DEPTH) {
+                spill = new Spill(depth);
+                for (Map.Entry<K, List<Object[]>> e : groups.entrySet()) {
+                    for (Object[] groupRow : e.getValue()) spill.write(e.getKey(), groupRow);
+                }
+                groups = null;
+            }
+        }
+
+        void finish(Read.Context ctxt, BoundRead<? extends K> boundReadKey, IndexRef ix,
+                    BufferedResultSet keys, BufferedResultSet values, Map<K, V> result) throws IOException, SQLException {
+            if (spill == null) {
+                for (Map.Entry<K, List<Object[]>> e : groups.entrySet()) {
+                    result.put(e.getKey(), readValue.get(ctxt, values.reset(e.getValue())));
+                }
+                return;
+            }
+
+            for (int partition = 0; partition < SPILL_PARTITIONS; partition++) {
+                try (Groups partitionGroups = new Groups(depth + 1)) {
+                    try (ObjectInputStream in = spill.open(partition)) {
+                        if (in == null) continue;
+                        for (int i = spill.count(partition); i > 0; i--) {
+                            final Object[] row = (Object[])in.readObject();
+                            keys.reset(Collections.singletonList(row)).next();
+                            partitionGroups.add(boundReadKey.get(keys, ix.reset()), row);
+                        }
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException("Failed to read back spilled rows", e);
+                    }
+
+                    spill.delete(partition);
+                    partitionGroups.finish(ctxt, boundReadKey, ix, keys, values, result);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (spill != null) spill.close();
+        }
+    }
+
+    // Deliberately rough: this only needs to be good enough to stop us running out of memory
+    private static long estimateBytes(Object[] row) {
+        long result = 16 + 8L * row.length;
+        for (Object x : row) {
+            if (x == null) continue;
+            if (x instanceof String) {
+                result += 40 + 2L * ((String)x).length();
+            } else if (x instanceof byte[]) {
+                result += 16 + ((byte[])x).length;
+            } else {
+                result += 24;
+            }
+        }
+        return result;
+    }
+
+    private static class Spill implements Closeable {
+        private final int depth;
+        private final Path[] files = new Path[SPILL_PARTITIONS];
+        private final ObjectOutputStream[] outs = new ObjectOutputStream[SPILL_PARTITIONS];
+        private final int[] counts = new int[SPILL_PARTITIONS];
+
+        Spill(int depth) {
+            this.depth = depth;
+        }
+
+        void write(Object key, Object[] row) throws IOException {
+            // Each level of spilling partitions on different bits of the hash, so that rows which ended up in the same
+            // file at one level get spread out at the next
+            final int hash = PrimitiveMaps.hash(Objects.hashCode(key));
+            final int partition = (hash >>> (depth * SPILL_PARTITION_BITS)) & (SPILL_PARTITIONS - 1);
+            if (outs[partition] == null) {
+                files[partition] = Files.createTempFile("mdbi-group", ".spill");
+                outs[partition] = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(files[partition])));
+            }
+
+            outs[partition].writeObject(row);
+            if (++counts[partition] % SPILL_RESET_INTERVAL == 0) outs[partition].reset();
+        }
+
+        int count(int partition) {
+            return counts[partition];
+        }
+
+        /** Finishes writing the partition and returns a stream of its rows, or null if it has none */
+        ObjectInputStream open(int partition) throws IOException {
+            if (outs[partition] == null) return null;
+            outs[partition].close();
+            outs[partition] = null;
+
+            return new ObjectInputStream(new BufferedInputStream(Files.newInputStream(files[partition])));
+        }
+
+        void delete(int partition) throws IOException {
+            Files.delete(files[partition]);
+            files[partition] = null;
+        }
+
+        @Override
+        public void close() {
+            for (int i = 0; i < SPILL_PARTITIONS; i++) {
+                try {
+                    if (outs[i] != null) outs[i].close();
+                } catch (IOException ignored) {}
+                try {
+                    if (files[i] != null) Files.deleteIfExists(files[i]);
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+}
@@ -2,15 +2,25 @@ package uk.co.omegaprime.mdbi;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -78,9 +88,9 @@ public class Writes {
             }
         }
     };
-    public static final Write<Integer> PRIM_INT = new AbstractUnaryWrite<Integer>() {
+    public static final Write<Integer> PRIM_INT = new AbstractIntWrite() {
         @Override public String asSQL(@Nullable Integer x) { assert x != null; return Integer.toString(x.intValue()); }
-        @Override public void set(PreparedStatement s, int ix, @Nullable Integer x) throws SQLException { assert x != null; s.setInt(ix, x); }
+        @Override public void setInt(PreparedStatement s, int ix, int x) throws SQLException { s.setInt(ix, x); }
     };
     public static final Write<Integer> INTEGER = new AbstractUnaryWrite<Integer>() {
         @Override public String asSQL(@Nullable Integer x) { return x == null ? "null" : Integer.toString(x.intValue()); }
@@ -94,9 +104,9 @@ public class Writes {
             }
         }
     };
-    public static final Write<Long> PRIM_LONG = new AbstractUnaryWrite<Long>() {
+    public static final Write<Long> PRIM_LONG = new AbstractLongWrite() {
         @Override String asSQL(@Nullable Long x) { assert x != null; return Long.toString(x); }
-        @Override void set(PreparedStatement s, int ix, @Nullable Long x) throws SQLException { assert x != null; s.setLong(ix, x); }
+        @Override void setLong(PreparedStatement s, int ix, long x) throws SQLException { s.setLong(ix, x); }
     };
     public static final Write<Long> LONG = new AbstractUnaryWrite<Long>() {
         @Override String asSQL(@Nullable Long x) { return x == null ? "null" : Long.toString(x); }
@@ -135,12 +145,11 @@ public class Writes {
             }
         }
     };
-    public static final Write<Double> PRIM_DOUBLE = new AbstractUnaryWrite<Double>() {
+    public static final Write<Double> PRIM_DOUBLE = new AbstractDoubleWrite() {
         @Override public String asSQL(@Nullable Double x) { assert x != null; return Double.isNaN(x) ? "null" : Double.toString(x); }
 
         @Override
-        public void set(PreparedStatement s, int ix, @Nullable Double x) throws SQLException {
-            assert x != null;
+        public void setDouble(PreparedStatement s, int ix, double x) throws SQLException {
             if (Double.isNaN(x)) {
                 s.setNull(ix, Types.DOUBLE);
             } else {
@@ -164,30 +173,46 @@ public class Writes {
         @Override public String asSQL(@Nullable String x) { return x == null ? null : "'" + x.replace("'", "''") + "'"; }
         @Override public void set(PreparedStatement s, int ix, @Nullable String x) throws SQLException { s.setString(ix, x); }
     };
-    public static final Write<LocalDate> LOCAL_DATE = new AbstractUnaryWrite<LocalDate>() {
+    public static final Write<LocalDate> LOCAL_DATE = new AbstractJavaTimeWrite<LocalDate>(LocalDate.class) {
         @Override public String asSQL(@Nullable LocalDate x) { return x == null ? "null" : "'" + x.toString() + "'"; }
 
         @Override
-        public void set(PreparedStatement s, int ix, @Nullable LocalDate x) throws SQLException {
+        void setViaTimestamp(PreparedStatement s, int ix, @Nullable LocalDate x) throws SQLException {
             s.setTimestamp(ix, x == null ? null : new Timestamp(x.atTime(0, 0).atZone(Time.UTC_ZONE_ID).toInstant().toEpochMilli()), Time.UTC_CALENDAR.get());
         }
     };
-    public static final Write<LocalTime> LOCAL_TIME = new AbstractUnaryWrite<LocalTime>() {
+    public static final Write<LocalTime> LOCAL_TIME = new AbstractJavaTimeWrite<LocalTime>(LocalTime.class) {
         @Override String asSQL(@Nullable LocalTime x) { return x == null ? "null" : "'" + x.toString() + "'"; }
 
         @Override
-        void set(PreparedStatement s, int ix, @Nullable LocalTime x) throws SQLException {
+        void setViaTimestamp(PreparedStatement s, int ix, @Nullable LocalTime x) throws SQLException {
             s.setTime(ix, x == null ? null : new java.sql.Time(x.atDate(LocalDate.of(1970, 1, 1)).atZone(Time.UTC_ZONE_ID).toInstant().toEpochMilli()), Time.UTC_CALENDAR.get());
         }
     };
-    public static final Write<LocalDateTime> LOCAL_DATE_TIME = new AbstractUnaryWrite<LocalDateTime>() {
+    public static final Write<LocalDateTime> LOCAL_DATE_TIME = new AbstractJavaTimeWrite<LocalDateTime>(LocalDateTime.class) {
         @Override public String asSQL(@Nullable LocalDateTime x) { return x == null ? "null" : "'" + x.toString() + "'"; }
 
         @Override
-        public void set(PreparedStatement s, int ix, @Nullable LocalDateTime x) throws SQLException {
+        void setViaTimestamp(PreparedStatement s, int ix, @Nullable LocalDateTime x) throws SQLException {
             s.setTimestamp(ix, x == null ? null : new Timestamp(x.atZone(Time.UTC_ZONE_ID).toInstant().toEpochMilli()), Time.UTC_CALENDAR.get());
         }
     };
+    public static final Write<OffsetDateTime> OFFSET_DATE_TIME = new AbstractJavaTimeWrite<OffsetDateTime>(OffsetDateTime.class) {
+        @Override public String asSQL(@Nullable OffsetDateTime x) { return x == null ? "null" : "'" + x.toString() + "'"; }
+
+        @Override
+        void setViaTimestamp(PreparedStatement s, int ix, @Nullable OffsetDateTime x) throws SQLException {
+            s.setTimestamp(ix, x == null ? null : Timestamp.from(x.toInstant()), Time.UTC_CALENDAR.get());
+        }
+    };
+    public static final Write<Instant> INSTANT = new AbstractUnaryWrite<Instant>() {
+        @Override public String asSQL(@Nullable Instant x) { return x == null ? "null" : "'" + x.toString() + "'"; }
+
+        @Override
+        public void set(PreparedStatement s, int ix, @Nullable Instant x) throws SQLException {
+            s.setTimestamp(ix, x == null ? null : Timestamp.from(x), Time.UTC_CALENDAR.get());
+        }
+    };
     public static final Write<byte[]> BYTE_ARRAY = new AbstractUnaryWrite<byte[]>() {
         @Override
         String asSQL(@Nullable byte[] x) {
@@ -207,6 +232,143 @@ public class Writes {
         @Override public String asSQL(@Nullable BigDecimal x) { return x == null ? "null" : x.toPlainString(); }
         @Override public void set(PreparedStatement s, int ix, @Nullable BigDecimal x) throws SQLException { s.setBigDecimal(ix, x); }
     };
+    /**
+     * Writes a stream via {@code setBinaryStream}, so the driver can consume it without us materializing it on the heap.
+     * Streams can't be inlined into unprepared SQL.
+     */
+    public static final Write<InputStream> BINARY_STREAM = new AbstractUnaryWrite<InputStream>() {
+        @Override String asSQL(@Nullable InputStream x) { throw new UnsupportedOperationException("Streams can only be written to prepared statements"); }
+        @Override void set(PreparedStatement s, int ix, @Nullable InputStream x) throws SQLException { s.setBinaryStream(ix, x); }
+    };
+    /** As {@link #BINARY_STREAM}, but for character data via {@code setCharacterStream} */
+    public static final Write<Reader> CHARACTER_STREAM = new AbstractUnaryWrite<Reader>() {
+        @Override String asSQL(@Nullable Reader x) { throw new UnsupportedOperationException("Streams can only be written to prepared statements"); }
+        @Override void set(PreparedStatement s, int ix, @Nullable Reader x) throws SQLException { s.setCharacterStream(ix, x); }
+    };
+    /**
+     * Writes the contents of a file as binary data, streaming it to the driver. The file isn't opened until the driver
+     * starts reading it, and is closed once the driver has read all of it or refuses the stream.
+     */
+    public static final Write<Path> PATH = new AbstractUnaryWrite<Path>() {
+        @Override String asSQL(@Nullable Path x) { throw new UnsupportedOperationException("Files can only be written to prepared statements"); }
+
+        @Override
+        void set(PreparedStatement s, int ix, @Nullable Path x) throws SQLException {
+            if (x == null) {
+                s.setNull(ix, Types.BLOB);
+                return;
+            }
+
+            final long size;
+            try {
+                size = Files.size(x);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            final LOBs.FileInputStream stream = new LOBs.FileInputStream(x, size);
+            try {
+                setBinaryStream(s, ix, stream, size);
+            } catch (SQLException | RuntimeException e) {
+                // The driver may have started reading before it gave up, and won't be reading any more of it now
+                try {
+                    stream.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+    };
+    /** Writes the remaining bytes of the buffer (which may be direct or memory-mapped) as binary data, without changing its position */
+    public static final Write<ByteBuffer> BYTE_BUFFER = new AbstractUnaryWrite<ByteBuffer>() {
+        @Override String asSQL(@Nullable ByteBuffer x) { throw new UnsupportedOperationException("Buffers can only be written to prepared statements"); }
+
+        @Override
+        void set(PreparedStatement s, int ix, @Nullable ByteBuffer x) throws SQLException {
+            if (x == null) {
+                s.setNull(ix, Types.BLOB);
+            } else {
+                setBinaryStream(s, ix, new LOBs.ByteBufferInputStream(x.duplicate()), x.remaining());
+            }
+        }
+    };
+
+    // The int-length overload is the one that every driver supports
+    private static void setBinaryStream(PreparedStatement s, int ix, InputStream stream, long length) throws SQLException {
+        if (length <= Integer.MAX_VALUE) {
+            s.setBinaryStream(ix, stream, (int)length);
+        } else {
+            s.setBinaryStream(ix, stream, length);
+        }
+    }
+
+    /** Writes a UUID in its 36 character string form. This is the default for {@code UUID} in {@link Context.Builder#createDefault()}. */
+    public static final Write<UUID> UUID_STRING = new AbstractUnaryWrite<UUID>() {
+        @Override public String asSQL(@Nullable UUID x) { return x == null ? "null" : "'" + x + "'"; }
+        @Override public void set(PreparedStatement s, int ix, @Nullable UUID x) throws SQLException { s.setString(ix, x == null ? null : x.toString()); }
+    };
+    /** Writes a UUID as 16 big-endian bytes, suitable for e.g. a {@code BINARY(16)} column */
+    public static final Write<UUID> UUID_BINARY = new AbstractUnaryWrite<UUID>() {
+        @Override public String asSQL(@Nullable UUID x) { return x == null ? "null" : "X'" + UUIDs.toHex(UUIDs.toBytes(x)) + "'"; }
+        @Override public void set(PreparedStatement s, int ix, @Nullable UUID x) throws SQLException { s.setBytes(ix, x == null ? null : UUIDs.toBytes(x)); }
+    };
+    /** Writes a UUID by handing it straight to the driver, for databases with their own UUID type, e.g. Postgres {@code uuid} */
+    public static final Write<UUID> UUID_NATIVE = new AbstractUnaryWrite<UUID>() {
+        @Override public String asSQL(@Nullable UUID x) { return x == null ? "null" : "'" + x + "'"; }
+
+        @Override
+        public void set(PreparedStatement s, int ix, @Nullable UUID x) throws SQLException {
+            if (x == null) {
+                s.setNull(ix, Types.OTHER);
+            } else {
+                s.setObject(ix, x);
+            }
+        }
+    };
+
+    /**
+     * Writes an {@code int[]} as a SQL {@code ARRAY} created with {@code Connection.createArrayOf}. If the driver can't
+     * do that we instead write the Postgres text form of the array, e.g. {@code {1,2,3}}.
+     */
+    public static Write<int[]> intArray() {
+        return new SQLArrays.ArrayWrite<>(SQLArrays.INT);
+    }
+
+    /** As {@link #intArray()}, but for {@code long[]} */
+    public static Write<long[]> longArray() {
+        return new SQLArrays.ArrayWrite<>(SQLArrays.LONG);
+    }
+
+    /** As {@link #intArray()}, but for {@code double[]} */
+    public static Write<double[]> doubleArray() {
+        return new SQLArrays.ArrayWrite<>(SQLArrays.DOUBLE);
+    }
+
+    /** As {@link #intArray()}, but for {@code String[]} */
+    public static Write<String[]> stringArray() {
+        return new SQLArrays.ArrayWrite<>(SQLArrays.STRING);
+    }
+
+    /**
+     * Writes an unscaled {@code long} as a fixed-scale decimal: for example, at scale 2 the value 125 is written as 1.25.
+     * The inverse of {@link Reads#scaledLong(int)}.
+     */
+    public static Write<Long> scaledLong(int scale) {
+        Decimals.checkScale(scale);
+        return new AbstractLongWrite() {
+            @Override String asSQL(@Nullable Long x) { assert x != null; return Decimals.toBigDecimal(x, scale).toPlainString(); }
+
+            @Override
+            void setLong(PreparedStatement s, int ix, long x) throws SQLException {
+                if (scale == 0) {
+                    s.setLong(ix, x);
+                } else {
+                    s.setBigDecimal(ix, Decimals.toBigDecimal(x, scale));
+                }
+            }
+        };
+    }
 
     /** A {@code Write} instance that simply defers to the {@link Context} to decide how to turn instances of the given class into SQL. */
     public static <T> Write<T> useContext(Class<T> klass) {
@@ -247,7 +409,37 @@ public class Writes {
 
     /** Mapping treating {@code Write} as a co-functor. */
     public static <T, U> Write<U> map(Write<T> write, Function<U, T> f) {
-        return ctxt -> {
+        return MappedWrite.of(write, f);
+    }
+
+    // Fuses chains of map calls into a single MappedWrite, so however many times a Write is mapped there is only
+    // ever one extra BoundWrite between the caller and the underlying write. The composed functions are still
+    // applied one after the other.
+    private static class MappedWrite<T, U> implements Write<U> {
+        private final Write<T> write;
+        private final Function<U, T> f;
+
+        private MappedWrite(Write<T> write, Function<U, T> f) {
+            this.write = write;
+            this.f = f;
+        }
+
+        @SuppressWarnings("unchecked")
+        public static <T, U> Write<U> of(Write<T> write, Function<U, T> f) {
+            if (write instanceof MappedWrite) {
+                return fuse((MappedWrite<?, T>)write, f);
+            } else {
+                return new MappedWrite<>(write, f);
+            }
+        }
+
+        private static <S, T, U> Write<U> fuse(MappedWrite<S, T> inner, Function<U, T> f) {
+            final Function<T, S> g = inner.f;
+            return new MappedWrite<S, U>(inner.write, x -> g.apply(f.apply(x)));
+        }
+
+        @Override
+        public BoundWrite<U> bind(Context ctxt) {
             final BoundWrite<? super T> boundWrite = write.bind(ctxt);
             return new BoundWrite<U>() {
                 @Override
@@ -266,7 +458,7 @@ public class Writes {
                     return boundWrite.asSQL(f.apply(x));
                 }
             };
-        };
+        }
     }
 
     /** Writes the given classes one after another into SQL, picking them from the supplied {@code List} */
@@ -362,8 +554,136 @@ public class Writes {
         }
     }
 
+    // Unary writes of java.time types that use the driver's own support for them when it has any
+    private static abstract class AbstractJavaTimeWrite<T> extends AbstractUnaryWrite<T> {
+        private final Class<T> klass;
+
+        public AbstractJavaTimeWrite(Class<T> klass) {
+            this.klass = klass;
+        }
+
+        abstract void setViaTimestamp(PreparedStatement s, int ix, @Nullable T x) throws SQLException;
+
+        @Override
+        void set(PreparedStatement s, int ix, @Nullable T x) throws SQLException {
+            if (x == null || !JavaTimeSupport.isSupported(s, klass) || !trySetObject(s, ix, x)) setViaTimestamp(s, ix, x);
+        }
+
+        // Returns false if it turns out that the driver can't set this type itself after all
+        private boolean trySetObject(PreparedStatement s, int ix, T x) throws SQLException {
+            try {
+                s.setObject(ix, x);
+                return true;
+            } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+                JavaTimeSupport.markUnsupported(s, klass);
+                return false;
+            }
+        }
+
+        @Override
+        public BoundWrite<T> bind(Context ctxt) {
+            return new BoundWrite<T>() {
+                // Whether the driver of lastStatement can set the type itself: we only ask when the statement changes, not for every value
+                private PreparedStatement lastStatement;
+                private boolean javaTime;
+
+                @Override
+                public int arity() {
+                    return 1;
+                }
+
+                @Override
+                public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, @Nullable T x) throws SQLException {
+                    final int i = ix.take();
+                    if (x != null) {
+                        if (s != lastStatement) {
+                            lastStatement = s;
+                            javaTime = JavaTimeSupport.isSupported(s, klass);
+                        }
+
+                        if (javaTime) {
+                            if (trySetObject(s, i, x)) return;
+                            javaTime = false;
+                        }
+                    }
+
+                    setViaTimestamp(s, i, x);
+                }
+
+                @Nonnull
+                @Override
+                public List<String> asSQL(@Nullable T x) {
+                    return Collections.singletonList(AbstractJavaTimeWrite.this.asSQL(x));
+                }
+            };
+        }
+    }
+
+    // Unary writes of primitives whose BoundWrites can accept the value without it having to be boxed
+    private static abstract class AbstractIntWrite extends AbstractUnaryWrite<Integer> {
+        abstract void setInt(PreparedStatement s, int ix, int x) throws SQLException;
+
+        @Override
+        void set(PreparedStatement s, int ix, @Nullable Integer x) throws SQLException {
+            assert x != null;
+            setInt(s, ix, x);
+        }
+
+        @Override
+        public BoundWrite<Integer> bind(Context ctxt) {
+            return new PrimitiveBoundWrite.OfInt() {
+                @Override public int arity() { return 1; }
+                @Override public void setInt(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, int x) throws SQLException { AbstractIntWrite.this.setInt(s, ix.take(), x); }
+                @Override public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, @Nullable Integer x) throws SQLException { AbstractIntWrite.this.set(s, ix.take(), x); }
+                @Nonnull @Override public List<String> asSQL(@Nullable Integer x) { return Collections.singletonList(AbstractIntWrite.this.asSQL(x)); }
+            };
+        }
+    }
+
+    private static abstract class AbstractLongWrite extends AbstractUnaryWrite<Long> {
+        abstract void setLong(PreparedStatement s, int ix, long x) throws SQLException;
+
+        @Override
+        void set(PreparedStatement s, int ix, @Nullable Long x) throws SQLException {
+            assert x != null;
+            setLong(s, ix, x);
+        }
+
+        @Override
+        public BoundWrite<Long> bind(Context ctxt) {
+            return new PrimitiveBoundWrite.OfLong() {
+                @Override public int arity() { return 1; }
+                @Override public void setLong(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, long x) throws SQLException { AbstractLongWrite.this.setLong(s, ix.take(), x); }
+                @Override public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, @Nullable Long x) throws SQLException { AbstractLongWrite.this.set(s, ix.take(), x); }
+                @Nonnull @Override public List<String> asSQL(@Nullable Long x) { return Collections.singletonList(AbstractLongWrite.this.asSQL(x)); }
+            };
+        }
+    }
+
+    private static abstract class AbstractDoubleWrite extends AbstractUnaryWrite<Double> {
+        abstract void setDouble(PreparedStatement s, int ix, double x) throws SQLException;
+
+        @Override
+        void set(PreparedStatement s, int ix, @Nullable Double x) throws SQLException {
+            assert x != null;
+            setDouble(s, ix, x);
+        }
+
+        @Override
+        public BoundWrite<Double> bind(Context ctxt) {
+            return new PrimitiveBoundWrite.OfDouble() {
+                @Override public int arity() { return 1; }
+                @Override public void setDouble(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, double x) throws SQLException { AbstractDoubleWrite.this.setDouble(s, ix.take(), x); }
+                @Override public void set(@Nonnull PreparedStatement s, @Nonnull IndexRef ix, @Nullable Double x) throws SQLException { AbstractDoubleWrite.this.set(s, ix.take(), x); }
+                @Nonnull @Override public List<String> asSQL(@Nullable Double x) { return Collections.singletonList(AbstractDoubleWrite.this.asSQL(x)); }
+            };
+        }
+    }
+
     static class Map implements Write.Context {
         private final HashMap<Class<?>, Write<?>> map = new HashMap<>();
+        // Caches the result of resolve for each class. Replaced wholesale whenever the map changes.
+        private ClassValue<Write<?>> cache = newCache();
 
         public Map() {}
 
@@ -371,13 +691,49 @@ public class Writes {
             map.putAll(that.map);
         }
 
+        private ClassValue<Write<?>> newCache() {
+            return new ClassValue<Write<?>>() {
+                @Override
+                protected Write<?> computeValue(Class<?> klass) {
+                    return resolve(klass);
+                }
+            };
+        }
+
+        // Any Write for a supertype can write a value of the subtype, so we fall back on the nearest registered
+        // superclass and then on the interfaces (nearest first). This is what lets e.g. proxies and the anonymous
+        // classes of enum constants with bodies be written.
+        private Write<?> resolve(Class<?> klass) {
+            for (Class<?> c = klass; c != null; c = c.getSuperclass()) {
+                final Write<?> write = map.get(c);
+                if (write != null) return write;
+            }
+
+            final Set<Class<?>> seen = new HashSet<>();
+            final ArrayDeque<Class<?>> queue = new ArrayDeque<>();
+            for (Class<?> c = klass; c != null; c = c.getSuperclass()) {
+                queue.addAll(Arrays.asList(c.getInterfaces()));
+            }
+            while (!queue.isEmpty()) {
+                final Class<?> iface = queue.removeFirst();
+                if (!seen.add(iface)) continue;
+
+                final Write<?> write = map.get(iface);
+                if (write != null) return write;
+                queue.addAll(Arrays.asList(iface.getInterfaces()));
+            }
+
+            return null;
+        }
+
         public <T> void put(Class<? extends T> klass, Write<T> write) {
             map.put(klass, write);
+            cache = newCache();
         }
 
         @SuppressWarnings("unchecked")
         public <T> Write<? super T> get(Class<T> klass) {
-            final Write<? super T> result = (Write<? super T>) map.get(klass);
+            final Write<? super T> result = (Write<? super T>) cache.get(klass);
             if (result == null) {
                 throw new IllegalArgumentException("Don't know how to transfer " + klass + " objects to JDBC");
             } else {
@@ -0,0 +1,83 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class BufferedResultSetTest {
+    private static <T> T proxy(Class<T> klass, java.lang.reflect.InvocationHandler handler) {
+        return klass.cast(Proxy.newProxyInstance(BufferedResultSetTest.class.getClassLoader(), new Class<?>[] { klass }, handler));
+    }
+
+    // Like many drivers, the Blobs this hands out stop working once the cursor has moved on from their row
+    private static ResultSet blobs(int[] keys, String[] values) {
+        final int[] row = { -1 };
+        final ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getColumnCount": return 2;
+                case "isNullable":     return ResultSetMetaData.columnNullable;
+                case "getColumnLabel":
+                case "getColumnName":  return "c" + args[0];
+                case "getColumnType":  return (Integer)args[0] == 1 ? Types.INTEGER : Types.BLOB;
+                default: throw new UnsupportedOperationException(m.getName());
+            }
+        });
+        return proxy(ResultSet.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getMetaData":  return metaData;
+                case "getFetchSize": return 0;
+                case "next":         return ++row[0] < keys.length;
+                case "wasNull":      return false;
+                case "getInt":       return keys[row[0]];
+                case "getObject":
+                    if ((Integer)args[0] == 1) return keys[row[0]];
+                    final int blobRow = row[0];
+                    final byte[] bytes = values[blobRow].getBytes("UTF-8");
+                    return proxy(Blob.class, (bp, bm, bargs) -> {
+                        if (row[0] != blobRow) throw new SQLException("Blob is no longer valid");
+                        switch (bm.getName()) {
+                            case "length":   return (long)bytes.length;
+                            case "getBytes": return Arrays.copyOfRange(bytes, (int)(long)(Long)bargs[0] - 1, (int)(long)(Long)bargs[0] - 1 + (Integer)bargs[1]);
+                            case "free":     return null;
+                            default: throw new UnsupportedOperationException(bm.getName());
+                        }
+                    });
+                default: throw new UnsupportedOperationException(m.getName());
+            }
+        });
+    }
+
+    @Test
+    public void lobsAreCopiedWhileBuffering() throws SQLException {
+        final Read.Context ctxt = Context.Builder.createDefault().build().readContext();
+        // Both in memory and spilled to disk, which needs the copies to be serializable
+        for (long maxBufferedBytes : new long[] { BatchReads.DEFAULT_UNORDERED_MAX_BUFFERED_BYTES, 0 }) {
+            final Map<Integer, List<String>> result = BatchReads.asMapUnordered(Reads.useContext(int.class), BatchReads.asList(String.class), maxBufferedBytes)
+                    .get(ctxt, blobs(new int[] { 1, 2, 1 }, new String[] { "a", "b", "c" }));
+            assertEquals(Arrays.asList("a", "c"), result.get(1));
+            assertEquals(Collections.singletonList("b"), result.get(2));
+
+            final Map<Integer, List<byte[]>> bytes = BatchReads.asMapUnordered(Reads.useContext(int.class), BatchReads.asList(byte[].class), maxBufferedBytes)
+                    .get(ctxt, blobs(new int[] { 1, 2 }, new String[] { "a", "b" }));
+            assertArrayEquals("b".getBytes(), bytes.get(2).get(0));
+        }
+    }
+
+    @Test
+    public void lobsAreCopiedForParallelDecoding() throws SQLException {
+        final Read.Context ctxt = Context.Builder.createDefault().build().readContext();
+        final Read<Map<String, Object>> read = Reads.labelledMapWithClasses(Integer.class, String.class);
+
+        final List<Map<String, Object>> list = BatchReads.asListParallel(read).get(ctxt, blobs(new int[] { 1, 2 }, new String[] { "a", "b" }));
+        assertEquals(Arrays.asList("a", "b"), list.stream().map(row -> row.get("c2")).collect(Collectors.toList()));
+
+        final List<Object> streamed = BatchReads.asStream(read).get(ctxt, blobs(new int[] { 1, 2 }, new String[] { "a", "b" }))
+                .map(row -> row.get("c2")).collect(Collectors.toList());
+        assertEquals(Arrays.asList("a", "b"), streamed);
+    }
+}
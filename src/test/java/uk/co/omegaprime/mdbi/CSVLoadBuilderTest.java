@@ -0,0 +1,155 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.co.omegaprime.mdbi.MDBI.sql;
+
+public class CSVLoadBuilderTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Connection conn;
+    private MDBI m;
+
+    @Before
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        m = MDBI.of(conn);
+
+        m.execute(sql("create table person (id integer, name string, score double, born date)"));
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    private Path write(String contents) throws IOException {
+        final Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private CSVLoadBuilder personLoader() {
+        return CSVLoadBuilder.create().add(int.class).add(String.class).add(double.class).add(LocalDate.class);
+    }
+
+    private static SQL insertPerson(SQL values) {
+        return sql("insert into person (id, name, score, born) values (", values, ")");
+    }
+
+    @Test
+    public void loadsQuotedAndNullFields() throws SQLException, IOException {
+        final Path path = write("id,name,score,born\r\n" +
+                                "1,Max,1.5,2001-02-03\r\n" +
+                                "2,\"Bolton, \"\"Mike\"\"\",,\r\n" +
+                                "\r\n" +
+                                "3,\"\",-2,1999-12-31\r\n" +
+                                "4,Zoë,100,");
+
+        final CSVLoadProgress progress = personLoader().withHeader(true).withBatchSize(2).load(m, path, CSVLoadBuilderTest::insertPerson);
+        assertTrue(progress.isDone());
+        assertEquals(4, progress.getRowsLoaded());
+        assertEquals(2, progress.getBatchesExecuted());
+        assertEquals(progress.getTotalBytes(), progress.getBytesLoaded());
+
+        assertEquals(Arrays.asList("Max", "Bolton, \"Mike\"", "", "Zoë"),
+                     m.queryList(sql("select name from person order by id"), String.class));
+        assertEquals(Arrays.asList(1.5, null, -2.0, 100.0),
+                     m.queryList(sql("select score from person order by id"), Double.class));
+        assertEquals(Arrays.asList(LocalDate.of(2001, 2, 3), null, LocalDate.of(1999, 12, 31), null),
+                     m.queryList(sql("select born from person order by id"), LocalDate.class));
+    }
+
+    @Test
+    public void trailingCarriageReturnIsABlankLine() throws SQLException, IOException {
+        final Path path = write("1,Max,1.5,2001-02-03\r\n\r");
+
+        final CSVLoadProgress progress = personLoader().load(m, path, CSVLoadBuilderTest::insertPerson);
+        assertEquals(1, progress.getRowsLoaded());
+        assertEquals(Arrays.asList("Max"), m.queryList(sql("select name from person"), String.class));
+    }
+
+    @Test
+    public void skipsFieldsAndUsesCustomParsers() throws SQLException, IOException {
+        final Path path = write("1;ignored;max\n2;ignored;john\n");
+
+        CSVLoadBuilder.create().withSeparator(';')
+                .add(int.class).skip().add(String.class, cs -> cs.toString().toUpperCase())
+                .load(m, path, values -> sql("insert into person (id, name) values (", values, ")"));
+
+        assertEquals(Arrays.asList("MAX", "JOHN"), m.queryList(sql("select name from person order by id"), String.class));
+    }
+
+    @Test
+    public void rowsMayStraddleWindows() throws SQLException, IOException {
+        final StringBuilder sb = new StringBuilder();
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final String name = "Person \"" + i + "\"";
+            sb.append(i).append(",\"").append(name.replace("\"", "\"\"")).append("\",").append(i / 2.0).append(",\n");
+            expected.add(name);
+        }
+
+        personLoader().withMaxWindowBytes(64).withBatchSize(7).load(m, write(sb.toString()), CSVLoadBuilderTest::insertPerson);
+
+        assertEquals(expected, m.queryList(sql("select name from person order by id"), String.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowLongerThanWindowFails() throws SQLException, IOException {
+        personLoader().withMaxWindowBytes(8).load(m, write("1,A very long name,1,\n"), CSVLoadBuilderTest::insertPerson);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongNumberOfFieldsFails() throws SQLException, IOException {
+        personLoader().load(m, write("1,Max,1\n"), CSVLoadBuilderTest::insertPerson);
+    }
+
+    @Test
+    public void loadsInParallel() throws SQLException, IOException {
+        final File database = temporaryFolder.newFile();
+        final SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout("60000");
+        final SQLiteDataSource dataSource = new SQLiteDataSource(config);
+        dataSource.setUrl("jdbc:sqlite:" + database);
+
+        final MDBI parallelM = MDBI.of(dataSource);
+        parallelM.execute(sql("create table person (id integer, name string, score double, born date)"));
+
+        final StringBuilder sb = new StringBuilder("id,name,score,born\n");
+        long expectedSum = 0;
+        for (int i = 0; i < 5000; i++) {
+            sb.append(i).append(",Name").append(i).append(",").append(i).append(",2000-01-01\n");
+            expectedSum += i;
+        }
+
+        final CSVLoadProgress progress = personLoader().withHeader(true).withParallelism(4).withBatchSize(500)
+                .load(parallelM, write(sb.toString()), CSVLoadBuilderTest::insertPerson);
+
+        assertEquals(5000, progress.getRowsLoaded());
+        assertEquals(5000, parallelM.queryFirst(sql("select count(*) from person"), int.class).intValue());
+        assertEquals(expectedSum, parallelM.queryFirst(sql("select sum(id) from person"), long.class).longValue());
+    }
+}
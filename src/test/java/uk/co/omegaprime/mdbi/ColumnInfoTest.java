@@ -0,0 +1,72 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.*;
+
+import static org.junit.Assert.*;
+
+public class ColumnInfoTest {
+    private static <T> T proxy(Class<T> klass, java.lang.reflect.InvocationHandler handler) {
+        return klass.cast(Proxy.newProxyInstance(ColumnInfoTest.class.getClassLoader(), new Class<?>[] { klass }, handler));
+    }
+
+    // A result whose only value is null, from a driver that claims the column is NOT NULL with the given type
+    private static ResultSet nullFromNotNullColumn(int type, int precision) {
+        final ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "isNullable":    return ResultSetMetaData.columnNoNulls;
+                case "getColumnType": return type;
+                case "getPrecision":  return precision;
+                case "getScale":      return 0;
+                default: throw new UnsupportedOperationException(m.getName());
+            }
+        });
+        return proxy(ResultSet.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getMetaData":   return metaData;
+                case "getInt":        return 0;
+                case "getLong":       return 0L;
+                case "getBigDecimal": return null;
+                case "wasNull":       return true;
+                default: throw new UnsupportedOperationException(m.getName());
+            }
+        });
+    }
+
+    @Test
+    public void boxedReadsDontTrustNotNull() throws SQLException {
+        // e.g. a column from the nullable side of an outer join, which the driver describes using the base table
+        final Read.Context ctxt = Context.Builder.createDefault().build().readContext();
+        assertNull(Reads.INTEGER.bind(ctxt).get(nullFromNotNullColumn(Types.INTEGER, 10), IndexRef.create()));
+        assertNull(Reads.LONG.bind(ctxt).get(nullFromNotNullColumn(Types.BIGINT, 19), IndexRef.create()));
+        assertNull(Reads.BIG_DECIMAL.bind(ctxt).get(nullFromNotNullColumn(Types.DECIMAL, 10), IndexRef.create()));
+        assertEquals(0, (int)Reads.PRIM_INT.bind(ctxt).get(nullFromNotNullColumn(Types.INTEGER, 10), IndexRef.create()));
+    }
+
+    @Test
+    public void integralOnlyFromDeclaredPrecisionAndScale() throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            final MDBI m = MDBI.of(conn);
+            m.execute(MDBI.sql("create table t (a numeric, b decimal(10,0), c decimal(18,6), d decimal(19,0), e integer)"));
+            m.execute(MDBI.sql("insert into t values (2, 3, 4, 5, 6)"));
+
+            final boolean[] integral = m.query(MDBI.sql("select * from t"), (BatchRead<boolean[]>)(ctxt, rs) -> {
+                final boolean[] result = new boolean[rs.getMetaData().getColumnCount()];
+                rs.next();
+                for (int i = 0; i < result.length; i++) {
+                    final ColumnInfo column = new ColumnInfo();
+                    column.refresh(rs, i + 1);
+                    result[i] = column.integral();
+                }
+                return result;
+            });
+            // SQLite doesn't report a precision for plain INTEGER columns, so we can't be sure about them
+            assertArrayEquals(new boolean[] { false, true, false, false, false }, integral);
+
+            assertEquals(BigDecimal.valueOf(3), m.queryFirst(MDBI.sql("select b from t"), BigDecimal.class));
+        }
+    }
+}
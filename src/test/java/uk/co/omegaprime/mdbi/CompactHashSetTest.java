@@ -0,0 +1,46 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CompactHashSetTest {
+    @Test
+    public void agreesWithLinkedHashSet() {
+        final Random random = new Random(1);
+        final List<Integer> xs = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) xs.add(random.nextInt(3000) - 100);
+        xs.add(null);
+        xs.add(null);
+
+        final Set<Integer> expected = new LinkedHashSet<>(xs);
+        final Set<Integer> actual = CompactHashSet.copyOf(xs);
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        assertTrue(actual.contains(null));
+        assertFalse(actual.contains(5000));
+        assertTrue(CompactHashSet.copyOf(Collections.emptyList()).isEmpty());
+
+        try {
+            actual.remove(xs.get(0));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void mostlyDuplicates() {
+        final List<String> xs = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) xs.add(i % 3 == 0 ? null : Integer.toString(i % 5));
+
+        final Set<String> actual = CompactHashSet.copyOf(xs);
+        assertEquals(new ArrayList<>(new LinkedHashSet<>(xs)), new ArrayList<>(actual));
+        for (String x : xs) assertTrue(actual.contains(x));
+        assertFalse(actual.contains("5"));
+    }
+}
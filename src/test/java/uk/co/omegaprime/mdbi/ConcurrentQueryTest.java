@@ -0,0 +1,273 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static uk.co.omegaprime.mdbi.MDBI.sql;
+
+public class ConcurrentQueryTest {
+    private static final int ROWS = 1000;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MDBI m;
+
+    @Before
+    public void setUp() throws SQLException, IOException {
+        final SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout("60000");
+        final SQLiteDataSource dataSource = new SQLiteDataSource(config);
+        dataSource.setUrl("jdbc:sqlite:" + temporaryFolder.newFile());
+
+        m = MDBI.of(dataSource);
+        m.execute(sql("create table person (id integer, name string)"));
+        m.execute(sql("with recursive n(i) as (select 1 union all select i + 1 from n where i < " + ROWS + ") insert into person select i, 'P' || i from n"));
+    }
+
+    @Test
+    public void partitionedQueries() throws SQLException {
+        final List<KeyRange<Long>> ranges = Partitions.longRanges(m, sql("person"), sql("id"), 7);
+        assertEquals(7, ranges.size());
+
+        final Map<Integer, String> map = m.queryPartitioned(ranges, range -> sql("select id, name from person where ", range.predicate("id")),
+                                                            BatchReads.asMap(Integer.class, String.class), Partitions.unionMaps());
+        assertEquals(ROWS, map.size());
+        assertEquals("P1000", map.get(1000));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<Integer> ids = m.withExecutor(executor).queryPartitioned(ranges,
+                    range -> sql("select id from person where ", range.predicate("id"), " order by id"),
+                    BatchReads.asList(Integer.class), Partitions.concatLists());
+            assertEquals(m.queryList(sql("select id from person order by id"), Integer.class), ids);
+        } finally {
+            executor.shutdown();
+        }
+
+        final Object[] matrix = m.queryPartitioned(ranges, range -> sql("select id, name from person where ", range.predicate("id"), " order by id"),
+                                                   BatchReads.matrix(int.class, String.class), Partitions.concatMatrices());
+        assertEquals(ROWS, ((int[])matrix[0]).length);
+        assertEquals("P1", ((String[])matrix[1])[0]);
+        assertEquals(ROWS, ((String[])matrix[1]).length);
+
+        assertTrue(Partitions.longRanges(m, sql("person where id < 0"), sql("id"), 7).isEmpty());
+    }
+
+    @Test
+    public void partitionedQueriesRunSequentiallyOnOneConnection() throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            final MDBI single = MDBI.of(conn);
+            single.execute(sql("create table person (id integer, name string)"));
+            single.execute(sql("insert into person values (1, 'A'), (2, 'B'), (3, 'C')"));
+
+            final AtomicInteger usedExecutor = new AtomicInteger();
+            final List<String> names = single.withExecutor(r -> { usedExecutor.incrementAndGet(); r.run(); })
+                    .queryPartitioned(Partitions.longRanges(1, 3, 3), range -> sql("select name from person where ", range.predicate("id")),
+                                      BatchReads.asList(String.class), Partitions.concatLists());
+            assertEquals(Arrays.asList("A", "B", "C"), names);
+            assertEquals(0, usedExecutor.get());
+        }
+    }
+
+    @Test
+    public void partitionedQueryFailuresPropagate() {
+        try {
+            m.queryPartitioned(Partitions.longRanges(1, ROWS, 4), range -> sql("select id from nonexistent where ", range.predicate("id")),
+                               BatchReads.asList(Integer.class), Partitions.concatLists());
+            fail();
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("nonexistent"));
+        }
+    }
+
+    @Test
+    public void parallelQueries() throws SQLException {
+        final ParallelQueries queries = m.parallel();
+        final Supplier<List<String>> names = queries.add(sql("select name from person where id <= 3 order by id"), BatchReads.asList(String.class));
+        final Supplier<Integer> count = queries.add(sql("select count(*) from person"), BatchReads.first(int.class));
+        final Supplier<String> missing = queries.add(sql("select name from person where id < 0"), BatchReads.firstOrNull(String.class));
+
+        try {
+            names.get();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected: haven't run yet
+        }
+
+        queries.run();
+        assertEquals(Arrays.asList("P1", "P2", "P3"), names.get());
+        assertEquals(ROWS, count.get().intValue());
+        assertNull(missing.get());
+    }
+
+    @Test
+    public void parallelQueriesRespectMaxConcurrency() throws SQLException {
+        final AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+        final BatchRead<Integer> first = BatchReads.first(int.class);
+        final BatchRead<Integer> countingFirst = (ctxt, rs) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+                return first.get(ctxt, rs);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        };
+
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final ParallelQueries queries = m.withExecutor(pool).parallel().withMaxConcurrency(2);
+            final List<Supplier<Integer>> counts = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                counts.add(queries.add(sql("select count(*) from person where id > ").$(i * 100), countingFirst));
+            }
+            queries.run();
+
+            for (int i = 0; i < 8; i++) {
+                assertEquals(ROWS - i * 100, counts.get(i).get().intValue());
+            }
+            assertTrue(maxRunning.get() <= 2);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void parallelQueryFailureCancelsSiblings() throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            final ParallelQueries queries = m.withExecutor(pool).parallel();
+            // Would take a very long time if it weren't cancelled
+            queries.add(sql("with recursive n(i) as (select 1 union all select i + 1 from n) select count(*) from n"), BatchReads.first(long.class));
+            queries.add(sql("select * from nonexistent"), BatchReads.first(int.class));
+            try {
+                queries.run();
+                fail();
+            } catch (SQLException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("nonexistent"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+    }
+
+    private static SQL pageQuery(Integer after, int limit) {
+        return sql("select id from person ", after == null ? sql("") : sql("where id > ").$(after), " order by id limit ").$(limit);
+    }
+
+    @Test
+    public void paginate() throws SQLException {
+        final List<Integer> expected = m.queryList(sql("select id from person order by id"), Integer.class);
+        for (int pageSize : new int[] { 1, 64, 100, ROWS, 2 * ROWS }) {
+            final List<Integer> ids = new ArrayList<>();
+            int pages = 0;
+            try (Pages<Integer, Integer> it = m.paginate(ConcurrentQueryTest::pageQuery, Integer.class, id -> id, pageSize)) {
+                while (it.hasNext()) {
+                    final List<Integer> page = it.next();
+                    assertTrue(page.size() <= pageSize);
+                    ids.addAll(page);
+                    pages++;
+                }
+                assertFalse(it.hasNext());
+            }
+            assertEquals(expected, ids);
+            assertEquals((ROWS + pageSize - 1) / pageSize, pages);
+        }
+
+        final List<Integer> ids = new ArrayList<>();
+        assertEquals(ROWS, m.paginate(ConcurrentQueryTest::pageQuery, Integer.class, id -> id, 128).forEachRow(ids::add));
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void paginateOnOneConnection() throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            final MDBI single = MDBI.of(conn);
+            single.execute(sql("create table person (id integer, name string)"));
+            single.execute(sql("insert into person values (1, 'A'), (2, 'B'), (3, 'C')"));
+
+            try (Pages<Integer, Integer> pages = single.paginate(ConcurrentQueryTest::pageQuery, Integer.class, id -> id, 2)) {
+                assertEquals(Arrays.asList(1, 2), pages.next());
+                assertEquals(Collections.singletonList(3), pages.next());
+                assertFalse(pages.hasNext());
+            }
+        }
+    }
+
+    @Test
+    public void paginateStopsWhenClosed() throws SQLException {
+        final Pages<Integer, Integer> pages = m.paginate(ConcurrentQueryTest::pageQuery, Integer.class, id -> id, 10);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), pages.next());
+        pages.close();
+        pages.close();
+        try {
+            pages.hasNext();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void paginateReleasesThreadWhenFinished() throws SQLException, InterruptedException {
+        final Pages<Integer, Integer> pages = m.paginate(ConcurrentQueryTest::pageQuery, Integer.class, id -> id, 300);
+        while (pages.hasNext()) pages.next();
+
+        // Not closed, but we read every page, so the prefetching thread should go away by itself
+        for (int i = 0; i < 1000 && prefetcherThreads() > 0; i++) Thread.sleep(10);
+        assertEquals(0, prefetcherThreads());
+    }
+
+    private static long prefetcherThreads() {
+        return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals("MDBI page prefetcher")).count();
+    }
+
+    @Test
+    public void paginateKeepsReportingFailure() throws SQLException {
+        final Pages<Integer, Integer> pages = m.paginate((after, limit) -> after == null ? pageQuery(null, limit) : sql("select nonsense"),
+                                                         Integer.class, id -> id, 10);
+        assertEquals(10, pages.next().size());
+        for (int i = 0; i < 2; i++) {
+            try {
+                pages.hasNext();
+                fail();
+            } catch (SQLException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("nonsense"));
+            }
+        }
+        pages.close();
+    }
+
+    @Test
+    public void ranges() {
+        assertEquals(Arrays.asList(KeyRange.of(0L, 3L, false), KeyRange.of(3L, 6L, false), KeyRange.of(6L, 10L, true)),
+                     Partitions.longRanges(0, 10, 3));
+        assertEquals(Arrays.asList(KeyRange.of(5L, 6L, false), KeyRange.of(6L, 7L, true)), Partitions.longRanges(5, 7, 10));
+        assertEquals(Collections.singletonList(KeyRange.of(5L, 5L, true)), Partitions.longRanges(5, 5, 10));
+        assertEquals(KeyRange.of(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 16), false),
+                     Partitions.dateRanges(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 31), 2).get(0));
+        assertEquals("id >= 1 and id < 2", KeyRange.of(1, 2, false).predicate("id").toString());
+    }
+}
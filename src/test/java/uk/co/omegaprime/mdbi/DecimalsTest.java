@@ -0,0 +1,42 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DecimalsTest {
+    @Test
+    public void parse() {
+        assertEquals(1250000, Decimals.parse("1.25", 6));
+        assertEquals(-1250000, Decimals.parse("-1.250000000", 6));
+        assertEquals(100, Decimals.parse("+1", 2));
+        assertEquals(5, Decimals.parse(".05", 2));
+        assertEquals(1500, Decimals.parse("1.5E+3", 0));
+        assertEquals(Long.MIN_VALUE, Decimals.parse(Long.toString(Long.MIN_VALUE), 0));
+    }
+
+    @Test
+    public void parseFailsLoudly() {
+        for (String s : new String[] { "1.001", "9223372036854775808", "92233720368547758.08" }) {
+            try {
+                Decimals.parse(s, 2);
+                fail(s);
+            } catch (ArithmeticException e) {
+                // Expected
+            }
+        }
+
+        try {
+            Decimals.parse("-", 2);
+            fail();
+        } catch (NumberFormatException e) {
+            // Expected
+        }
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void scaleOverflows() {
+        Decimals.scale(Long.MAX_VALUE / 10, 2);
+    }
+}
@@ -0,0 +1,80 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JavaTimeSupportTest {
+    private static <T> T proxy(Class<T> klass, java.lang.reflect.InvocationHandler handler) {
+        return klass.cast(Proxy.newProxyInstance(JavaTimeSupportTest.class.getClassLoader(), new Class<?>[] { klass }, handler));
+    }
+
+    @Test
+    public void usesDriverSupportUntilTheDriverRefuses() throws SQLException {
+        final LocalDate date = LocalDate.of(2015, 8, 1);
+        final boolean[] refuse = new boolean[1];
+        final List<Object> set = new ArrayList<>();
+        final int[] connectionLookups = new int[1];
+
+        final DatabaseMetaData metaData = proxy(DatabaseMetaData.class, (p, m, args) -> m.getName().equals("getJDBCMajorVersion") ? 4 : 2);
+        final Connection connection = proxy(Connection.class, (p, m, args) -> metaData);
+        final PreparedStatement statement = proxy(PreparedStatement.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getConnection":
+                    connectionLookups[0]++;
+                    return connection;
+                case "setObject":
+                    if (refuse[0]) throw new SQLFeatureNotSupportedException();
+                    set.add(args[1]);
+                    return null;
+                case "setTimestamp":
+                    set.add(args[1]);
+                    return null;
+                default: throw new UnsupportedOperationException(m.getName());
+            }
+        });
+        final ResultSet rs = proxy(ResultSet.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getStatement": return statement;
+                case "getMetaData":  throw new SQLFeatureNotSupportedException();
+                case "getObject":
+                    if (refuse[0]) throw new SQLFeatureNotSupportedException();
+                    return date;
+                case "getTimestamp": return new Timestamp(date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+                default: throw new UnsupportedOperationException(m.getName());
+            }
+        });
+
+        final Context ctxt = Context.Builder.createDefault().build();
+        assertEquals(date, Reads.LOCAL_DATE.bind(ctxt.readContext()).get(rs, IndexRef.create()));
+        Writes.LOCAL_DATE.bind(ctxt.writeContext()).set(statement, IndexRef.create(), date);
+        assertEquals(date, set.get(0));
+
+        // A bound write only looks up whether the driver supports the type when the statement changes
+        final BoundWrite<? super LocalDate> boundWrite = Writes.LOCAL_DATE.bind(ctxt.writeContext());
+        connectionLookups[0] = 0;
+        boundWrite.set(statement, IndexRef.create(), date);
+        boundWrite.set(statement, IndexRef.create(), date);
+        assertEquals(1, connectionLookups[0]);
+
+        // Once the driver says it can't do it we go back to Timestamps, and stop asking
+        refuse[0] = true;
+        assertEquals(date, Reads.LOCAL_DATE.bind(ctxt.readContext()).get(rs, IndexRef.create()));
+        Writes.LOCAL_DATE.bind(ctxt.writeContext()).set(statement, IndexRef.create(), date);
+        assertEquals(Timestamp.class, set.get(set.size() - 1).getClass());
+        assertFalse(JavaTimeSupport.isSupported(connection, LocalDate.class));
+
+        // Other types are unaffected by the driver refusing LocalDate
+        assertTrue(JavaTimeSupport.isSupported(connection, OffsetDateTime.class));
+    }
+}
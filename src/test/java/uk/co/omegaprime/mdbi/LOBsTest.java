@@ -0,0 +1,73 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LOBsTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static PreparedStatement statement(List<InputStream> streams, boolean fail) {
+        return (PreparedStatement)Proxy.newProxyInstance(LOBsTest.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, (p, m, args) -> {
+            if (!m.getName().equals("setBinaryStream")) throw new UnsupportedOperationException(m.getName());
+
+            final InputStream stream = (InputStream)args[1];
+            streams.add(stream);
+            if (fail) {
+                stream.read();
+                throw new SQLException("Refusing the stream after one byte");
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void pathsAreOpenedLazily() throws SQLException, IOException {
+        final Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, new byte[] { 1, 2, 3 });
+
+        final List<InputStream> streams = new ArrayList<>();
+        final Context ctxt = Context.Builder.createDefault().build();
+        Writes.PATH.bind(ctxt.writeContext()).set(statement(streams, false), IndexRef.create(), path);
+
+        // If the file had been opened when the statement was set up, we'd still be able to read it after deleting it
+        Files.delete(path);
+        try {
+            streams.get(0).read();
+            fail();
+        } catch (NoSuchFileException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void pathsAreClosedWhenTheDriverFails() throws IOException {
+        final Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, new byte[] { 1, 2, 3 });
+
+        final List<InputStream> streams = new ArrayList<>();
+        final Context ctxt = Context.Builder.createDefault().build();
+        try {
+            Writes.PATH.bind(ctxt.writeContext()).set(statement(streams, true), IndexRef.create(), path);
+            fail();
+        } catch (SQLException e) {
+            assertEquals("Refusing the stream after one byte", e.getMessage());
+        }
+
+        assertEquals(-1, streams.get(0).read());
+    }
+}
@@ -0,0 +1,57 @@
+package uk.co.omegaprime.mdbi;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static uk.co.omegaprime.mdbi.MDBI.sql;
+
+/**
+ * Compares the primitive-keyed map reads with the boxed {@code asMap} equivalents, reporting the best time of several
+ * runs and roughly how much heap the result retains. Run with e.g. {@code java PrimitiveMapBenchmark 5000000}.
+ */
+public class PrimitiveMapBenchmark {
+    private interface Query {
+        Object run() throws SQLException;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            final MDBI m = MDBI.of(conn);
+            m.execute(sql("create table t (id integer primary key, x double, name text)"));
+            m.execute(sql("with recursive n(i) as (select 1 union all select i + 1 from n where i < " + rows + ") " +
+                          "insert into t select i * 7919, i / 3.0, 'N' || (i % 1000) from n"));
+
+            final SQL longDouble = sql("select id, x from t"), longString = sql("select id, name from t");
+            benchmark("asMap(Long, Double)",  () -> m.query(longDouble, BatchReads.asMap(Long.class, Double.class)));
+            benchmark("asLongDoubleMap",      () -> m.query(longDouble, BatchReads.asLongDoubleMap()));
+            benchmark("asMap(Long, String)",  () -> m.query(longString, BatchReads.asMap(Long.class, String.class)));
+            benchmark("asLongMap(String)",    () -> m.query(longString, BatchReads.asLongMap(String.class)));
+        }
+    }
+
+    private static void benchmark(String name, Query query) throws SQLException {
+        long bestNanos = Long.MAX_VALUE;
+        long retainedBytes = 0;
+        for (int i = 0; i < 5; i++) {
+            final long before = usedBytes();
+            final long start = System.nanoTime();
+            Object result = query.run();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            retainedBytes = usedBytes() - before;
+
+            // Keep the result alive until we have measured it
+            if (result.hashCode() == 42) System.out.print("");
+            result = null;
+        }
+
+        System.out.printf("%-20s %8.1f ms %8.1f MB retained%n", name, bestNanos / 1e6, retainedBytes / 1e6);
+    }
+
+    private static long usedBytes() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,60 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveMapsTest {
+    @Test
+    public void agreesWithHashMap() {
+        final Random random = new Random(1);
+        final LongObjectMap<String> map = LongObjectMap.create();
+        final LongLongMap longs = LongLongMap.create();
+        final Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            // Lots of collisions, plus the zero key that the tables use to mark empty slots
+            final long key = random.nextInt(5000) - 100;
+            final String value = "V" + i;
+            assertEquals(expected.put(key, value), map.put(key, value));
+            longs.put(key, i);
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), longs.size());
+        assertEquals("V" + longs.get(0), map.get(0));
+        for (Map.Entry<Long, String> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+            assertEquals(e.getValue(), "V" + longs.get(e.getKey()));
+        }
+        assertNull(map.get(123456));
+        assertFalse(longs.containsKey(123456));
+        assertEquals(-1, longs.getOrDefault(123456, -1));
+
+        final Map<Long, String> seen = new HashMap<>();
+        map.forEach(seen::put);
+        assertEquals(expected, seen);
+
+        final long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    public void equalityIgnoresInsertionOrder() {
+        final IntObjectMap<String> a = IntObjectMap.create(), b = IntObjectMap.create(1000);
+        for (int i = 0; i < 100; i++) a.put(i, "X" + i);
+        for (int i = 99; i >= 0; i--) b.put(i, "X" + i);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        b.put(0, "Y");
+        assertNotEquals(a, b);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void missingPrimitiveValue() {
+        LongDoubleMap.create().get(1);
+    }
+}
@@ -0,0 +1,78 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.co.omegaprime.mdbi.MDBI.sql;
+
+public class RowAllocationTest {
+    private static final int ROWS = 100_000;
+
+    // Small values so that any boxing the test itself does is served from the Integer cache
+    private static final SQL QUERY = sql("with recursive n(i) as (select 0 union all select i + 1 from n where i < " + (ROWS - 1) + ") " +
+                                         "select i % 100, i % 7 from n");
+
+    private Connection conn;
+    private MDBI m;
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() throws SQLException {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        m = MDBI.of(conn);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        if (conn != null) conn.close();
+    }
+
+    private interface Query {
+        void run() throws SQLException;
+    }
+
+    /** Returns the fewest bytes allocated by any of several runs of the query, so that JIT warmup doesn't count */
+    private long allocatedBytes(Query query) throws SQLException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            final long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            query.run();
+            best = Math.min(best, threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+        }
+        return best;
+    }
+
+    @Test
+    public void forEachDoesNotAllocatePerRow() throws SQLException {
+        final long[] sum = new long[1];
+        final long bytes = allocatedBytes(() -> {
+            sum[0] = 0;
+            assertEquals(ROWS, (long)m.query(QUERY, BatchReads.forEach(Reads.PRIM_INT, x -> sum[0] += x)));
+        });
+        assertTrue(bytes + " bytes allocated for " + ROWS + " rows", bytes < ROWS);
+    }
+
+    @Test
+    public void primitiveMatrixOnlyAllocatesItsResult() throws SQLException {
+        final long bytes = allocatedBytes(() -> {
+            final Object[] matrix = m.query(QUERY, BatchReads.matrix(int.class, int.class));
+            assertEquals(ROWS, ((int[])matrix[0]).length);
+        });
+        // Each column is grown by doubling and then trimmed, so costs at most about 4 ints per row
+        assertTrue(bytes + " bytes allocated for " + ROWS + " rows", bytes < 2 * 4 * 4 * ROWS + ROWS);
+    }
+}
@@ -0,0 +1,74 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SQLArraysTest {
+    @Test
+    public void parse() {
+        assertEquals(Collections.emptyList(), SQLArrays.parse("{}"));
+        assertEquals(Collections.emptyList(), SQLArrays.parse(" { } "));
+        assertEquals(Arrays.asList("1", "2", "3"), SQLArrays.parse("{1, 2,3}"));
+        assertEquals(Arrays.asList("a b", null, "NULL", "q\"u,o}te\\"), SQLArrays.parse("{a b,NULL,\"NULL\",\"q\\\"u,o}te\\\\\"}"));
+    }
+
+    @Test
+    public void formatRoundTrips() {
+        final String[] xs = new String[] { "a b", null, "NULL", "q\"u,o}te\\", "" };
+        assertEquals(Arrays.asList(xs), SQLArrays.parse(SQLArrays.format(SQLArrays.STRING.toElements(xs))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void multiDimensionalArraysUnsupported() {
+        SQLArrays.parse("{{1,2},{3,4}}");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullsNotAllowedInPrimitiveArrays() {
+        SQLArrays.INT.fromElements(SQLArrays.parse("{1,NULL}"));
+    }
+
+    private static <T> T proxy(Class<T> klass, java.lang.reflect.InvocationHandler handler) {
+        return klass.cast(Proxy.newProxyInstance(SQLArraysTest.class.getClassLoader(), new Class<?>[] { klass }, handler));
+    }
+
+    @Test
+    public void onlyFallsBackToTextIfArraysAreUnsupported() throws SQLException {
+        final SQLException failure = new SQLException("Connection lost");
+        final ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (p, m, args) -> Types.ARRAY);
+        final ResultSet rs = proxy(ResultSet.class, (p, m, args) -> {
+            switch (m.getName()) {
+                case "getMetaData": return metaData;
+                case "getArray":    throw failure;
+                default: throw new UnsupportedOperationException(m.getName());
+            }
+        });
+        final Connection connection = proxy(Connection.class, (p, m, args) -> { throw failure; });
+        final PreparedStatement statement = proxy(PreparedStatement.class, (p, m, args) -> {
+            if (m.getName().equals("getConnection")) return connection;
+            throw new UnsupportedOperationException(m.getName());
+        });
+
+        final Context ctxt = Context.Builder.createDefault().build();
+        try {
+            Reads.intArray().bind(ctxt.readContext()).get(rs, IndexRef.create());
+            fail();
+        } catch (SQLException e) {
+            assertEquals(failure, e);
+        }
+
+        try {
+            Writes.intArray().bind(ctxt.writeContext()).set(statement, IndexRef.create(), new int[] { 1 });
+            fail();
+        } catch (SQLException e) {
+            assertEquals(failure, e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package uk.co.omegaprime.mdbi;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SortedArrayMapTest {
+    private static NavigableMap<Integer, String> build(NavigableMap<Integer, String> from) {
+        final SortedArrayMap.Builder<Integer, String> builder = new SortedArrayMap.Builder<>(from.comparator());
+        from.forEach(builder::add);
+        return builder.build();
+    }
+
+    private static void assertAgrees(NavigableMap<Integer, String> expected, NavigableMap<Integer, String> actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(actual.values()));
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        if (!expected.isEmpty()) {
+            assertEquals(expected.firstKey(), actual.firstKey());
+            assertEquals(expected.lastEntry(), actual.lastEntry());
+        }
+
+        for (int k = -3; k <= 43; k++) {
+            assertEquals(expected.get(k), actual.get(k));
+            assertEquals(expected.lowerEntry(k), actual.lowerEntry(k));
+            assertEquals(expected.floorKey(k), actual.floorKey(k));
+            assertEquals(expected.ceilingEntry(k), actual.ceilingEntry(k));
+            assertEquals(expected.higherKey(k), actual.higherKey(k));
+        }
+    }
+
+    @Test
+    public void agreesWithTreeMap() {
+        final TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 40; i += 3) expected.put(i, "V" + i);
+        final NavigableMap<Integer, String> actual = build(expected);
+
+        assertAgrees(expected, actual);
+        assertAgrees(expected.descendingMap(), actual.descendingMap());
+        assertAgrees(expected.subMap(4, true, 30, false), actual.subMap(4, true, 30, false));
+        assertAgrees(expected.subMap(3, false, 30, true), actual.subMap(3, false, 30, true));
+        assertAgrees(expected.headMap(9, true).tailMap(2, false), actual.headMap(9, true).tailMap(2, false));
+        assertAgrees(expected.subMap(10, true, 11, false), actual.subMap(10, true, 11, false));
+        assertAgrees(expected.tailMap(100, true), actual.tailMap(100, true));
+        assertAgrees(expected.descendingMap().headMap(20, false), actual.descendingMap().headMap(20, false));
+        assertEquals(new ArrayList<>(expected.descendingKeySet()), new ArrayList<>(actual.descendingKeySet()));
+        assertEquals(expected.navigableKeySet().subSet(5, 20), actual.navigableKeySet().subSet(5, 20));
+    }
+
+    @Test
+    public void customComparator() {
+        final TreeMap<Integer, String> expected = new TreeMap<>(Comparator.reverseOrder());
+        for (int i = 0; i < 40; i += 7) expected.put(i, "V" + i);
+        assertAgrees(expected, build(expected));
+    }
+
+    @Test
+    public void isImmutable() {
+        final TreeMap<Integer, String> source = new TreeMap<>(Collections.singletonMap(1, "One"));
+        final NavigableMap<Integer, String> map = build(source);
+        try {
+            map.put(2, "Two");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        try {
+            map.pollFirstEntry();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        try {
+            map.keySet().remove(1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void rejectsUnsortedKeys() {
+        final SortedArrayMap.Builder<Integer, String> builder = new SortedArrayMap.Builder<>(null);
+        builder.add(2, "Two");
+        try {
+            builder.add(1, "One");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("2 was followed by 1"));
+        }
+    }
+}
@@ -3,17 +3,29 @@ package userpackage;
 import org.junit.*;
 import uk.co.omegaprime.mdbi.*;
 
+import java.io.*;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.function.IntSupplier;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 import static uk.co.omegaprime.mdbi.MDBI.$;
@@ -79,6 +91,76 @@ public class MDBITest {
         Assert.assertEquals("Max", m.queryFirst(sql("select name from person"), String.class));
     }
 
+    public static class Primitives {
+        public final int i;
+        public final long l;
+        public final double d;
+        public final String s;
+
+        public Primitives(int i, long l, double d, String s) {
+            this.i = i;
+            this.l = l;
+            this.d = d;
+            this.s = s;
+        }
+    }
+
+    @Test
+    public void tupleReadPrimitives() throws SQLException {
+        final Primitives result = m.queryFirst(sql("select 1, 10000000000, 1.5, 'x'"), Reads.tuple(Primitives.class));
+        assertEquals(1, result.i);
+        assertEquals(10000000000L, result.l);
+        assertEquals(1.5, result.d, 0.0);
+        assertEquals("x", result.s);
+    }
+
+    @Test
+    public void readsSpecializeOnColumnMetadata() throws SQLException {
+        m.execute(sql("create table specialized (i integer not null, d double not null, n integer)"));
+        m.execute(sql("insert into specialized values (1, 1.5, null)"));
+        m.execute(sql("insert into specialized values (2, 2.5, 3)"));
+
+        assertEquals(Arrays.asList(1, 2), m.queryList(sql("select i from specialized order by i"), Reads.PRIM_INT));
+        assertEquals(Arrays.asList(1.5, 2.5), m.queryList(sql("select d from specialized order by i"), Double.class));
+        assertEquals(Arrays.asList(BigDecimal.valueOf(1), BigDecimal.valueOf(2)), m.queryList(sql("select i from specialized order by i"), BigDecimal.class));
+        assertEquals(Arrays.asList(null, BigDecimal.valueOf(3)), m.queryList(sql("select n from specialized order by i"), BigDecimal.class));
+        assertEquals(Arrays.asList(null, 3), m.queryList(sql("select n from specialized order by i"), Integer.class));
+
+        final List<Double> ds = m.queryList(sql("select n from specialized order by i"), Reads.PRIM_DOUBLE);
+        assertTrue(Double.isNaN(ds.get(0)));
+        assertEquals(3.0, ds.get(1), 0.0);
+    }
+
+    @Test
+    public void bigDecimalsFromMixedColumn() throws SQLException {
+        m.execute(sql("create table mixed (id integer, x numeric)"));
+        m.execute(sql("insert into mixed values (1, 2)"));
+        m.execute(sql("insert into mixed values (2, 1.5)"));
+        m.execute(sql("insert into mixed values (3, null)"));
+
+        final List<BigDecimal> xs = m.queryList(sql("select x from mixed order by id"), BigDecimal.class);
+        assertEquals(3, xs.size());
+        assertEquals(0, new BigDecimal("2").compareTo(xs.get(0)));
+        assertEquals(0, new BigDecimal("1.5").compareTo(xs.get(1)));
+        assertNull(xs.get(2));
+    }
+
+    public static class ThrowingConstructor {
+        public ThrowingConstructor(int x) throws SQLException {
+            throw new SQLException("Constructor threw " + x);
+        }
+    }
+
+    @Test
+    public void tupleReadConstructorExceptionsPropagate() {
+        try {
+            m.queryFirst(sql("select 1"), Reads.tuple(ThrowingConstructor.class));
+            fail();
+        } catch (SQLException e) {
+            assertEquals("Constructor threw 1", e.getMessage());
+        }
+    }
+
     public static class TwoConstructors {
         public final int id;
         public final String name;
@@ -246,6 +328,241 @@ public class MDBITest {
         Assert.assertEquals("2015-08-01 02:30:44", m.queryFirst(sql("select datetime(").$(ldt).sql(" / 1000, 'unixepoch')"), String.class));
     }
 
+    @Test
+    public void instantAndOffsetDateTime() throws SQLException {
+        final Instant instant = Instant.ofEpochSecond(1438396244, 123000000);
+        Assert.assertEquals(instant, m.queryFirst(sql("select ").$(instant), Instant.class));
+        Assert.assertEquals(instant.atOffset(ZoneOffset.UTC), m.queryFirst(sql("select ").$(instant.atOffset(ZoneOffset.ofHours(2))), OffsetDateTime.class));
+        Assert.assertNull(m.queryFirst(sql("select ").$((Instant)null), Instant.class));
+    }
+
+    @Test
+    public void matrixEpochMillis() throws SQLException {
+        final LocalDateTime ldt = LocalDateTime.of(2015, 8, 1, 2, 30, 44);
+        m.execute(sql("create table ticks (at datetime, px double)"));
+        m.execute(sql("insert into ticks values (", $(ldt), ", 1.5)"));
+        m.execute(sql("insert into ticks values (", $(ldt.plusSeconds(1)), ", 2.5)"));
+
+        final MatrixBatchReadBuilder mrb = MatrixBatchReadBuilder.create();
+        final Supplier<long[]> ats = mrb.addEpochMillis(sql("at"));
+        final Supplier<double[]> pxs = mrb.addDouble(sql("px"));
+        assertEquals(2, mrb.buildAndExecute(m, columns -> sql("select ", columns, " from ticks order by at")));
+
+        final long millis = ldt.toInstant(ZoneOffset.UTC).toEpochMilli();
+        assertArrayEquals(new long[] { millis, millis + 1000 }, ats.get());
+        assertArrayEquals(new double[] { 1.5, 2.5 }, pxs.get(), 0.0);
+    }
+
+    @Test
+    public void scaledLong() throws SQLException {
+        m.execute(sql("create table prices (px decimal(18,6), qty integer, approx real)"));
+        m.execute(sql("insert into prices values (", $(Writes.scaledLong(6), 1250000L), ", 3, 0.5)"));
+        m.execute(sql("insert into prices values (", $(Writes.scaledLong(6), -100L), ", 4, 0.25)"));
+
+        final MatrixBatchReadBuilder mrb = MatrixBatchReadBuilder.create();
+        final Supplier<long[]> pxs = mrb.addScaledLong(sql("px"), 6);
+        final Supplier<long[]> qtys = mrb.addScaledLong(sql("qty"), 2);
+        final Supplier<long[]> approxs = mrb.addScaledLong(sql("approx"), 2);
+        assertEquals(2, mrb.buildAndExecute(m, columns -> sql("select ", columns, " from prices order by qty")));
+        assertArrayEquals(new long[] { 1250000, -100 }, pxs.get());
+        assertArrayEquals(new long[] { 300, 400 }, qtys.get());
+        assertArrayEquals(new long[] { 50, 25 }, approxs.get());
+
+        try {
+            m.queryList(sql("select px from prices"), Reads.scaledLong(4));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("scale 6"));
+        }
+
+        try {
+            m.queryList(sql("select approx from prices"), Reads.scaledLong(1));
+            fail();
+        } catch (ArithmeticException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("0.25"));
+        }
+    }
+
+    @Test
+    public void scaledLongFromMixedColumn() throws SQLException {
+        m.execute(sql("create table mixed (id integer, x numeric)"));
+        m.execute(sql("insert into mixed values (1, 2)"));
+        m.execute(sql("insert into mixed values (2, 1.5)"));
+
+        assertEquals(Arrays.asList(2000000L, 1500000L), m.queryList(sql("select x from mixed order by id"), Reads.scaledLong(6)));
+
+        try {
+            m.queryList(sql("select x from mixed order by id"), Reads.scaledLong(0));
+            fail();
+        } catch (ArithmeticException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("1.5"));
+        }
+
+        // Declared as integral, so read with getLong
+        m.execute(sql("create table whole (id integer, x decimal(10,0))"));
+        m.execute(sql("insert into whole values (1, 3)"));
+        m.execute(sql("insert into whole values (2, null)"));
+        assertEquals(Collections.singletonList(300L), m.queryList(sql("select x from whole where id = 1"), Reads.scaledLong(2)));
+        try {
+            m.queryList(sql("select x from whole order by id"), Reads.scaledLong(2));
+            fail();
+        } catch (NullPointerException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void canonicalizing() throws SQLException {
+        m.execute(sql("create table ccys (ccy text)"));
+        m.updateBatch(sql("insert into ccys values (", $s(Arrays.asList("GBP", "USD", "GBP", null, "GBP")), ")"));
+
+        final List<String> ccys = m.queryList(sql("select ccy from ccys order by rowid"), Reads.canonicalizing(Reads.STRING));
+        assertEquals(Arrays.asList("GBP", "USD", "GBP", null, "GBP"), ccys);
+        assertSame(ccys.get(0), ccys.get(2));
+        assertSame(ccys.get(0), ccys.get(4));
+
+        // Once the dictionary is full we stop sharing new values, but still return the right thing
+        final List<String> bounded = m.queryList(sql("select ccy from ccys order by rowid desc"), Reads.canonicalizing(Reads.STRING, 0));
+        assertEquals(Arrays.asList("GBP", null, "GBP", "USD", "GBP"), bounded);
+        assertNotSame(bounded.get(0), bounded.get(2));
+
+        final Canonicalizer<String> shared = Canonicalizer.create(100);
+        final String first = m.queryFirst(sql("select ccy from ccys order by rowid"), Reads.canonicalizing(Reads.STRING, shared));
+        assertSame(first, m.queryFirst(sql("select ccy from ccys order by rowid desc"), Reads.canonicalizing(Reads.STRING, shared)));
+        assertEquals(1, shared.size());
+
+        final MatrixBatchReadBuilder mrb = MatrixBatchReadBuilder.create().canonicalizing();
+        final Supplier<String[]> matrixCcys = mrb.add(sql("ccy"), String.class);
+        mrb.buildAndExecute(m, columns -> sql("select ", columns, " from ccys order by rowid"));
+        assertSame(matrixCcys.get()[0], matrixCcys.get()[2]);
+    }
+
+    @Test
+    public void uuids() throws SQLException {
+        final UUID a = UUID.fromString("123e4567-e89b-12d3-a456-426655440000"), b = UUID.randomUUID();
+        m.execute(sql("create table uuids (id integer, s text, b blob)"));
+        m.execute(sql("insert into uuids values (1, ", $(a), ", ", $(Writes.UUID_BINARY, a), ")"));
+        m.withPrepared(false).execute(sql("insert into uuids values (2, ", $(b), ", ", $(Writes.UUID_BINARY, b), ")"));
+        m.execute(sql("insert into uuids values (3, null, null)"));
+
+        assertEquals(Arrays.asList(a, b, null), m.queryList(sql("select s from uuids order by id"), UUID.class));
+        assertEquals(Arrays.asList(a, b, null), m.queryList(sql("select b from uuids order by id"), Reads.UUID_BINARY));
+        assertEquals(Arrays.asList(a, b), m.queryList(sql("select s from uuids where id < 3 order by id"), Reads.UUID_NATIVE));
+
+        final Context binary = Context.Builder.createDefault().register(UUID.class, Writes.UUID_BINARY, Reads.UUID_BINARY).build();
+        assertEquals(a.toString().replace("-", "").toUpperCase(), MDBI.of(binary, conn).queryFirst(sql("select hex(", $(a), ")"), String.class));
+
+        final MatrixBatchReadBuilder mrb = MatrixBatchReadBuilder.create();
+        final Supplier<long[][]> bits = mrb.addUUIDBits(sql("b"), Reads.UUID_BINARY);
+        final Supplier<int[]> ids = mrb.addInt(sql("id"));
+        assertEquals(2, mrb.buildAndExecute(m, columns -> sql("select ", columns, " from uuids where id < 3 order by id")));
+        assertArrayEquals(new long[] { a.getMostSignificantBits(), b.getMostSignificantBits() }, bits.get()[0]);
+        assertArrayEquals(new long[] { a.getLeastSignificantBits(), b.getLeastSignificantBits() }, bits.get()[1]);
+        assertArrayEquals(new int[] { 1, 2 }, ids.get());
+
+        final MatrixBatchReadBuilder canonical = MatrixBatchReadBuilder.create().canonicalizing();
+        final Supplier<long[][]> canonicalBits = canonical.addUUIDBits(sql("b"), Reads.UUID_BINARY);
+        final Supplier<String[]> strings = canonical.add(sql("s"), String.class);
+        assertEquals(2, canonical.buildAndExecute(m, columns -> sql("select ", columns, " from uuids where id < 3 order by id")));
+        assertArrayEquals(new long[] { a.getMostSignificantBits(), b.getMostSignificantBits() }, canonicalBits.get()[0]);
+        assertArrayEquals(new long[] { a.getLeastSignificantBits(), b.getLeastSignificantBits() }, canonicalBits.get()[1]);
+        assertArrayEquals(new String[] { a.toString(), b.toString() }, strings.get());
+    }
+
+    @Test
+    public void arrays() throws SQLException {
+        // SQLite has no array type, so this exercises the fallback to the text form
+        m.execute(sql("create table arrays (i text, l text, d text, s text)"));
+        m.execute(sql("insert into arrays values (", $(new int[] { 1, 2 }), ", ", $(new long[] { 10000000000L }), ", ", $(new double[] { 1.5, Double.NaN }), ", ", $(new String[] { "a,b", null }), ")"));
+        m.withPrepared(false).execute(sql("insert into arrays values (", $(new int[0]), ", null, null, ", $(new String[] { "it's" }), ")"));
+
+        assertEquals("{1,2}", m.queryFirst(sql("select i from arrays where rowid = 1"), String.class));
+        assertArrayEquals(new int[] { 1, 2 }, m.queryFirst(sql("select i from arrays where rowid = 1"), int[].class));
+        assertArrayEquals(new long[] { 10000000000L }, m.queryFirst(sql("select l from arrays where rowid = 1"), long[].class));
+        assertArrayEquals(new double[] { 1.5, Double.NaN }, m.queryFirst(sql("select d from arrays where rowid = 1"), double[].class), 0.0);
+        assertArrayEquals(new String[] { "a,b", null }, m.queryFirst(sql("select s from arrays where rowid = 1"), String[].class));
+
+        assertArrayEquals(new int[0], m.queryFirst(sql("select i from arrays where rowid = 2"), int[].class));
+        assertNull(m.queryFirst(sql("select l from arrays where rowid = 2"), long[].class));
+        assertArrayEquals(new String[] { "it's" }, m.queryFirst(sql("select s from arrays where rowid = 2"), String[].class));
+    }
+
+    private enum Shape {
+        SQUARE,
+        CIRCLE { @Override public String toString() { return "round"; } }
+    }
+
+    @Test
+    public void writesFallBackOnSupertypes() throws SQLException {
+        final Context base = Context.Builder.createDefault()
+                .registerWrite(Shape.class, Writes.map(String.class, Shape::name))
+                .build();
+        final Context ctxt = Context.Builder.createFromContext(base)
+                .registerWrite(CharSequence.class, Writes.map(String.class, CharSequence::toString))
+                .build();
+        final MDBI m = MDBI.of(ctxt, conn);
+
+        // Shape.CIRCLE is an instance of an anonymous subclass of Shape, and StringBuilder only implements CharSequence
+        assertNotEquals(Shape.class, Shape.CIRCLE.getClass());
+        assertEquals("CIRCLE", m.queryFirst(sql("select ", $(Shape.CIRCLE)), String.class));
+        assertEquals("ab", m.queryFirst(sql("select ", $(new StringBuilder("a").append('b'))), String.class));
+
+        // Deriving a builder from a Context must not change that Context
+        try {
+            MDBI.of(base, conn).queryFirst(sql("select ", $(new StringBuilder("a"))), String.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Don't know how to transfer"));
+        }
+    }
+
+    @Test
+    public void streamingLOBs() throws SQLException, IOException {
+        final byte[] bytes = new byte[200000];
+        new Random(1).nextBytes(bytes);
+
+        final Path source = Files.createTempFile("mdbi", ".in"), target = Files.createTempFile("mdbi", ".out");
+        try {
+            Files.write(source, bytes);
+            m.execute(sql("create table docs (id integer, doc blob, text text)"));
+            // NB: not Writes.BINARY_STREAM or CHARACTER_STREAM, because this version of the SQLite driver silently ignores unsized streams
+            m.execute(sql("insert into docs values (1, ", $(Writes.PATH, source), ", 'hello')"));
+            m.execute(sql("insert into docs values (2, ", $(Writes.BYTE_BUFFER, ByteBuffer.wrap(bytes, 1, 10)), ", null)"));
+            m.execute(sql("insert into docs values (3, ", $(Writes.BYTE_BUFFER, (ByteBuffer)ByteBuffer.allocateDirect(bytes.length).put(bytes).flip()), ", null)"));
+
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[] { 42 }));
+                assertEquals(Long.valueOf(1), m.query(sql("select doc from docs where id = 1"),
+                                                      BatchReads.forEach(Reads.BYTE_CHANNEL, doc -> assertEquals(bytes.length, LOBs.transfer(doc, channel)))));
+                assertEquals(1 + bytes.length, channel.position());
+            }
+            final byte[] copied = Files.readAllBytes(target);
+            assertEquals(42, copied[0]);
+            assertArrayEquals(bytes, Arrays.copyOfRange(copied, 1, copied.length));
+
+            final List<byte[]> viaStreams = new ArrayList<>();
+            m.query(sql("select doc from docs where id > 1 order by id"), BatchReads.forEach(Reads.BINARY_STREAM, doc -> {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                LOBs.transfer(doc, Channels.newChannel(out));
+                viaStreams.add(out.toByteArray());
+            }));
+            assertArrayEquals(Arrays.copyOfRange(bytes, 1, 11), viaStreams.get(0));
+            assertArrayEquals(bytes, viaStreams.get(1));
+
+            m.query(sql("select text from docs where id = 1"), BatchReads.forEach(Reads.CHARACTER_STREAM, text -> {
+                assertEquals("hello", new BufferedReader(text).readLine());
+            }));
+        } finally {
+            Files.delete(source);
+            Files.delete(target);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void streamsCannotBeUnprepared() throws SQLException {
+        m.withPrepared(false).execute(sql("select ", $(Writes.BINARY_STREAM, new ByteArrayInputStream(new byte[0]))));
+    }
+
     @Test
     public void updateBatchColumnAllNulls() throws SQLException {
         final List<Integer> ids = Arrays.asList(1, 2);
@@ -323,6 +640,41 @@ public class MDBITest {
         Assert.assertEquals("Max", m.queryFirst(sql("select name from person"), String.class));
     }
 
+    @Test
+    public void beanWriteWithSuppliedWrites() throws SQLException {
+        final Write<Bean> write = Writes.bean(Bean.class, Arrays.asList("Id", "Name"), Arrays.asList(Writes.PRIM_INT, Writes.map(Writes.STRING, (String x) -> x.toUpperCase())));
+
+        final Bean bean = new Bean();
+        bean.id = 1;
+        bean.name = "Max";
+        m.update(sql("insert into person (id, name) values (").$(write, bean).sql(")"));
+        m.withPrepared(false).update(sql("insert into person (id, name) values (").$(write, bean).sql(")"));
+        Assert.assertEquals(Arrays.asList("MAX", "MAX"), m.queryList(sql("select name from person where id = 1"), String.class));
+    }
+
+    @Test
+    public void tupleWritePrimitives() throws SQLException {
+        m.execute(sql("create table prims (i int, l int, d double)"));
+        final Write<Primitives> write = TupleWriteBuilder.<Primitives>create()
+                .addInt(p -> p.i)
+                .addLong(p -> p.l)
+                .addDouble(p -> p.d)
+                .build();
+
+        m.update(sql("insert into prims (i, l, d) values (").$(write, new Primitives(1, 10000000000L, 1.5, null)).sql(")"));
+        m.withPrepared(false).update(sql("insert into prims (i, l, d) values (").$(write, new Primitives(2, 2, Double.NaN, null)).sql(")"));
+
+        assertEquals(Arrays.asList(Arrays.asList(1, 10000000000L, 1.5), Arrays.asList(2, 2L, null)),
+                     m.queryList(sql("select i, l, d from prims order by i"), Reads.listWithClasses(Arrays.asList(Integer.class, Long.class, Double.class))));
+    }
+
+    @Test
+    public void mapChains() throws SQLException {
+        final Write<Integer> write = Writes.map(Writes.map(Writes.STRING, (String x) -> x + "!"), (Integer x) -> "Number " + x);
+        m.update(sql("insert into person (id, name) values (1, ").$(write, 10).sql(")"));
+        Assert.assertEquals("Number 10!", m.queryFirst(sql("select name from person"), String.class));
+    }
+
     @Test
     public void in() throws SQLException {
         Assert.assertEquals(1, m.queryList(sql("select 1 where 1 ").in(1, 2), String.class).size());
@@ -382,6 +734,39 @@ public class MDBITest {
         assertEquals("Moomin", result.get("name"));
     }
 
+    @Test
+    public void readRow() throws SQLException {
+        MDBI.of(conn).execute(sql("insert into person (id, name) values (1, 'Moomin')"));
+        MDBI.of(conn).execute(sql("insert into person (id, name) values (2, null)"));
+
+        final Read<uk.co.omegaprime.mdbi.Row> read = Reads.rowWithClasses(Integer.class, String.class);
+        final List<uk.co.omegaprime.mdbi.Row> rows = MDBI.of(conn).queryList(sql("select id, name from person order by id"), read);
+        assertEquals(2, rows.size());
+        assertSame(rows.get(0).schema(), rows.get(1).schema());
+        assertEquals(Arrays.asList("id", "name"), rows.get(0).schema().labels());
+
+        assertEquals(1, rows.get(0).getInt("id"));
+        assertEquals(2L, rows.get(1).getLong("id"));
+        assertEquals("Moomin", rows.get(0).getString("name"));
+        assertNull(rows.get(1).get("name"));
+        assertEquals(Arrays.asList(1, "Moomin"), rows.get(0).asList());
+
+        final Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("id", 1);
+        expected.put("name", "Moomin");
+        assertEquals(expected, rows.get(0).asMap());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(rows.get(0).asMap().keySet()));
+
+        // The schema is shared between queries with the same columns
+        assertSame(rows.get(0).schema(), MDBI.of(conn).queryFirst(sql("select id, name from person"), read).schema());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readRowWithDuplicateColumns() throws SQLException {
+        MDBI.of(conn).execute(sql("insert into person (id, name) values (1, 'Moomin')"));
+        MDBI.of(conn).queryFirst(sql("select id, id from person"), Reads.rowWithClasses(int.class, int.class));
+    }
+
     @Test
     public void queryMapViaSegmented() throws SQLException {
         MDBI.of(conn).execute(sql("insert into person (id, name) values (1, 'Foo')"));
@@ -461,6 +846,223 @@ public class MDBITest {
         assertArrayEquals((String[])matrix4[1], new String[] { "Bags" });
     }
 
+    @Test
+    public void segmentedDecodesEachKeyOnce() throws SQLException {
+        for (int i = 0; i < 10; i++) {
+            MDBI.of(conn).execute(sql("insert into person (id, name) values (", $(i / 3), ", ", $("P" + i), ")"));
+        }
+
+        final int[] keyReads = new int[1];
+        final Read<Integer> countingKey = Reads.map(Integer.class, Reads.useContext(int.class), (Integer k) -> { keyReads[0]++; return k; });
+        final Map<Integer, List<String>> result = MDBI.of(conn).query(sql("select id, name from person order by id, name"),
+                BatchReads.asMap(countingKey, BatchReads.asList(String.class)));
+
+        assertEquals(10, keyReads[0]);
+        assertEquals(Arrays.asList(0, 1, 2, 3), new ArrayList<>(result.keySet()));
+        assertEquals(Arrays.asList("P3", "P4", "P5"), result.get(1));
+        assertEquals(Collections.singletonList("P9"), result.get(3));
+
+        // The view of each key's rows is forward-only, whatever the underlying ResultSet
+        try {
+            MDBI.of(conn).query(sql("select id, name from person order by id"),
+                    BatchReads.asMap(Reads.useContext(int.class), (ctxt, rs) -> rs.next() && rs.previous()));
+            fail();
+        } catch (SQLFeatureNotSupportedException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void unorderedMap() throws SQLException {
+        for (int i = 0; i < 200; i++) {
+            MDBI.of(conn).execute(sql("insert into person (id, name) values (", $(i % 7), ", ", $("P" + i), ")"));
+        }
+
+        final Map<Integer, List<String>> expected = MDBI.of(conn).query(sql("select id, name from person order by id, rowid"),
+                BatchReads.asMap(Reads.useContext(int.class), BatchReads.asList(String.class)));
+        assertEquals(7, expected.size());
+
+        // Interleaved keys, both fitting in memory and spilling to disk after the first row
+        for (long maxBufferedBytes : new long[] { BatchReads.DEFAULT_UNORDERED_MAX_BUFFERED_BYTES, 0 }) {
+            final Map<Integer, List<String>> actual = MDBI.of(conn).query(sql("select id, name from person order by rowid"),
+                    BatchReads.asMapUnordered(Reads.useContext(int.class), BatchReads.asList(String.class), maxBufferedBytes));
+            assertEquals(expected, actual);
+        }
+
+        // Enough keys that spilled partitions are still too big and have to be split again
+        final Map<Integer, List<String>> many = MDBI.of(conn).query(sql("select rowid % 101, name from person order by rowid"),
+                BatchReads.asMapUnordered(Reads.useContext(int.class), BatchReads.asList(String.class), 500));
+        assertEquals(101, many.size());
+        assertEquals(MDBI.of(conn).queryList(sql("select name from person where rowid % 101 = 5 order by rowid"), String.class), many.get(5));
+
+        final Map<Integer, Object[]> matrices = MDBI.of(conn).query(sql("select id, id * 2, name from person"),
+                BatchReads.asMapUnordered(int.class, BatchReads.matrix(int.class, String.class)));
+        final int[] doubled = (int[])matrices.get(3)[0];
+        assertEquals(expected.get(3).size(), doubled.length);
+        for (int x : doubled) assertEquals(6, x);
+    }
+
+    @Test
+    public void forEachGroup() throws SQLException {
+        for (int i = 0; i < 100; i++) {
+            MDBI.of(conn).execute(sql("insert into person (id, name) values (", $(i / 10), ", ", $("P" + i), ")"));
+        }
+
+        final Map<Integer, List<String>> expected = MDBI.of(conn).query(sql("select id, name from person order by id, rowid"),
+                BatchReads.asMap(Reads.useContext(int.class), BatchReads.asList(String.class)));
+
+        final Map<Integer, List<String>> sequential = new LinkedHashMap<>();
+        assertEquals(10L, (long)MDBI.of(conn).query(sql("select id, name from person order by id, rowid"),
+                BatchReads.forEachGroup(int.class, BatchReads.asList(String.class), sequential::put)));
+        assertEquals(expected, sequential);
+
+        final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(3);
+        try {
+            final Map<Integer, List<String>> parallel = new java.util.concurrent.ConcurrentHashMap<>();
+            assertEquals(10L, (long)MDBI.of(conn).query(sql("select id, name from person order by id, rowid"),
+                    BatchReads.forEachGroup(Reads.useContext(int.class), BatchReads.asList(String.class), parallel::put, executor, 2)));
+            assertEquals(expected, parallel);
+
+            try {
+                MDBI.of(conn).query(sql("select id, name from person order by id, rowid"),
+                        BatchReads.forEachGroup(Reads.useContext(int.class), BatchReads.asList(String.class), (k, v) -> {
+                            if (k == 3) throw new IllegalArgumentException("Bad group");
+                        }, executor, 2));
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals("Bad group", e.getMessage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void primitiveKeyedMaps() throws SQLException {
+        m.execute(sql("insert into person (id, name) values (1, 'Foo'), (2, 'Bar'), (0, 'Baz')"));
+
+        final LongObjectMap<String> longs = m.query(sql("select id, name from person"), BatchReads.asLongMap(String.class));
+        assertEquals(3, longs.size());
+        assertEquals("Baz", longs.get(0));
+        assertEquals("Bar", longs.get(2));
+
+        final IntObjectMap<String> ints = m.query(sql("select id, name from person"), BatchReads.asIntMap(String.class));
+        assertEquals("Foo", ints.get(1));
+
+        final LongObjectMap<List<String>> multi = m.query(sql("select id % 2, name from person order by id"), BatchReads.asLongMultiMap(String.class));
+        assertEquals(Arrays.asList("Baz", "Bar"), multi.get(0));
+        assertEquals(Collections.singletonList("Foo"), multi.get(1));
+
+        final LongDoubleMap doubles = m.query(sql("select id, id / 2.0 from person"), BatchReads.asLongDoubleMap());
+        assertEquals(0.5, doubles.get(1), 0.0);
+
+        final LongLongMap squares = m.query(sql("select id, id * id from person"), BatchReads.asLongLongMap());
+        assertEquals(4, squares.get(2));
+
+        try {
+            m.query(sql("select 1, name from person"), BatchReads.asLongMap(String.class));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected: duplicate key
+        }
+    }
+
+    @Test
+    public void presizedAndImmutableCollections() throws SQLException {
+        m.execute(sql("insert into person (id, name) values (1, 'Foo'), (2, 'Bar'), (3, 'Foo')"));
+
+        // Run twice so that the second run is presized from what we learnt in the first
+        final BatchRead<List<String>> asList = BatchReads.asList(String.class);
+        for (int i = 0; i < 2; i++) {
+            final List<String> names = m.query(sql("select name from person order by id"), asList);
+            assertEquals(Arrays.asList("Foo", "Bar", "Foo"), names);
+            names.add("Extra");
+        }
+        assertEquals(new HashSet<>(Arrays.asList("Foo", "Bar")), m.query(sql("select name from person"), BatchReads.asSet(Reads.useContext(String.class), 100)));
+
+        final List<String> list = m.query(sql("select name from person order by id"), BatchReads.asImmutableList(String.class));
+        assertEquals(Arrays.asList("Foo", "Bar", "Foo"), list);
+        final Set<String> set = m.query(sql("select name from person order by id"), BatchReads.asImmutableSet(String.class));
+        assertEquals(Arrays.asList("Foo", "Bar"), new ArrayList<>(set));
+        assertTrue(set.contains("Bar"));
+
+        try {
+            list.add("Extra");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        try {
+            set.add("Extra");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void parallelDecoding() throws SQLException {
+        m.execute(sql("with recursive n(i) as (select 1 union all select i + 1 from n where i < 5000) insert into person select i, 'P' || i from n"));
+
+        final SQL query = sql("select id, name from person order by id");
+        final List<Row> expected = m.queryList(query, Reads.tuple(Row.class));
+        final Read<String> describe = Reads.map(String.class, Reads.tuple(Row.class), r -> r.id + ":" + r.name);
+        final List<String> expectedDescriptions = m.queryList(query, describe);
+
+        assertEquals(expectedDescriptions, m.query(query, BatchReads.asListParallel(describe)));
+        assertEquals(expectedDescriptions, m.query(query, BatchReads.asListParallel(describe, Runnable::run, 7)));
+        assertEquals(expectedDescriptions, m.query(query, BatchReads.asStream(describe)).parallel().collect(Collectors.toList()));
+
+        // Decoding happens after the ResultSet is closed, so labels must come from a copy of the metadata
+        final List<uk.co.omegaprime.mdbi.Row> rows = m.query(query, BatchReads.asStream(Reads.row(Reads.useContext(int.class), Reads.useContext(String.class))))
+                                                      .parallel().collect(Collectors.toList());
+        assertEquals(expected.size(), rows.size());
+        assertEquals("P4999", rows.get(4998).getString("name"));
+
+        try {
+            m.query(query, BatchReads.asListParallel(Reads.map(String.class, Reads.useContext(int.class), i -> {
+                if (i == 4000) throw new IllegalStateException("Bad row");
+                return "OK";
+            })));
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Bad row", e.getMessage());
+        }
+    }
+
+    @Test
+    public void sortedMaps() throws SQLException {
+        m.execute(sql("insert into person (id, name) values (1, 'Foo'), (2, 'Bar'), (3, 'Baz')"));
+
+        final NavigableMap<Integer, String> map = m.query(sql("select id, name from person order by id"), BatchReads.asSortedMap(Integer.class, String.class));
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(map.keySet()));
+        assertEquals("Bar", map.get(2));
+        assertEquals("Foo", map.lowerEntry(2).getValue());
+        assertEquals(Integer.valueOf(3), map.ceilingKey(3));
+
+        final NavigableMap<Integer, List<String>> multi = m.query(sql("select id % 2, name from person order by id % 2, id"), BatchReads.asSortedMultiMap(Integer.class, String.class));
+        assertEquals(Collections.singletonList("Bar"), multi.get(0));
+        assertEquals(Arrays.asList("Foo", "Baz"), multi.get(1));
+
+        final NavigableMap<Integer, String> descending = m.query(sql("select id, name from person order by id desc"),
+                BatchReads.asSortedMap(Reads.useContext(Integer.class), Reads.useContext(String.class), Comparator.reverseOrder()));
+        assertEquals(Integer.valueOf(3), descending.firstKey());
+
+        try {
+            m.query(sql("select id, name from person order by name"), BatchReads.asSortedMap(Integer.class, String.class));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected: out of order
+        }
+
+        try {
+            m.query(sql("select 1, name from person"), BatchReads.asSortedMap(Integer.class, String.class));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("occurs more than once"));
+        }
+    }
+
     @Test
     public void queryLabelledMatrix() throws SQLException {
         MDBI.of(conn).execute(sql("insert into person (id, name) values (-1, 'Bob')"));